@@ -1,8 +1,14 @@
 package com.openelements.conduct;
 
 import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.ConductCheckerDecorator;
 import com.openelements.conduct.data.ResultHandler;
+import com.openelements.conduct.endpoint.ExpiringBloomFilter;
+import com.openelements.conduct.endpoint.WebhookDeduplicator;
+import java.time.Duration;
 import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -11,9 +17,60 @@ import java.util.List;
 @Configuration
 public class ApplicationConfig {
 
+    @Value("${guardian.workflow.workers:8}")
+    private int workerCount;
+
+    @Value("${guardian.workflow.queue.capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${guardian.workflow.max-in-flight:256}")
+    private int maxInFlight;
+
+    @Value("${guardian.webhook.dedup.max-entries:10000}")
+    private long dedupMaxEntries;
+
+    @Value("${guardian.webhook.dedup.ttl:24h}")
+    private Duration dedupTimeToLive;
+
+    @Value("${guardian.webhook.dedup.bloom.enabled:false}")
+    private boolean dedupBloomEnabled;
+
+    @Value("${guardian.webhook.dedup.bloom.expected-insertions:1000000}")
+    private int dedupBloomExpectedInsertions;
+
+    @Value("${guardian.webhook.dedup.bloom.false-positive-probability:0.000001}")
+    private double dedupBloomFalsePositiveProbability;
+
+    @Value("${guardian.webhook.dedup.bloom.ttl:7d}")
+    private Duration dedupBloomTimeToLive;
+
+    @Bean
+    ConductCheckerChain conductCheckerChain(@NonNull final ConductChecker conductChecker,
+            @NonNull final ObjectProvider<ConductCheckerDecorator> decorators) {
+        return new ConductCheckerChain(conductChecker, decorators.orderedStream().toList());
+    }
+
+    @Bean
+    WorkflowHandler workflowHandler(@NonNull final ConductCheckerChain conductCheckerChain,
+            @NonNull final List<ResultHandler> resultHandlers) {
+        return new WorkflowHandler(conductCheckerChain.getChecker(), resultHandlers);
+    }
+
+    @Bean
+    MessageDispatcher messageDispatcher(@NonNull final WorkflowHandler workflowHandler) {
+        return new MessageDispatcher(workflowHandler, workerCount, queueCapacity, maxInFlight);
+    }
+
     @Bean
-    WorkflowHandler workflowHandler(@NonNull final ConductChecker conductChecker, @NonNull final List<ResultHandler> resultHandlers) {
-        return new WorkflowHandler(conductChecker, resultHandlers);
+    WebhookDeduplicator webhookDeduplicator() {
+        final ExpiringBloomFilter bloomFilter;
+        if (dedupBloomEnabled) {
+            bloomFilter = new ExpiringBloomFilter(dedupBloomExpectedInsertions, dedupBloomFalsePositiveProbability,
+                    dedupBloomTimeToLive);
+        } else {
+            bloomFilter = null;
+        }
+        return new WebhookDeduplicator(dedupMaxEntries, dedupTimeToLive, bloomFilter);
     }
 
 }
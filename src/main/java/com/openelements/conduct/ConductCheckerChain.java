@@ -0,0 +1,56 @@
+package com.openelements.conduct;
+
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The configured {@link ConductChecker} wrapped by all {@link ConductCheckerDecorator decorators}. The first decorator
+ * becomes the outermost stage. Stages created by the decorators are closed together with the chain.
+ */
+public class ConductCheckerChain implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(ConductCheckerChain.class);
+
+    private final ConductChecker checker;
+
+    private final List<ConductChecker> stages;
+
+    public ConductCheckerChain(@NonNull final ConductChecker conductChecker,
+            @NonNull final List<ConductCheckerDecorator> decorators) {
+        Objects.requireNonNull(conductChecker, "conductChecker must not be null");
+        Objects.requireNonNull(decorators, "decorators must not be null");
+        final List<ConductChecker> createdStages = new ArrayList<>();
+        ConductChecker current = conductChecker;
+        for (int i = decorators.size() - 1; i >= 0; i--) {
+            current = Objects.requireNonNull(decorators.get(i).decorate(current), "decorated checker must not be null");
+            createdStages.add(0, current);
+            log.info("Using ConductChecker stage {}", current.getClass().getSimpleName());
+        }
+        this.checker = current;
+        this.stages = List.copyOf(createdStages);
+    }
+
+    @NonNull
+    public ConductChecker getChecker() {
+        return checker;
+    }
+
+    @Override
+    public void close() {
+        for (ConductChecker stage : stages) {
+            if (stage instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.error("Error closing ConductChecker stage " + stage.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.openelements.conduct;
+
+import com.openelements.conduct.data.Message;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decouples the webhook endpoint from the (slow) check workflow. Messages are put in bounded queues and drained by a
+ * pool of virtual-thread workers. All messages of the same conversation (issue, pull request or discussion) are routed
+ * to the same worker, so they are handled in the order they arrived while different conversations are processed in
+ * parallel.
+ * <p>
+ * Workers do not wait for a message to be handled. They start the asynchronous workflow and chain it to the previous
+ * message of the same conversation, so up to {@code maxInFlight} messages are checked at the same time without a
+ * thread per message.
+ */
+public class MessageDispatcher implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    private final static long POLL_TIMEOUT_MILLIS = 500;
+
+    private final static long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+
+    private final WorkflowHandler workflowHandler;
+
+    private final List<BlockingQueue<Message>> queues;
+
+    private final List<Thread> workers;
+
+    private final Semaphore inFlight;
+
+    private final int maxInFlight;
+
+    private final Map<String, CompletableFuture<Void>> conversationTails = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    public MessageDispatcher(@NonNull final WorkflowHandler workflowHandler, final int workerCount,
+            final int queueCapacity, final int maxInFlight) {
+        this.workflowHandler = Objects.requireNonNull(workflowHandler, "workflowHandler must not be null");
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be at least 1");
+        }
+        if (queueCapacity < workerCount) {
+            throw new IllegalArgumentException("queueCapacity must not be smaller than workerCount");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        final int capacityPerWorker = queueCapacity / workerCount;
+        this.queues = new ArrayList<>(workerCount);
+        this.workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(capacityPerWorker);
+            queues.add(queue);
+            workers.add(Thread.ofVirtual()
+                    .name("message-worker-" + i)
+                    .start(() -> drain(queue)));
+        }
+        log.info("Started {} message workers with a queue capacity of {} messages each and up to {} messages in flight",
+                workerCount, capacityPerWorker, maxInFlight);
+    }
+
+    /**
+     * Enqueues the given message for asynchronous handling.
+     *
+     * @param message the message
+     * @return {@code true} if the message was accepted, {@code false} if the queue is full or the dispatcher has been
+     * closed
+     */
+    public boolean dispatch(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        if (!running) {
+            log.warn("Dispatcher is closed. Message {} is rejected", message.link());
+            return false;
+        }
+        final String conversationKey = getConversationKey(message);
+        final int index = Math.floorMod(conversationKey.hashCode(), queues.size());
+        final boolean accepted = queues.get(index).offer(message);
+        if (!accepted) {
+            log.warn("Message queue {} is full. Message {} is rejected", index, message.link());
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns the key of the conversation the message belongs to. Comments link to their parent issue, pull request
+     * or discussion with a fragment ({@code #issuecomment-123}) that is dropped here.
+     */
+    static String getConversationKey(@NonNull final Message message) {
+        final URI link = message.link();
+        if (link.getHost() == null || link.getPath() == null) {
+            return link.toString();
+        }
+        return link.getHost() + link.getPath();
+    }
+
+    private void drain(@NonNull final BlockingQueue<Message> queue) {
+        while (running || !queue.isEmpty()) {
+            try {
+                final Message message = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (message != null) {
+                    start(message);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Message worker interrupted, {} messages are dropped", queue.size());
+                return;
+            }
+        }
+    }
+
+    private void start(@NonNull final Message message) throws InterruptedException {
+        inFlight.acquire();
+        final String conversationKey = getConversationKey(message);
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final CompletableFuture<Void> previous = conversationTails.put(conversationKey, done);
+        final CompletableFuture<Void> predecessor = previous == null
+                ? CompletableFuture.completedFuture(null) : previous;
+        predecessor.thenCompose(ignored -> workflowHandler.handleMessageAsync(message))
+                .whenComplete((ignored, throwable) -> {
+                    conversationTails.remove(conversationKey, done);
+                    inFlight.release();
+                    done.complete(null);
+                });
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        final long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        for (Thread worker : workers) {
+            try {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !worker.join(Duration.ofMillis(remaining))) {
+                    worker.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers.forEach(Thread::interrupt);
+                return;
+            }
+        }
+        try {
+            final long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            if (!inFlight.tryAcquire(maxInFlight, remaining, TimeUnit.MILLISECONDS)) {
+                log.warn("{} messages still in flight after shutdown timeout",
+                        maxInFlight - inFlight.availablePermits());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
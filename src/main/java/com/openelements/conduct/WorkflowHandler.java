@@ -2,10 +2,12 @@ package com.openelements.conduct;
 
 import com.openelements.conduct.data.CheckResult;
 import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
 import com.openelements.conduct.data.Message;
 import com.openelements.conduct.data.ResultHandler;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,18 +29,48 @@ public class WorkflowHandler {
     }
 
     public void handleMessage(@NonNull Message message) {
+        Futures.join(handleMessageAsync(message));
+    }
+
+    /**
+     * Checks the message and passes the result to all result handlers without blocking the caller. The returned
+     * future completes once all handlers are done. It never completes exceptionally since all errors are logged.
+     */
+    @NonNull
+    public CompletableFuture<Void> handleMessageAsync(@NonNull Message message) {
         Objects.requireNonNull(message, "Message cannot be null");
+        final CompletableFuture<CheckResult> check;
         try {
-            final CheckResult result = conductChecker.check(message);
-            for (ResultHandler handler : resultHandlers) {
-                try {
-                    handler.handle(result);
-                } catch (Exception e) {
-                    log.error("Error in ResultHandler: " + handler.getClass().getSimpleName(), e);
-                }
-            }
+            check = conductChecker.checkAsync(message);
         } catch (Exception e) {
             log.error("Error processing message: " + message.link(), e);
+            return CompletableFuture.completedFuture(null);
+        }
+        return check.thenCompose(this::handleResult)
+                .exceptionally(throwable -> {
+                    log.error("Error processing message: " + message.link(), Futures.getCause(throwable));
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Void> handleResult(@NonNull final CheckResult result) {
+        final CompletableFuture<?>[] handled = resultHandlers.stream()
+                .map(handler -> handleResult(handler, result))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(handled);
+    }
+
+    private CompletableFuture<Void> handleResult(@NonNull final ResultHandler handler,
+            @NonNull final CheckResult result) {
+        CompletableFuture<Void> future;
+        try {
+            future = handler.handleAsync(result);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
         }
+        return future.exceptionally(throwable -> {
+            log.error("Error in ResultHandler: " + handler.getClass().getSimpleName(), Futures.getCause(throwable));
+            return null;
+        });
     }
 }
@@ -2,12 +2,43 @@ package com.openelements.conduct.data;
 
 import java.util.Objects;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
-public record CheckResult(@NonNull Message message, @NonNull ViolationState state, @NonNull String reason) {
+/**
+ * The verdict for a message.
+ *
+ * @param message    the message
+ * @param state      the verdict
+ * @param reason     the reason of the verdict
+ * @param confidence the confidence of the verdict between 0 and 1, {@code null} if unknown
+ * @param decidedBy  the stage or model that decided (like {@code openai/gpt-4o-mini}), {@code null} if unknown
+ */
+public record CheckResult(@NonNull Message message, @NonNull ViolationState state, @NonNull String reason,
+                          @Nullable Double confidence, @Nullable String decidedBy) {
 
     public CheckResult {
         Objects.requireNonNull(message, "message must not be null");
         Objects.requireNonNull(state, "state must not be null");
         Objects.requireNonNull(reason, "reason must not be null");
     }
+
+    public CheckResult(@NonNull Message message, @NonNull ViolationState state, @NonNull String reason) {
+        this(message, state, reason, null, null);
+    }
+
+    /**
+     * Returns the same verdict for another message. Used by stages that reuse a verdict for an equal message.
+     */
+    @NonNull
+    public CheckResult withMessage(@NonNull Message message) {
+        return new CheckResult(message, state, reason, confidence, decidedBy);
+    }
+
+    /**
+     * Returns the same verdict with another deciding stage.
+     */
+    @NonNull
+    public CheckResult withDecidedBy(@Nullable String decidedBy) {
+        return new CheckResult(message, state, reason, confidence, decidedBy);
+    }
 }
@@ -1,6 +1,8 @@
 package com.openelements.conduct.data;
 
+import java.util.concurrent.CompletableFuture;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 public interface CodeOfConductProvider {
 
@@ -8,4 +10,51 @@ public interface CodeOfConductProvider {
 
     @NonNull
     String getCodeOfConduct(@NonNull TextfileType type);
+
+    /**
+     * Returns a version of the Code of Conduct that changes whenever its content changes. The default implementation
+     * hashes the content on every call, providers that hold a {@link CodeOfConductSnapshot} return its version.
+     */
+    @NonNull
+    default String getVersion(@NonNull TextfileType type) {
+        return CodeOfConductSnapshot.hash(getCodeOfConduct(type));
+    }
+
+    /**
+     * Returns the provider of the Code of Conduct that applies to the given repository. The default implementation
+     * returns this provider, so all repositories share the same Code of Conduct.
+     *
+     * @param repository the full name ({@code owner/name}) of the repository, {@code null} if unknown
+     * @return the provider for the repository
+     */
+    @NonNull
+    default CodeOfConductProvider forRepository(@Nullable String repository) {
+        return this;
+    }
+
+    /**
+     * Resolves the provider of the Code of Conduct that applies to the given repository without blocking. The default
+     * implementation completes with {@link #forRepository(String)}.
+     *
+     * @param repository the full name ({@code owner/name}) of the repository, {@code null} if unknown
+     * @return the provider for the repository
+     */
+    @NonNull
+    default CompletableFuture<CodeOfConductProvider> forRepositoryAsync(@Nullable String repository) {
+        return CompletableFuture.completedFuture(forRepository(repository));
+    }
+
+    /**
+     * Returns the provider of the Code of Conduct that applies to the message. That is the provider that has been
+     * resolved once for the message at the start of the check (see {@link Message#codeOfConduct()}) or, if the
+     * message has not been resolved, the provider of its repository.
+     *
+     * @param message the message
+     * @return the provider for the message
+     */
+    @NonNull
+    default CodeOfConductProvider forMessage(@NonNull Message message) {
+        final CodeOfConductProvider resolved = message.codeOfConduct();
+        return resolved != null ? resolved : forRepository(message.repository());
+    }
 }
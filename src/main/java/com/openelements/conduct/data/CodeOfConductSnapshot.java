@@ -0,0 +1,114 @@
+package com.openelements.conduct.data;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * An immutable snapshot of a Code of Conduct in one or more {@link TextfileType}s. The version of every type is
+ * hashed once when the snapshot is created, so providers that hold a snapshot answer
+ * {@link CodeOfConductProvider#getVersion(TextfileType)} without any work and a new snapshot changes the version
+ * exactly when the content has changed.
+ * <p>
+ * A snapshot is a {@link CodeOfConductProvider} itself, so it can be returned by
+ * {@link CodeOfConductProvider#forRepository(String)}.
+ */
+public final class CodeOfConductSnapshot implements CodeOfConductProvider {
+
+    private final Map<TextfileType, String> codeOfConducts;
+
+    private final Map<TextfileType, String> versions;
+
+    private CodeOfConductSnapshot(@NonNull final Map<TextfileType, String> codeOfConducts) {
+        final Map<TextfileType, String> contentCopy = new EnumMap<>(TextfileType.class);
+        final Map<TextfileType, String> versionCopy = new EnumMap<>(TextfileType.class);
+        codeOfConducts.forEach((type, content) -> {
+            contentCopy.put(Objects.requireNonNull(type, "type must not be null"),
+                    Objects.requireNonNull(content, "content must not be null"));
+            versionCopy.put(type, hash(content));
+        });
+        this.codeOfConducts = Collections.unmodifiableMap(contentCopy);
+        this.versions = Collections.unmodifiableMap(versionCopy);
+    }
+
+    /**
+     * Creates a snapshot with a Code of Conduct per type.
+     */
+    @NonNull
+    public static CodeOfConductSnapshot of(@NonNull final Map<TextfileType, String> codeOfConducts) {
+        Objects.requireNonNull(codeOfConducts, "codeOfConducts must not be null");
+        return new CodeOfConductSnapshot(codeOfConducts);
+    }
+
+    /**
+     * Creates a snapshot that uses the same Code of Conduct for all types.
+     */
+    @NonNull
+    public static CodeOfConductSnapshot ofAllTypes(@NonNull final String codeOfConduct) {
+        Objects.requireNonNull(codeOfConduct, "codeOfConduct must not be null");
+        final Map<TextfileType, String> codeOfConducts = new EnumMap<>(TextfileType.class);
+        for (TextfileType type : TextfileType.values()) {
+            codeOfConducts.put(type, codeOfConduct);
+        }
+        return new CodeOfConductSnapshot(codeOfConducts);
+    }
+
+    @Override
+    public boolean supports(@NonNull final TextfileType type) {
+        Objects.requireNonNull(type, "type must not be null");
+        return codeOfConducts.containsKey(type);
+    }
+
+    @Override
+    public @NonNull String getCodeOfConduct(@NonNull final TextfileType type) {
+        Objects.requireNonNull(type, "type must not be null");
+        final String codeOfConduct = codeOfConducts.get(type);
+        if (codeOfConduct == null) {
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+        return codeOfConduct;
+    }
+
+    @Override
+    public @NonNull String getVersion(@NonNull final TextfileType type) {
+        Objects.requireNonNull(type, "type must not be null");
+        final String version = versions.get(type);
+        if (version == null) {
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+        return version;
+    }
+
+    /**
+     * Returns {@code true} if the snapshot has the same content as the given one.
+     */
+    public boolean hasSameContent(@NonNull final CodeOfConductSnapshot other) {
+        Objects.requireNonNull(other, "other must not be null");
+        return versions.equals(other.versions) && codeOfConducts.equals(other.codeOfConducts);
+    }
+
+    /**
+     * Returns a short hash of the given Code of Conduct that is used as its version.
+     */
+    @NonNull
+    public static String hash(@NonNull final String codeOfConduct) {
+        Objects.requireNonNull(codeOfConduct, "codeOfConduct must not be null");
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] hash = digest.digest(codeOfConduct.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (Exception e) {
+            throw new IllegalStateException("Can not hash Code of Conduct", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CodeOfConductSnapshot" + versions;
+    }
+}
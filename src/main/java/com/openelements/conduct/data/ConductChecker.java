@@ -1,5 +1,7 @@
 package com.openelements.conduct.data;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import org.jspecify.annotations.NonNull;
 
 @FunctionalInterface
@@ -7,4 +9,31 @@ public interface ConductChecker {
 
     @NonNull
     CheckResult check(@NonNull Message message);
+
+    /**
+     * Checks the message without blocking the caller. The default implementation calls {@link #check(Message)} on
+     * the calling thread, implementations that do I/O should override it.
+     */
+    @NonNull
+    default CompletableFuture<CheckResult> checkAsync(@NonNull Message message) {
+        try {
+            return CompletableFuture.completedFuture(check(message));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Checks the message like {@link #checkAsync(Message)} and passes the verdict to {@code earlyVerdict} as soon as
+     * it is decided, which can be before the returned future completes (for example while the rest of a streamed
+     * answer is read). The verdict is passed at most once. The default implementation passes it once the check has
+     * completed.
+     */
+    @NonNull
+    default CompletableFuture<CheckResult> checkAsync(@NonNull Message message,
+            @NonNull Consumer<ViolationState> earlyVerdict) {
+        final CompletableFuture<CheckResult> result = checkAsync(message);
+        result.thenAccept(checkResult -> earlyVerdict.accept(checkResult.state()));
+        return result;
+    }
 }
@@ -0,0 +1,15 @@
+package com.openelements.conduct.data;
+
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Wraps the configured {@link ConductChecker} with an additional stage (caching, pre-filtering, ...). All decorator
+ * beans are applied in their {@link org.springframework.core.annotation.Order order}, the decorator with the lowest
+ * order becomes the outermost stage.
+ */
+@FunctionalInterface
+public interface ConductCheckerDecorator {
+
+    @NonNull
+    ConductChecker decorate(@NonNull ConductChecker delegate);
+}
@@ -0,0 +1,18 @@
+package com.openelements.conduct.data;
+
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Gets the verdict for a message as soon as the LLM has decided it, before the remaining stages of the check have
+ * completed. For a streamed answer this is as soon as the verdict is read, before the rest of the answer. Useful for
+ * handlers that must react fast. Every message is published once, with the verdict that the cascades, hedged calls and
+ * chunks reduce to. The final {@link CheckResult} is still passed to the {@link ResultHandler}s.
+ * <p>
+ * Listeners are called on the thread that decided the verdict (for example the reader of a streamed answer) and must
+ * not block.
+ */
+@FunctionalInterface
+public interface EarlyVerdictListener {
+
+    void onEarlyVerdict(@NonNull Message message, @NonNull ViolationState state);
+}
@@ -0,0 +1,130 @@
+package com.openelements.conduct.data;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Helpers to bridge the asynchronous and the synchronous variants of {@link ConductChecker} and
+ * {@link ResultHandler}.
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Waits for the future and rethrows a {@link RuntimeException} that completed it as it is.
+     */
+    public static <T> T join(@NonNull final CompletableFuture<T> future) {
+        Objects.requireNonNull(future, "future must not be null");
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Waits for the future at most the given time and rethrows a {@link RuntimeException} that completed it as it
+     * is.
+     */
+    public static <T> T join(@NonNull final CompletableFuture<T> future, final long timeout,
+            @NonNull final TimeUnit unit) {
+        Objects.requireNonNull(future, "future must not be null");
+        try {
+            return future.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timeout after " + timeout + " " + unit, e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Returns the cause of a {@link CompletionException} or {@link ExecutionException}.
+     */
+    @NonNull
+    public static Throwable getCause(@NonNull final Throwable throwable) {
+        Throwable current = throwable;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    /**
+     * Cancels the source future once the dependent future (for example created by {@code thenApply} on the source)
+     * is cancelled. {@link CompletableFuture} does not propagate cancellation upstream on its own.
+     *
+     * @return the dependent future
+     */
+    @NonNull
+    public static <T> CompletableFuture<T> propagateCancellation(@NonNull final CompletableFuture<T> dependent,
+            @NonNull final CompletableFuture<?> source) {
+        Objects.requireNonNull(dependent, "dependent must not be null");
+        Objects.requireNonNull(source, "source must not be null");
+        dependent.whenComplete((result, throwable) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Composes the source with the function like {@link CompletableFuture#thenCompose}, but cancelling the returned
+     * future cancels the source or, once it has been created, the future of the function.
+     *
+     * @return the composed future
+     */
+    @NonNull
+    public static <T, U> CompletableFuture<U> composeCancellable(@NonNull final CompletableFuture<T> source,
+            @NonNull final Function<? super T, ? extends CompletableFuture<U>> function) {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(function, "function must not be null");
+        final CompletableFuture<U> result = new CompletableFuture<>();
+        source.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            if (result.isDone()) {
+                return;
+            }
+            final CompletableFuture<U> next;
+            try {
+                next = function.apply(value);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            propagateCancellation(result, next);
+            next.whenComplete((nextValue, nextThrowable) -> {
+                if (nextThrowable != null) {
+                    result.completeExceptionally(nextThrowable);
+                } else {
+                    result.complete(nextValue);
+                }
+            });
+        });
+        return propagateCancellation(result, source);
+    }
+
+    private static RuntimeException unwrap(@NonNull final Exception exception) {
+        final Throwable cause = getCause(exception);
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new RuntimeException(cause);
+    }
+}
@@ -5,14 +5,59 @@ import java.util.Objects;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
-public record Message(@Nullable String title, @NonNull String message, @NonNull URI link) {
+/**
+ * A message to check.
+ *
+ * @param title         the title, {@code null} for messages without a title (like comments)
+ * @param message       the text
+ * @param link          the link to the message
+ * @param repository    the full name ({@code owner/name}) of the repository the message was sent in, {@code null} if
+ *                      unknown
+ * @param author        the login of the author of the message, {@code null} if unknown
+ * @param codeOfConduct the Code of Conduct that applies to the message, {@code null} if it has not been resolved yet
+ *                      (see {@link CodeOfConductProvider#forMessage(Message)})
+ */
+public record Message(@Nullable String title, @NonNull String message, @NonNull URI link,
+                      @Nullable String repository, @Nullable String author,
+                      @Nullable CodeOfConductProvider codeOfConduct) {
 
     public Message {
         Objects.requireNonNull(message, "message must not be null");
         Objects.requireNonNull(link, "link must not be null");
     }
 
+    public Message(@Nullable String title, @NonNull String message, @NonNull URI link,
+            @Nullable String repository, @Nullable String author) {
+        this(title, message, link, repository, author, null);
+    }
+
+    public Message(@Nullable String title, @NonNull String message, @NonNull URI link,
+            @Nullable String repository) {
+        this(title, message, link, repository, null);
+    }
+
+    public Message(@Nullable String title, @NonNull String message, @NonNull URI link) {
+        this(title, message, link, null);
+    }
+
     public Message(@NonNull String message, @NonNull URI link) {
         this(null, message, link);
     }
+
+    /**
+     * Returns a copy of this message with another text, like a normalized text or a chunk of the text.
+     */
+    @NonNull
+    public Message withMessage(@NonNull String message) {
+        return new Message(title, message, link, repository, author, codeOfConduct);
+    }
+
+    /**
+     * Returns a copy of this message with the Code of Conduct that applies to it.
+     */
+    @NonNull
+    public Message withCodeOfConduct(@NonNull CodeOfConductProvider codeOfConduct) {
+        Objects.requireNonNull(codeOfConduct, "codeOfConduct must not be null");
+        return new Message(title, message, link, repository, author, codeOfConduct);
+    }
 }
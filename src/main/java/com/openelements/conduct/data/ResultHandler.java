@@ -1,5 +1,6 @@
 package com.openelements.conduct.data;
 
+import java.util.concurrent.CompletableFuture;
 import org.jspecify.annotations.NonNull;
 
 @FunctionalInterface
@@ -7,4 +8,17 @@ public interface ResultHandler {
 
     void handle(@NonNull CheckResult result);
 
+    /**
+     * Handles the result without blocking the caller. The default implementation calls {@link #handle(CheckResult)}
+     * on the calling thread, implementations that do I/O should override it.
+     */
+    @NonNull
+    default CompletableFuture<Void> handleAsync(@NonNull CheckResult result) {
+        try {
+            handle(result);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
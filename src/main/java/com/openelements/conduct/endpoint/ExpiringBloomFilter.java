@@ -0,0 +1,138 @@
+package com.openelements.conduct.endpoint;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * A Bloom filter that forgets its content over time. Keys are added to the current generation, lookups check the
+ * current and the previous generation. Once a generation is older than the given lifetime (or is full) it becomes the
+ * previous generation and the old previous generation is dropped. By that a key is remembered for at least one and
+ * at most two lifetimes while the memory stays constant.
+ */
+public class ExpiringBloomFilter {
+
+    private final int bitCount;
+
+    private final int hashCount;
+
+    private final int maxInsertions;
+
+    private final long lifetimeNanos;
+
+    private Generation current;
+
+    private Generation previous;
+
+    public ExpiringBloomFilter(final int expectedInsertions, final double falsePositiveProbability,
+            @NonNull final Duration lifetime) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions must be at least 1");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+        }
+        Objects.requireNonNull(lifetime, "lifetime must not be null");
+        final double ln2 = Math.log(2);
+        final long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (ln2 * ln2));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+        this.maxInsertions = expectedInsertions;
+        this.lifetimeNanos = lifetime.toNanos();
+        this.current = new Generation(bitCount, System.nanoTime());
+        this.previous = new Generation(bitCount, System.nanoTime());
+    }
+
+    public boolean mightContain(@NonNull final String key) {
+        Objects.requireNonNull(key, "key must not be null");
+        final long hash = hash(key);
+        final Generation currentGeneration;
+        final Generation previousGeneration;
+        synchronized (this) {
+            rotateIfNeeded();
+            currentGeneration = current;
+            previousGeneration = previous;
+        }
+        return currentGeneration.contains(hash, hashCount, bitCount)
+                || previousGeneration.contains(hash, hashCount, bitCount);
+    }
+
+    public void put(@NonNull final String key) {
+        Objects.requireNonNull(key, "key must not be null");
+        final long hash = hash(key);
+        final Generation generation;
+        synchronized (this) {
+            rotateIfNeeded();
+            generation = current;
+            generation.insertions++;
+        }
+        generation.put(hash, hashCount, bitCount);
+    }
+
+    private void rotateIfNeeded() {
+        if (current.insertions >= maxInsertions || System.nanoTime() - current.createdAt >= lifetimeNanos) {
+            previous = current;
+            current = new Generation(bitCount, System.nanoTime());
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes followed by a murmur finalizer, so that the two 32-bit halves can be used for
+     * double hashing.
+     */
+    private static long hash(@NonNull final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Generation {
+
+        private final AtomicLongArray bits;
+
+        private final long createdAt;
+
+        private int insertions;
+
+        private Generation(final int bitCount, final long createdAt) {
+            this.bits = new AtomicLongArray((bitCount + 63) / 64);
+            this.createdAt = createdAt;
+        }
+
+        private void put(final long hash, final int hashCount, final int bitCount) {
+            final int h1 = (int) hash;
+            final int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                final int index = Math.floorMod(h1 + i * h2, bitCount);
+                final long mask = 1L << index;
+                final int word = index >>> 6;
+                long value;
+                do {
+                    value = bits.get(word);
+                } while ((value & mask) == 0 && !bits.compareAndSet(word, value, value | mask));
+            }
+        }
+
+        private boolean contains(final long hash, final int hashCount, final int bitCount) {
+            final int h1 = (int) hash;
+            final int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                final int index = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
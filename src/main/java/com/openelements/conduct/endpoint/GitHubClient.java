@@ -2,16 +2,25 @@ package com.openelements.conduct.endpoint;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openelements.conduct.data.Futures;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -20,26 +29,81 @@ public class GitHubClient {
 
     private final static Logger log = LoggerFactory.getLogger(GitHubClient.class);
 
+    private final static Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final static Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final static Duration SYNC_TIMEOUT = Duration.ofSeconds(30);
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final static int DEFAULT_CACHE_MAX_ENTRIES = 1000;
+
+    private final static Duration DEFAULT_MAX_WAIT = Duration.ofMinutes(5);
+
+    private final static int MAX_RATE_LIMIT_RETRIES = 2;
+
+    private final static int MEMBERS_PER_PAGE = 100;
+
     @Value("${guardian.integration.github.token}")
     private String token;
 
+    // One client for all calls, so connections to the GitHub API are reused
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
+    private final GitHubResponseCache responseCache;
+
+    private final GitHubRateLimiter rateLimiter;
+
+    public GitHubClient() {
+        this(DEFAULT_CACHE_MAX_ENTRIES, "", DEFAULT_MAX_WAIT);
+    }
+
+    @Autowired
+    public GitHubClient(@Value("${guardian.integration.github.cache.max-entries:1000}") final int cacheMaxEntries,
+            @Value("${guardian.integration.github.cache.directory:}") final @NonNull String cacheDirectory,
+            @Value("${guardian.integration.github.rate-limit.max-wait:5m}") final @NonNull Duration maxWait) {
+        Objects.requireNonNull(cacheDirectory, "cacheDirectory must not be null");
+        this.responseCache = new GitHubResponseCache(cacheMaxEntries,
+                cacheDirectory.isBlank() ? null : Path.of(cacheDirectory));
+        this.rateLimiter = new GitHubRateLimiter(maxWait);
+    }
+
     public Set<String> getAllUsersForOrg(final @NonNull String orgName) {
         Objects.requireNonNull(orgName, "orgName must not be null");
         if (orgName.isBlank()) {
             throw new IllegalArgumentException("orgName must not be blank");
         }
         try {
-            final URI uri = new URI("https://api.github.com/orgs/" + orgName + "/members");
-            final JsonNode node = executeGet(uri);
-            Set<String> result = Set.of(node.findValuesAsText("login").toArray(new String[0]));
+            final Set<String> result = new HashSet<>();
+            for (int page = 1; ; page++) {
+                final URI uri = new URI("https://api.github.com/orgs/" + orgName + "/members?per_page="
+                        + MEMBERS_PER_PAGE + "&page=" + page);
+                final JsonNode node = executeGet(uri);
+                result.addAll(node.findValuesAsText("login"));
+                if (node.size() < MEMBERS_PER_PAGE) {
+                    break;
+                }
+            }
             log.debug("Fetched {} users for organization: {}", result.size(), result);
-            return result;
+            return Set.copyOf(result);
         } catch (Exception e) {
             throw new RuntimeException("Error fetching users for org: " + orgName, e);
         }
     }
 
-    public String getDiscussionContent(final @NonNull String orgName, final @NonNull String repoName,
+    /**
+     * Gets the title and the text of a discussion with a single call.
+     *
+     * @param orgName      The owner of the repository
+     * @param repoName     The name of the repository
+     * @param discussionId The number of the discussion
+     * @return the discussion
+     */
+    @NonNull
+    public GitHubDiscussion getDiscussion(final @NonNull String orgName, final @NonNull String repoName,
             final @NonNull String discussionId) {
         Objects.requireNonNull(orgName, "orgName must not be null");
         Objects.requireNonNull(repoName, "repoName must not be null");
@@ -57,36 +121,21 @@ public class GitHubClient {
             final URI uri = new URI("https://api.github.com/repos/" + orgName + "/" + repoName
                     + "/discussions/" + discussionId);
             final JsonNode node = executeGet(uri);
-            return node.get("body").asText();
+            return new GitHubDiscussion(node.get("title").asText(), node.get("body").asText());
         } catch (Exception e) {
-            throw new RuntimeException("Error fetching discussion content for org: " + orgName + ", repo: " + repoName
+            throw new RuntimeException("Error fetching discussion for org: " + orgName + ", repo: " + repoName
                     + ", discussionId: " + discussionId, e);
         }
     }
 
+    public String getDiscussionContent(final @NonNull String orgName, final @NonNull String repoName,
+            final @NonNull String discussionId) {
+        return getDiscussion(orgName, repoName, discussionId).body();
+    }
+
     public String getDiscussionTitle(final @NonNull String orgName, final @NonNull String repoName,
             final @NonNull String discussionId) {
-        Objects.requireNonNull(orgName, "orgName must not be null");
-        Objects.requireNonNull(repoName, "repoName must not be null");
-        Objects.requireNonNull(discussionId, "discussionId must not be null");
-        if (orgName.isBlank()) {
-            throw new IllegalArgumentException("orgName must not be blank");
-        }
-        if (repoName.isBlank()) {
-            throw new IllegalArgumentException("repoName must not be blank");
-        }
-        if (discussionId.isBlank()) {
-            throw new IllegalArgumentException("discussionId must not be blank");
-        }
-        try {
-            final URI uri = new URI("https://api.github.com/repos/" + orgName + "/" + repoName
-                    + "/discussions/" + discussionId);
-            final JsonNode node = executeGet(uri);
-            return node.get("title").asText();
-        } catch (Exception e) {
-            throw new RuntimeException("Error fetching discussion title for org: " + orgName + ", repo: " + repoName
-                    + ", discussionId: " + discussionId, e);
-        }
+        return getDiscussion(orgName, repoName, discussionId).title();
     }
 
     /**
@@ -127,77 +176,229 @@ public class GitHubClient {
         }
     }
 
+    /**
+     * Gets the community profile of a repository. The profile contains the Code of Conduct file of the repository (or
+     * of the organization) if GitHub has detected one.
+     *
+     * @param owner The owner of the repository
+     * @param repo  The name of the repository
+     * @return the response
+     */
+    @NonNull
+    public CompletableFuture<GitHubResponse> getCommunityProfileAsync(final @NonNull String owner,
+            final @NonNull String repo) {
+        return getAsync(repositoryUri(owner, repo, "/community/profile"), null);
+    }
+
+    /**
+     * Gets the files and directories in the root of the default branch of a repository with a single call.
+     *
+     * @param owner The owner of the repository
+     * @param repo  The name of the repository
+     * @return the response, the body contains the entries in {@code tree}
+     */
+    @NonNull
+    public CompletableFuture<GitHubResponse> getRootTreeAsync(final @NonNull String owner,
+            final @NonNull String repo) {
+        return getAsync(repositoryUri(owner, repo, "/git/trees/HEAD"), null);
+    }
+
+    /**
+     * Gets the content of a file from a GitHub repository without blocking.
+     *
+     * @param owner The owner of the repository
+     * @param repo  The name of the repository
+     * @param path  The path to the file
+     * @param ref   The name of the commit/branch/tag, {@code null} for the default branch
+     * @return the response, the body contains the base64 encoded content
+     */
+    @NonNull
+    public CompletableFuture<GitHubResponse> getRepositoryFileContentAsync(final @NonNull String owner,
+            final @NonNull String repo, final @NonNull String path, final @Nullable String ref) {
+        Objects.requireNonNull(path, "path must not be null");
+        if (path.isBlank()) {
+            throw new IllegalArgumentException("path must not be blank");
+        }
+        final String query = ref != null && !ref.isBlank() ? "?ref=" + ref : "";
+        return getAsync(repositoryUri(owner, repo, "/contents/" + path + query), null);
+    }
+
+    /**
+     * Executes a GET request to the GitHub API. If an ETag is given the request is conditional and a 304 response is
+     * returned if the resource has not changed. Without an ETag a cached response is revalidated and returned as a 200
+     * response if the resource has not changed.
+     *
+     * @param uri  The URI of the resource
+     * @param etag The ETag of a former response or {@code null}
+     * @return the response, a 404 response is returned and not thrown
+     */
+    @NonNull
+    public CompletableFuture<GitHubResponse> getAsync(final @NonNull URI uri, final @Nullable String etag) {
+        Objects.requireNonNull(uri, "URI must not be null");
+        final GitHubResponseCache.Entry cached = etag == null ? responseCache.get(uri) : null;
+        final HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/vnd.github.v3+json")
+                .header("Authorization", "Bearer " + token)
+                .header("User-Agent", "hAIro-Server");
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        } else if (cached != null && cached.etag() != null) {
+            builder.header("If-None-Match", cached.etag());
+        } else if (cached != null && cached.lastModified() != null) {
+            builder.header("If-Modified-Since", cached.lastModified());
+        }
+        final CompletableFuture<HttpResponse<String>> sent = send(builder.build(), 0);
+        return Futures.propagateCancellation(sent.thenApply(response -> {
+            if (response.statusCode() == 304 && cached != null) {
+                log.debug("Using cached response of {}", uri);
+                return new GitHubResponse(200, cached.etag(), readTree(uri, cached.body()));
+            }
+            final String responseEtag = response.headers().firstValue("ETag").orElse(etag);
+            if (response.statusCode() == 304 || response.statusCode() == 404) {
+                return new GitHubResponse(response.statusCode(), responseEtag, null);
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("GET request to " + uri + " failed: " + response.statusCode());
+            }
+            responseCache.put(uri, new GitHubResponseCache.Entry(responseEtag,
+                    response.headers().firstValue("Last-Modified").orElse(null), response.body()));
+            return new GitHubResponse(200, responseEtag, readTree(uri, response.body()));
+        }), sent);
+    }
+
+    @NonNull
+    private static JsonNode readTree(final @NonNull URI uri, final @NonNull String body) {
+        try {
+            return OBJECT_MAPPER.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid response from " + uri, e);
+        }
+    }
+
+    /**
+     * Sends a request once the rate limit allows it. A request that is rejected by the rate limit is repeated after
+     * the reset of the limit. Cancelling the returned future aborts the wait or the HTTP exchange.
+     */
+    @NonNull
+    private CompletableFuture<HttpResponse<String>> send(final @NonNull HttpRequest request, final int retries) {
+        final CompletableFuture<HttpResponse<String>> response = Futures.composeCancellable(
+                rateLimiter.acquire(request.uri()),
+                ignored -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        return Futures.composeCancellable(response, sent -> {
+            rateLimiter.update(sent);
+            final long retryDelay = rateLimiter.getRetryDelay(sent);
+            if (retryDelay < 0 || retries >= MAX_RATE_LIMIT_RETRIES) {
+                return CompletableFuture.completedFuture(sent);
+            }
+            log.warn("Request to {} hit the rate limit of the GitHub API, repeating it in {} ms",
+                    request.uri(), retryDelay);
+            return Futures.composeCancellable(CompletableFuture.supplyAsync(() -> request,
+                            CompletableFuture.delayedExecutor(retryDelay, TimeUnit.MILLISECONDS)),
+                    repeated -> send(repeated, retries + 1));
+        });
+    }
+
+    @NonNull
+    private static URI repositoryUri(final @NonNull String owner, final @NonNull String repo,
+            final @NonNull String path) {
+        Objects.requireNonNull(owner, "owner must not be null");
+        Objects.requireNonNull(repo, "repo must not be null");
+        if (owner.isBlank()) {
+            throw new IllegalArgumentException("owner must not be blank");
+        }
+        if (repo.isBlank()) {
+            throw new IllegalArgumentException("repo must not be blank");
+        }
+        return URI.create("https://api.github.com/repos/" + owner + "/" + repo + path);
+    }
+
     private void executePost(final @NonNull URI uri, final @NonNull String payload) {
         try {
-            final HttpClient client = HttpClient.newHttpClient();
             final HttpRequest request = HttpRequest.newBuilder()
                     .uri(uri)
+                    .timeout(REQUEST_TIMEOUT)
                     .header("Authorization", "Bearer " + token)
                     .header("Accept", "application/vnd.github+json")
                     .header("Content-Type", "application/json")
+                    .header("User-Agent", "hAIro-Server")
                     .POST(HttpRequest.BodyPublishers.ofString(payload))
                     .build();
-            final String body = client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(response -> {
-                        if (response.statusCode() == 200) {
-                            return response.body();
-                        } else {
-                            throw new RuntimeException("Failed to fetch discussion content: " + response.statusCode());
-                        }
-                    }).get(10, TimeUnit.SECONDS);
+            final HttpResponse<String> response = await(send(request, 0));
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("POST request failed: " + response.statusCode());
+            }
         } catch (Exception e) {
             throw new RuntimeException("Error executing POST request to " + uri, e);
         }
     }
 
+    /**
+     * Waits for a call of the synchronous API. The rate limit retries can wait far longer than a caller should be
+     * blocked, so the call is cancelled once {@link #SYNC_TIMEOUT} has passed.
+     */
+    private static <T> T await(final @NonNull CompletableFuture<T> future) {
+        try {
+            return Futures.join(future, SYNC_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
     private JsonNode executeGet(final @NonNull URI uri) {
         Objects.requireNonNull(uri, "URI must not be null");
         try {
-            final HttpClient client = HttpClient.newHttpClient();
-            final HttpRequest request = HttpRequest.newBuilder()
-                    .uri(uri)
-                    .header("Accept", "application/vnd.github.v3+json")
-                    .header("Authorization", "Bearer " + token)
-                    .header("User-Agent", "hAIro-Server")
-                    .build();
-            final String body = client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(response -> {
-                        if (response.statusCode() == 200) {
-                            return response.body();
-                        } else {
-                            throw new RuntimeException("Failed to fetch discussion content: " + response.statusCode());
-                        }
-                    }).get(10, TimeUnit.SECONDS);
-            final ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readTree(body);
+            final GitHubResponse response = await(getAsync(uri, null));
+            if (!response.isOk()) {
+                throw new IllegalStateException("GET request failed: " + response.statusCode());
+            }
+            return response.body();
         } catch (Exception e) {
             throw new RuntimeException("Error executing GET request to " + uri, e);
         }
     }
 
-    public int getContributionCount(String author) {
+    /**
+     * Gets the number of commits of an author in a repository.
+     *
+     * @param repository The full name ({@code owner/name}) of the repository
+     * @param author     The login of the author
+     * @return the number of commits
+     */
+    public int getContributionCount(final @NonNull String repository, final @NonNull String author) {
         try {
-            final HttpClient client = HttpClient.newHttpClient();
-            final HttpRequest request = HttpRequest.newBuilder()
-                    .uri(new URI(
-                            "https://api.github.com/search/commits?q=repo:hairo-hackers/server+author:" + author))
-                    .header("Accept", "application/vnd.github.v3+json")
-                    .header("Authorization", "Bearer " + token)
-                    .header("User-Agent", "hAIro-Server")
-                    .build();
-            final String body = client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(response -> {
-                        if (response.statusCode() == 200) {
-                            return response.body();
-                        } else {
-                            throw new RuntimeException("Failed to fetch discussion content: " + response.statusCode());
-                        }
-                    }).get(10, TimeUnit.SECONDS);
-            final ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readTree(body).get("total_count").asInt();
+            return await(getContributionCountAsync(repository, author));
         } catch (Exception e) {
-            throw new RuntimeException("Error executing GraphQL request", e);
+            throw new RuntimeException("Error fetching contribution count of " + author + " in " + repository, e);
+        }
+    }
+
+    /**
+     * Gets the number of commits of an author in a repository without blocking. The search API has a lower rate
+     * limit than the other endpoints, so callers should cache the result.
+     *
+     * @param repository The full name ({@code owner/name}) of the repository
+     * @param author     The login of the author
+     * @return the number of commits, 0 if the repository is not found
+     */
+    @NonNull
+    public CompletableFuture<Integer> getContributionCountAsync(final @NonNull String repository,
+            final @NonNull String author) {
+        Objects.requireNonNull(repository, "repository must not be null");
+        Objects.requireNonNull(author, "author must not be null");
+        if (repository.isBlank()) {
+            throw new IllegalArgumentException("repository must not be blank");
+        }
+        if (author.isBlank()) {
+            throw new IllegalArgumentException("author must not be blank");
         }
+        final String query = "repo:" + repository + " author:" + author;
+        final URI uri = URI.create("https://api.github.com/search/commits?per_page=1&q="
+                + URLEncoder.encode(query, StandardCharsets.UTF_8));
+        return getAsync(uri, null).thenApply(response -> response.isOk()
+                ? response.body().path("total_count").asInt() : 0);
     }
 
     public JsonNode getUserInfo(String user) {
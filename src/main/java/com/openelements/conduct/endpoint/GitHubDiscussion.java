@@ -0,0 +1,12 @@
+package com.openelements.conduct.endpoint;
+
+import org.jspecify.annotations.NonNull;
+
+/**
+ * A discussion of a GitHub repository.
+ *
+ * @param title the title of the discussion
+ * @param body  the text of the discussion
+ */
+public record GitHubDiscussion(@NonNull String title, @NonNull String body) {
+}
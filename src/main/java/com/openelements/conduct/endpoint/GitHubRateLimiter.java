@@ -0,0 +1,182 @@
+package com.openelements.conduct.endpoint;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Paces the requests to the GitHub API to the remaining budget of the rate limit. GitHub states the budget of every
+ * resource (like {@code core} or {@code search}) in the {@code X-RateLimit-*} headers of each response. Once less than
+ * a tenth of the budget is left, the remaining requests are spread evenly until the reset. If the budget is exhausted,
+ * requests wait for the reset instead of failing, as long as that does not take longer than the maximum wait.
+ */
+public class GitHubRateLimiter {
+
+    private final static Logger log = LoggerFactory.getLogger(GitHubRateLimiter.class);
+
+    private final static String CORE_RESOURCE = "core";
+
+    /**
+     * Share of the budget below which requests are paced.
+     */
+    private final static double PACING_THRESHOLD = 0.1;
+
+    private final long maxWaitMillis;
+
+    private final ConcurrentMap<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    public GitHubRateLimiter(@NonNull final Duration maxWait) {
+        Objects.requireNonNull(maxWait, "maxWait must not be null");
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must not be negative");
+        }
+        this.maxWaitMillis = maxWait.toMillis();
+    }
+
+    /**
+     * Reserves a request to the given URI.
+     *
+     * @return a future that completes once the request can be sent, or fails if the budget is exhausted for longer
+     * than the maximum wait
+     */
+    @NonNull
+    public CompletableFuture<Void> acquire(@NonNull final URI uri) {
+        Objects.requireNonNull(uri, "uri must not be null");
+        final String resource = resourceOf(uri);
+        final Budget budget = budgets.get(resource);
+        final long delay = budget != null ? budget.reserve(System.currentTimeMillis()) : 0;
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (delay > maxWaitMillis) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Rate limit of GitHub API resource '"
+                    + resource + "' is exhausted for " + Duration.ofMillis(delay)));
+        }
+        log.debug("Delaying request to {} by {} ms to stay in the rate limit of '{}'", uri, delay, resource);
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Updates the budget from the headers of a response.
+     */
+    public void update(@NonNull final HttpResponse<?> response) {
+        Objects.requireNonNull(response, "response must not be null");
+        final HttpHeaders headers = response.headers();
+        final OptionalLong limit = headers.firstValueAsLong("X-RateLimit-Limit");
+        final OptionalLong remaining = headers.firstValueAsLong("X-RateLimit-Remaining");
+        final OptionalLong reset = headers.firstValueAsLong("X-RateLimit-Reset");
+        if (limit.isEmpty() || remaining.isEmpty() || reset.isEmpty()) {
+            return;
+        }
+        final String resource = headers.firstValue("X-RateLimit-Resource")
+                .orElseGet(() -> resourceOf(response.request().uri()));
+        budgets.computeIfAbsent(resource, key -> new Budget())
+                .update(limit.getAsLong(), remaining.getAsLong(), TimeUnit.SECONDS.toMillis(reset.getAsLong()));
+    }
+
+    /**
+     * Returns the time to wait before a request that was rejected by the rate limit can be repeated.
+     *
+     * @return the delay in milliseconds, or -1 if the response is no rate limit rejection or the wait would exceed
+     * the maximum wait
+     */
+    public long getRetryDelay(@NonNull final HttpResponse<?> response) {
+        Objects.requireNonNull(response, "response must not be null");
+        final int status = response.statusCode();
+        if (status != 403 && status != 429) {
+            return -1;
+        }
+        final HttpHeaders headers = response.headers();
+        final long delay;
+        // secondary rate limits state a Retry-After, primary rate limits a remaining budget of 0
+        final OptionalLong retryAfter = headers.firstValueAsLong("Retry-After");
+        final OptionalLong reset = headers.firstValueAsLong("X-RateLimit-Reset");
+        if (retryAfter.isPresent()) {
+            delay = TimeUnit.SECONDS.toMillis(retryAfter.getAsLong());
+        } else if (headers.firstValueAsLong("X-RateLimit-Remaining").orElse(-1) == 0 && reset.isPresent()) {
+            delay = Math.max(0, TimeUnit.SECONDS.toMillis(reset.getAsLong()) - System.currentTimeMillis());
+        } else {
+            return -1;
+        }
+        return delay <= maxWaitMillis ? delay : -1;
+    }
+
+    @NonNull
+    static String resourceOf(@NonNull final URI uri) {
+        final String path = uri.getPath();
+        if (path == null) {
+            return CORE_RESOURCE;
+        }
+        if (path.startsWith("/search/")) {
+            return "search";
+        }
+        if (path.startsWith("/graphql")) {
+            return "graphql";
+        }
+        return CORE_RESOURCE;
+    }
+
+    /**
+     * The budget of a resource.
+     */
+    private static final class Budget {
+
+        private long limit;
+
+        /**
+         * The remaining requests, -1 if unknown.
+         */
+        private long remaining = -1;
+
+        private long resetMillis;
+
+        private long nextSlotMillis;
+
+        /**
+         * Reserves a request and returns the time it must wait.
+         */
+        private synchronized long reserve(final long now) {
+            if (remaining < 0) {
+                return 0;
+            }
+            if (now >= resetMillis) {
+                // the budget has been reset, the next response states the new one
+                remaining = -1;
+                return 0;
+            }
+            if (remaining == 0) {
+                return resetMillis - now;
+            }
+            long delay = 0;
+            if (remaining <= limit * PACING_THRESHOLD) {
+                final long slot = Math.max(now, nextSlotMillis);
+                nextSlotMillis = slot + (resetMillis - now) / remaining;
+                delay = slot - now;
+            }
+            remaining--;
+            return delay;
+        }
+
+        private synchronized void update(final long limit, final long remaining, final long resetMillis) {
+            // responses of concurrent requests arrive in any order, within a window the lowest budget is the latest
+            if (resetMillis == this.resetMillis && this.remaining >= 0) {
+                this.remaining = Math.min(this.remaining, remaining);
+            } else {
+                this.remaining = remaining;
+            }
+            this.limit = limit;
+            this.resetMillis = resetMillis;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.openelements.conduct.endpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The response of a (conditional) GET request to the GitHub API.
+ *
+ * @param statusCode the HTTP status code
+ * @param etag       the ETag of the resource, {@code null} if the response has none
+ * @param body       the JSON body, {@code null} if the status is not 200
+ */
+public record GitHubResponse(int statusCode, @Nullable String etag, @Nullable JsonNode body) {
+
+    /**
+     * Returns {@code true} if the resource has been found and the body is available.
+     */
+    public boolean isOk() {
+        return statusCode == 200 && body != null;
+    }
+
+    /**
+     * Returns {@code true} if the resource still matches the ETag of the request. A 304 response does not count
+     * against the rate limit of the GitHub API.
+     */
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+}
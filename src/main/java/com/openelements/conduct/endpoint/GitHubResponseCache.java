@@ -0,0 +1,147 @@
+package com.openelements.conduct.endpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches responses of the GitHub API with their validators, so a repeated read is sent as a conditional request. An
+ * unchanged resource is then answered with a 304 that does not count against the rate limit. The cache is held in a
+ * bounded LRU cache in memory. If a directory is given, entries that are evicted from memory are spilled to it and
+ * loaded back on the next read.
+ */
+public class GitHubResponseCache {
+
+    private final static Logger log = LoggerFactory.getLogger(GitHubResponseCache.class);
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final @Nullable Path directory;
+
+    private final Cache<URI, Entry> entries;
+
+    /**
+     * @param maxEntries the maximum number of entries in memory
+     * @param directory  the directory evicted entries are spilled to, {@code null} to drop them
+     */
+    public GitHubResponseCache(final long maxEntries, @Nullable final Path directory) {
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new RuntimeException("Can not create GitHub response cache directory " + directory, e);
+            }
+        }
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .removalListener((URI uri, Entry entry, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && uri != null && entry != null) {
+                        spill(uri, entry);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the cached response of the URI or {@code null} if none is cached.
+     */
+    public @Nullable Entry get(@NonNull final URI uri) {
+        Objects.requireNonNull(uri, "uri must not be null");
+        final Entry entry = entries.getIfPresent(uri);
+        if (entry != null || directory == null) {
+            return entry;
+        }
+        final Entry spilled = load(uri);
+        if (spilled != null) {
+            entries.put(uri, spilled);
+        }
+        return spilled;
+    }
+
+    /**
+     * Caches the response of the URI. Responses without validators can not be revalidated and are not cached.
+     */
+    public void put(@NonNull final URI uri, @NonNull final Entry entry) {
+        Objects.requireNonNull(uri, "uri must not be null");
+        Objects.requireNonNull(entry, "entry must not be null");
+        if (entry.etag() != null || entry.lastModified() != null) {
+            entries.put(uri, entry);
+        }
+    }
+
+    private @Nullable Path getFile(@NonNull final URI uri) {
+        if (directory == null) {
+            return null;
+        }
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    private void spill(@NonNull final URI uri, @NonNull final Entry entry) {
+        final Path file = getFile(uri);
+        if (file == null) {
+            return;
+        }
+        try {
+            final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            OBJECT_MAPPER.writeValue(tempFile.toFile(), new SpilledEntry(uri.toString(), entry));
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            log.debug("Can not spill cached GitHub response of {} to {}", uri, file, e);
+        }
+    }
+
+    private @Nullable Entry load(@NonNull final URI uri) {
+        final Path file = getFile(uri);
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            final SpilledEntry spilled = OBJECT_MAPPER.readValue(file.toFile(), SpilledEntry.class);
+            // the entry lives in memory again and is spilled anew once it is evicted
+            Files.deleteIfExists(file);
+            return uri.toString().equals(spilled.uri()) ? spilled.entry() : null;
+        } catch (Exception e) {
+            log.debug("Can not load cached GitHub response of {} from {}", uri, file, e);
+            return null;
+        }
+    }
+
+    /**
+     * A cached response.
+     *
+     * @param etag         the ETag of the response
+     * @param lastModified the Last-Modified header of the response
+     * @param body         the body of the response
+     */
+    public record Entry(@Nullable String etag, @Nullable String lastModified, @NonNull String body) {
+
+        public Entry {
+            Objects.requireNonNull(body, "body must not be null");
+        }
+    }
+
+    private record SpilledEntry(@NonNull String uri, @NonNull Entry entry) {
+    }
+}
@@ -1,35 +1,24 @@
 package com.openelements.conduct.endpoint;
 
-import static com.openelements.conduct.endpoint.GitHubWebhookEventTypes.DISCUSSION_COMMENT_CREATED;
-import static com.openelements.conduct.endpoint.GitHubWebhookEventTypes.ISSUE_COMMENT_CREATED;
-import static com.openelements.conduct.endpoint.GitHubWebhookEventTypes.ISSUE_CREATED;
-import static com.openelements.conduct.endpoint.GitHubWebhookEventTypes.PR_CREATED;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getAction;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getComment;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getCommentUrl;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getDiscussionText;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getDiscussionTitle;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getDiscussionUrl;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getIssueText;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getIssueTitle;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getIssueUrl;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getPullRequestText;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getPullRequestTitle;
-import static com.openelements.conduct.endpoint.GitHubWebhookJsonParser.getPullRequestUrl;
-
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.openelements.conduct.WorkflowHandler;
+import com.openelements.conduct.MessageDispatcher;
 import com.openelements.conduct.data.Message;
-import java.net.URI;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.Optional;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -39,57 +28,69 @@ public class GitHubWebhookEndpoint {
 
     public static final String HUB_EVENT = "X-GitHub-Event";
 
-    private final WorkflowHandler workflowHandler;
+    public static final String HUB_DELIVERY = "X-GitHub-Delivery";
+
+    private final MessageDispatcher messageDispatcher;
+
+    private final WebhookDeduplicator webhookDeduplicator;
+
+    private final JsonFactory jsonFactory;
 
     @Autowired
-    public GitHubWebhookEndpoint(final @NonNull WorkflowHandler workflowHandler) {
-        this.workflowHandler = Objects.requireNonNull(workflowHandler, "workflowHandler must not be null");
+    public GitHubWebhookEndpoint(final @NonNull MessageDispatcher messageDispatcher,
+            final @NonNull WebhookDeduplicator webhookDeduplicator,
+            final @NonNull ObjectMapper objectMapper) {
+        this.messageDispatcher = Objects.requireNonNull(messageDispatcher, "messageDispatcher must not be null");
+        this.webhookDeduplicator = Objects.requireNonNull(webhookDeduplicator,
+                "webhookDeduplicator must not be null");
+        this.jsonFactory = Objects.requireNonNull(objectMapper, "objectMapper must not be null").getFactory();
     }
 
     @PostMapping("/github/webhook")
-    public void onGitHubEvent(@RequestHeader(HUB_EVENT) String eventType, @RequestBody String body) {
-        if (log.isDebugEnabled()) {
-            log.debug("Received GitHub event of type '{}': {}", eventType, body);
-        } else {
-            log.info("Received GitHub event of type '{}'", eventType);
+    public ResponseEntity<Void> onGitHubEvent(@RequestHeader(HUB_EVENT) String eventType,
+            @RequestHeader(value = HUB_DELIVERY, required = false) String deliveryId, InputStream body) {
+        return handleEvent(eventType, deliveryId, body);
+    }
+
+    /**
+     * Handles webhooks that are configured with the {@code application/x-www-form-urlencoded} content type. GitHub
+     * sends the JSON of the event as the {@code payload} parameter.
+     */
+    @PostMapping(value = "/github/webhook", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<Void> onGitHubFormEvent(@RequestHeader(HUB_EVENT) String eventType,
+            @RequestHeader(value = HUB_DELIVERY, required = false) String deliveryId,
+            @RequestParam("payload") String payload) {
+        return handleEvent(eventType, deliveryId, new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ResponseEntity<Void> handleEvent(final String eventType, final String deliveryId,
+            final InputStream body) {
+        final Optional<String> payloadField = GitHubWebhookEventTypes.payloadFieldOf(eventType);
+        if (payloadField.isEmpty()) {
+            log.info("Ignoring GitHub event of unsupported type '{}'", eventType);
+            return ResponseEntity.ok().build();
         }
+        log.info("Received GitHub event of type '{}' (delivery {})", eventType, deliveryId);
         try {
-            final ObjectMapper objectMapper = new ObjectMapper();
-            final JsonNode jsonNode = objectMapper.readTree(body);
-            final String action = getAction(jsonNode);
-            GitHubWebhookEventTypes.of(eventType, action).ifPresent(eventTypeEnum -> {
-                if (eventTypeEnum == GitHubWebhookEventTypes.DISCUSSION_CREATED) {
-                    final String title = getDiscussionTitle(jsonNode);
-                    final String content = getDiscussionText(jsonNode);
-                    final URI url = getDiscussionUrl(jsonNode);
-                    final Message message = new Message(title, content, url);
-                    workflowHandler.handleMessage(message);
-                } else if (eventTypeEnum == DISCUSSION_COMMENT_CREATED) {
-                    final String content = getComment(jsonNode);
-                    final URI url = getCommentUrl(jsonNode);
-                    final Message message = new Message(content, url);
-                    workflowHandler.handleMessage(message);
-                } else if (eventTypeEnum == ISSUE_CREATED) {
-                    final String title = getIssueTitle(jsonNode);
-                    final String content = getIssueText(jsonNode);
-                    final URI url = getIssueUrl(jsonNode);
-                    final Message message = new Message(title, content, url);
-                    workflowHandler.handleMessage(message);
-                } else if (eventTypeEnum == ISSUE_COMMENT_CREATED) {
-                    final String content = getComment(jsonNode);
-                    final URI url = getCommentUrl(jsonNode);
-                    final Message message = new Message(content, url);
-                    workflowHandler.handleMessage(message);
-                } else if (eventTypeEnum == PR_CREATED) {
-                    final String title = getPullRequestTitle(jsonNode);
-                    final String content = getPullRequestText(jsonNode);
-                    final URI url = getPullRequestUrl(jsonNode);
-                    final Message message = new Message(title, content, url);
-                    workflowHandler.handleMessage(message);
-                } else {
-                    log.warn("Unhandled GitHub event type: {} - {}", eventType, action);
-                }
-            });
+            final GitHubWebhookPayload payload = GitHubWebhookJsonParser.parse(jsonFactory, body, payloadField.get());
+            log.debug("Parsed GitHub event of type '{}': {}", eventType, payload);
+            final String action = payload.getAction();
+            final Optional<GitHubWebhookEventTypes> type = GitHubWebhookEventTypes.of(eventType, action);
+            if (type.isEmpty()) {
+                log.debug("Ignoring GitHub event of type '{}' with action '{}'", eventType, action);
+                return ResponseEntity.ok().build();
+            }
+            final Message message = new Message(payload.title(), payload.getText(), payload.getUrl(),
+                    payload.repository(), payload.author());
+            if (webhookDeduplicator.isDuplicate(deliveryId, message.link())) {
+                return ResponseEntity.ok().build();
+            }
+            if (!messageDispatcher.dispatch(message)) {
+                webhookDeduplicator.release(deliveryId, message.link());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+            webhookDeduplicator.confirm(deliveryId, message.link());
+            return ResponseEntity.accepted().build();
         } catch (Exception e) {
             throw new RuntimeException("Error in Github webhook", e);
         }
@@ -4,19 +4,22 @@ import java.util.Optional;
 
 public enum GitHubWebhookEventTypes {
 
-    PR_CREATED("pull_request", "opened"),
-    ISSUE_CREATED("issues", "opened"),
-    ISSUE_COMMENT_CREATED("issue_comment", "created"),
-    DISCUSSION_CREATED("discussion", "created"),
-    DISCUSSION_COMMENT_CREATED("discussion_comment", "created");
+    PR_CREATED("pull_request", "opened", "pull_request"),
+    ISSUE_CREATED("issues", "opened", "issue"),
+    ISSUE_COMMENT_CREATED("issue_comment", "created", "comment"),
+    DISCUSSION_CREATED("discussion", "created", "discussion"),
+    DISCUSSION_COMMENT_CREATED("discussion_comment", "created", "comment");
 
     private final String eventType;
 
     private final String action;
 
-    GitHubWebhookEventTypes(final String eventType, final String action) {
+    private final String payloadField;
+
+    GitHubWebhookEventTypes(final String eventType, final String action, final String payloadField) {
         this.eventType = eventType;
         this.action = action;
+        this.payloadField = payloadField;
     }
 
     public String getEventType() {
@@ -27,6 +30,13 @@ public enum GitHubWebhookEventTypes {
         return action;
     }
 
+    /**
+     * Returns the name of the top-level JSON object in the webhook payload that contains the text to check.
+     */
+    public String getPayloadField() {
+        return payloadField;
+    }
+
     public static Optional<GitHubWebhookEventTypes> of(final String eventType,
             final String action) {
         for (GitHubWebhookEventTypes type : GitHubWebhookEventTypes.values()) {
@@ -36,4 +46,17 @@ public enum GitHubWebhookEventTypes {
         }
         return Optional.empty();
     }
+
+    /**
+     * Returns the payload field for the given {@code X-GitHub-Event} header value. An empty result means that the event
+     * type is not supported and the payload does not need to be read at all.
+     */
+    public static Optional<String> payloadFieldOf(final String eventType) {
+        for (GitHubWebhookEventTypes type : GitHubWebhookEventTypes.values()) {
+            if (type.getEventType().equals(eventType)) {
+                return Optional.of(type.getPayloadField());
+            }
+        }
+        return Optional.empty();
+    }
 }
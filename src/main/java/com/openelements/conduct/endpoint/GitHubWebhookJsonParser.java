@@ -1,136 +1,86 @@
 package com.openelements.conduct.endpoint;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import java.net.URI;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Objects;
 import org.jspecify.annotations.NonNull;
 
+/**
+ * Extracts the fields of a {@link GitHubWebhookPayload} in a single pass over the webhook JSON. Only the
+ * {@code action}, the full name of the {@code repository} and the fields of the given payload object are read, all
+ * other content (sender, reactions, ...) is skipped without being materialized.
+ */
 public class GitHubWebhookJsonParser {
 
-    static URI getIssueUrl(JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("issue") && jsonNode.get("issue").has("html_url")) {
-            try {
-                return new URI(jsonNode.get("issue").get("html_url").asText());
-            } catch (Exception e) {
-                throw new RuntimeException("Error parsing URL", e);
-            }
-        }
-        throw new IllegalArgumentException("url not found in JSON");
-    }
-
-    static String getIssueTitle(JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("issue") && jsonNode.get("issue").has("title")) {
-            return jsonNode.get("issue").get("title").asText();
-        }
-        throw new IllegalArgumentException("title not found in JSON");
-    }
-
-    static String getIssueText(JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("issue") && jsonNode.get("issue").has("body")) {
-            return jsonNode.get("issue").get("body").asText();
-        }
-        throw new IllegalArgumentException("title not found in JSON");
-    }
-
-    static String getAction(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("action")) {
-            return jsonNode.get("action").asText();
-        }
-        throw new IllegalArgumentException("Action not found in JSON");
-    }
-
-    static String getDiscussionTitle(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("discussion") && jsonNode.get("discussion").has("title")) {
-            return jsonNode.get("discussion").get("title").asText();
-        }
-        throw new IllegalArgumentException("title not found in JSON");
-    }
-
-    static String getDiscussionText(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("discussion") && jsonNode.get("discussion").has("body")) {
-            return jsonNode.get("discussion").get("body").asText();
-        }
-        throw new IllegalArgumentException("comment not found in JSON");
+    private GitHubWebhookJsonParser() {
     }
 
-    static String getComment(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("comment") && jsonNode.get("comment").has("body")) {
-            return jsonNode.get("comment").get("body").asText();
-        }
-        throw new IllegalArgumentException("comment not found in JSON");
-    }
-
-    static URI getDiscussionUrl(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("discussion") && jsonNode.get("discussion").has("html_url")) {
-            try {
-                return new URI(jsonNode.get("discussion").get("html_url").asText());
-            } catch (Exception e) {
-                throw new RuntimeException("Error parsing discussion comment URL", e);
+    static GitHubWebhookPayload parse(final @NonNull JsonFactory jsonFactory, final @NonNull InputStream inputStream,
+            final @NonNull String payloadField) throws IOException {
+        Objects.requireNonNull(jsonFactory, "jsonFactory must not be null");
+        Objects.requireNonNull(inputStream, "inputStream must not be null");
+        Objects.requireNonNull(payloadField, "payloadField must not be null");
+        try (final JsonParser parser = jsonFactory.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Webhook payload is not a JSON object");
             }
-        }
-        throw new IllegalArgumentException("url not found in JSON");
-    }
-
-    static URI getCommentUrl(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("comment") && jsonNode.get("comment").has("html_url")) {
-            try {
-                return new URI(jsonNode.get("comment").get("html_url").asText());
-            } catch (Exception e) {
-                throw new RuntimeException("Error parsing discussion comment URL", e);
+            String action = null;
+            String repository = null;
+            final String[] payload = new String[4];
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken token = parser.nextToken();
+                if ("action".equals(name)) {
+                    action = parser.getValueAsString();
+                } else if ("repository".equals(name) && token == JsonToken.START_OBJECT) {
+                    repository = readField(parser, "full_name");
+                } else if (payloadField.equals(name) && token == JsonToken.START_OBJECT) {
+                    readPayloadObject(parser, payload);
+                } else {
+                    parser.skipChildren();
+                }
             }
+            return new GitHubWebhookPayload(action, payload[0], payload[1], payload[2], payload[3], repository);
         }
-        throw new IllegalArgumentException("url not found in JSON");
     }
 
-    static URI getPullRequestUrl(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("pull_request") && jsonNode.get("pull_request").has("html_url")) {
-            try {
-                return new URI(jsonNode.get("pull_request").get("html_url").asText());
-            } catch (Exception e) {
-                throw new RuntimeException("Error parsing discussion comment URL", e);
+    private static void readPayloadObject(final @NonNull JsonParser parser, final @NonNull String[] payload)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            switch (name) {
+                case "title" -> payload[0] = parser.getValueAsString();
+                case "body" -> payload[1] = parser.getValueAsString();
+                case "html_url" -> payload[2] = parser.getValueAsString();
+                case "user" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        payload[3] = readField(parser, "login");
+                    }
+                }
+                default -> parser.skipChildren();
             }
         }
-        throw new IllegalArgumentException("url not found in JSON");
-    }
-
-    static String getPullRequestTitle(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("pull_request") && jsonNode.get("pull_request").has("title")) {
-            return jsonNode.get("pull_request").get("title").asText();
-        }
-        throw new IllegalArgumentException("title not found in JSON");
     }
 
-    static String getPullRequestText(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        if (jsonNode.has("pull_request") && jsonNode.get("pull_request").has("body")) {
-            return jsonNode.get("pull_request").get("body").asText();
+    /**
+     * Reads a single value of the current object and skips all other content of it.
+     */
+    private static String readField(final @NonNull JsonParser parser, final @NonNull String field)
+            throws IOException {
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            if (field.equals(name)) {
+                value = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
         }
-        throw new IllegalArgumentException("comment not found in JSON");
-    }
-
-    static String getPullRequestAuthor(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        return jsonNode.get("pull_request").get("user").get("login").asText();
-    }
-
-    static String getIssueAuthor(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        return jsonNode.get("issue").get("user").get("login").asText();
-    }
-
-    static String getDiscussionAuthor(final @NonNull JsonNode jsonNode) {
-        Objects.requireNonNull(jsonNode, "jsonNode must not be null");
-        return jsonNode.get("discussion").get("user").get("login").asText();
+        return value;
     }
 }
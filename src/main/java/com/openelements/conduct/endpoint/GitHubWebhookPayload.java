@@ -0,0 +1,45 @@
+package com.openelements.conduct.endpoint;
+
+import java.net.URI;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The fields of a GitHub webhook payload that are needed to check a message.
+ *
+ * @param action  the action of the event (like {@code opened} or {@code created})
+ * @param title   the title of the issue, pull request or discussion, {@code null} for comments
+ * @param body    the text of the issue, pull request, discussion or comment
+ * @param htmlUrl the link to the issue, pull request, discussion or comment
+ * @param author     the login of the user that created the issue, pull request, discussion or comment
+ * @param repository the full name ({@code owner/name}) of the repository of the event
+ */
+public record GitHubWebhookPayload(@Nullable String action, @Nullable String title, @Nullable String body,
+                                   @Nullable String htmlUrl, @Nullable String author, @Nullable String repository) {
+
+    @NonNull
+    public String getAction() {
+        if (action == null) {
+            throw new IllegalArgumentException("Action not found in JSON");
+        }
+        return action;
+    }
+
+    @NonNull
+    public String getText() {
+        // GitHub sends 'null' for issues and pull requests without a description
+        return body == null ? "" : body;
+    }
+
+    @NonNull
+    public URI getUrl() {
+        if (htmlUrl == null) {
+            throw new IllegalArgumentException("url not found in JSON");
+        }
+        try {
+            return new URI(htmlUrl);
+        } catch (Exception e) {
+            throw new RuntimeException("Error parsing URL", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.openelements.conduct.endpoint;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects webhook deliveries that have already been accepted. GitHub redelivers events on timeouts and deliveries can
+ * be triggered manually, and each of them would otherwise result in another LLM call and another notification.
+ * Deliveries are identified by the {@code X-GitHub-Delivery} header and by the link of the message. Recently seen keys
+ * are held in a bounded, time-expiring LRU cache. An optional {@link ExpiringBloomFilter} remembers keys that have
+ * already been evicted from the cache.
+ */
+public class WebhookDeduplicator {
+
+    private final static Logger log = LoggerFactory.getLogger(WebhookDeduplicator.class);
+
+    private final Cache<String, Boolean> recentKeys;
+
+    private final @Nullable ExpiringBloomFilter bloomFilter;
+
+    public WebhookDeduplicator(final long maxEntries, @NonNull final Duration timeToLive,
+            @Nullable final ExpiringBloomFilter bloomFilter) {
+        Objects.requireNonNull(timeToLive, "timeToLive must not be null");
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(timeToLive)
+                .build();
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Checks if the delivery has been seen before and marks it as seen otherwise. A delivery that is marked must
+     * either be {@link #confirm(String, URI) confirmed} or {@link #release(String, URI) released}.
+     *
+     * @param deliveryId the value of the {@code X-GitHub-Delivery} header, can be null
+     * @param link       the link of the message
+     * @return {@code true} if the delivery is a duplicate and should be dropped
+     */
+    public boolean isDuplicate(@Nullable final String deliveryId, @NonNull final URI link) {
+        Objects.requireNonNull(link, "link must not be null");
+        final String deliveryKey = deliveryKey(deliveryId);
+        final String linkKey = linkKey(link);
+        if (deliveryKey != null && seen(deliveryKey)) {
+            log.info("Dropping redelivery {} of {}", deliveryId, link);
+            return true;
+        }
+        if (seen(linkKey)) {
+            if (deliveryKey != null) {
+                recentKeys.invalidate(deliveryKey);
+            }
+            log.info("Dropping duplicate delivery {} of {}", deliveryId, link);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Confirms that the delivery has been accepted. Its keys are added to the Bloom filter (if configured) so that the
+     * delivery is still detected after it has been evicted from the LRU cache.
+     */
+    public void confirm(@Nullable final String deliveryId, @NonNull final URI link) {
+        Objects.requireNonNull(link, "link must not be null");
+        if (bloomFilter != null) {
+            final String deliveryKey = deliveryKey(deliveryId);
+            if (deliveryKey != null) {
+                bloomFilter.put(deliveryKey);
+            }
+            bloomFilter.put(linkKey(link));
+        }
+    }
+
+    /**
+     * Releases a delivery that could not be accepted, so that a redelivery of it is handled again.
+     */
+    public void release(@Nullable final String deliveryId, @NonNull final URI link) {
+        Objects.requireNonNull(link, "link must not be null");
+        final String deliveryKey = deliveryKey(deliveryId);
+        if (deliveryKey != null) {
+            recentKeys.invalidate(deliveryKey);
+        }
+        recentKeys.invalidate(linkKey(link));
+    }
+
+    private boolean seen(@NonNull final String key) {
+        if (recentKeys.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            return true;
+        }
+        if (bloomFilter != null && bloomFilter.mightContain(key)) {
+            return true;
+        }
+        return false;
+    }
+
+    private static @Nullable String deliveryKey(@Nullable final String deliveryId) {
+        if (deliveryId == null || deliveryId.isBlank()) {
+            return null;
+        }
+        return "delivery:" + deliveryId;
+    }
+
+    private static @NonNull String linkKey(@NonNull final URI link) {
+        return "link:" + link;
+    }
+}
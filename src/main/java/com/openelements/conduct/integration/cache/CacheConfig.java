@@ -0,0 +1,48 @@
+package com.openelements.conduct.integration.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@ConditionalOnProperty(
+        name = "guardian.check.cache.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class CacheConfig {
+
+    @Value("${guardian.integration.openai.model:}")
+    private String model;
+
+    @Value("${guardian.check.cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${guardian.check.cache.ttl:7d}")
+    private Duration timeToLive;
+
+    @Value("${guardian.check.cache.snapshot-file:}")
+    private String snapshotFile;
+
+    @Bean
+    @Order(500)
+    ConductCheckerDecorator cachingConductCheckerDecorator(CodeOfConductProvider codeOfConductProvider,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        final Path snapshot = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+        return delegate -> {
+            final CachingConductChecker checker = new CachingConductChecker(delegate, codeOfConductProvider, model,
+                    maxEntries, timeToLive, snapshot, objectMapper);
+            CaffeineCacheMetrics.monitor(meterRegistry, checker.getCache(), "verdicts");
+            return checker;
+        };
+    }
+}
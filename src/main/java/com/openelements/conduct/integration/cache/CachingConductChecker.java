@@ -0,0 +1,187 @@
+package com.openelements.conduct.integration.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.data.ViolationState;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} that caches verdicts by content. The key is a hash of the normalized title and text of the
+ * message combined with the model and the version of the Code of Conduct, so a verdict is only reused as long as both
+ * stay the same. The cache is bounded (Caffeine uses W-TinyLFU eviction) and every entry expires after the given time
+ * to live. If a snapshot file is given the cache is loaded from it at startup and written to it on {@link #close()}.
+ */
+public class CachingConductChecker implements ConductChecker, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(CachingConductChecker.class);
+
+    private final ConductChecker delegate;
+
+    private final CodeOfConductProvider codeOfConductProvider;
+
+    private final String model;
+
+    private final long timeToLiveMillis;
+
+    private final Cache<String, CachedVerdict> cache;
+
+    private final @Nullable Path snapshotFile;
+
+    private final ObjectMapper objectMapper;
+
+    public CachingConductChecker(@NonNull final ConductChecker delegate,
+            @NonNull final CodeOfConductProvider codeOfConductProvider,
+            @NonNull final String model,
+            final long maximumSize,
+            @NonNull final Duration timeToLive,
+            @Nullable final Path snapshotFile,
+            @NonNull final ObjectMapper objectMapper) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.codeOfConductProvider = Objects.requireNonNull(codeOfConductProvider,
+                "codeOfConductProvider must not be null");
+        this.model = Objects.requireNonNull(model, "model must not be null");
+        this.timeToLiveMillis = Objects.requireNonNull(timeToLive, "timeToLive must not be null").toMillis();
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        this.snapshotFile = snapshotFile;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new VerdictExpiry(timeToLiveMillis))
+                .recordStats()
+                .build();
+        loadSnapshot();
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final String key = createKey(message);
+        final CachedVerdict cached = cache.getIfPresent(key);
+        if (cached != null) {
+            log.debug("Using cached verdict {} for {}", cached.state(), message.link());
+            return CompletableFuture.completedFuture(new CheckResult(message, cached.state(), cached.reason(),
+                    cached.confidence(), cached.decidedBy()));
+        }
+        final CompletableFuture<CheckResult> checked = delegate.checkAsync(message);
+        return Futures.propagateCancellation(checked.thenApply(result -> {
+            cache.put(key, new CachedVerdict(result.state(), result.reason(), result.confidence(),
+                    result.decidedBy(), System.currentTimeMillis()));
+            return result;
+        }), checked);
+    }
+
+    @NonNull
+    public Cache<String, CachedVerdict> getCache() {
+        return cache;
+    }
+
+    @NonNull
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private String createKey(@NonNull final Message message) {
+        return MessageKey.of(message) + ':' + model + ':'
+                + codeOfConductProvider.forMessage(message).getVersion(TextfileType.MARKDOWN);
+    }
+
+    private void loadSnapshot() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            final List<SnapshotEntry> entries = objectMapper.readValue(snapshotFile.toFile(),
+                    new TypeReference<List<SnapshotEntry>>() {});
+            final long now = System.currentTimeMillis();
+            entries.stream()
+                    .filter(entry -> now - entry.createdAt() < timeToLiveMillis)
+                    .forEach(entry -> cache.put(entry.key(),
+                            new CachedVerdict(entry.state(), entry.reason(), entry.confidence(), entry.decidedBy(),
+                                    entry.createdAt())));
+            log.info("Loaded {} cached verdicts from {}", cache.estimatedSize(), snapshotFile);
+        } catch (Exception e) {
+            log.warn("Can not load verdict cache snapshot from {}", snapshotFile, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        final CacheStats stats = cache.stats();
+        log.info("Verdict cache: {} hits, {} misses ({}% hit rate)", stats.hitCount(), stats.missCount(),
+                Math.round(stats.hitRate() * 100));
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            final List<SnapshotEntry> entries = new ArrayList<>();
+            for (Map.Entry<String, CachedVerdict> entry : cache.asMap().entrySet()) {
+                final CachedVerdict verdict = entry.getValue();
+                entries.add(new SnapshotEntry(entry.getKey(), verdict.state(), verdict.reason(),
+                        verdict.confidence(), verdict.decidedBy(), verdict.createdAt()));
+            }
+            final Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            final Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), entries);
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Stored {} cached verdicts in {}", entries.size(), snapshotFile);
+        } catch (Exception e) {
+            log.warn("Can not store verdict cache snapshot in {}", snapshotFile, e);
+        }
+    }
+
+    public record CachedVerdict(@NonNull ViolationState state, @NonNull String reason, @Nullable Double confidence,
+                                @Nullable String decidedBy, long createdAt) {
+    }
+
+    record SnapshotEntry(String key, ViolationState state, String reason, Double confidence, String decidedBy,
+                         long createdAt) {
+    }
+
+    private record VerdictExpiry(long timeToLiveMillis) implements Expiry<String, CachedVerdict> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedVerdict value, long currentTime) {
+            final long age = Math.max(0, System.currentTimeMillis() - value.createdAt());
+            return Duration.ofMillis(Math.max(0, timeToLiveMillis - age)).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedVerdict value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedVerdict value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
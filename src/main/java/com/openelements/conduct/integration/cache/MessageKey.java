@@ -0,0 +1,61 @@
+package com.openelements.conduct.integration.cache;
+
+import com.openelements.conduct.data.Message;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Creates content keys for messages. Two messages that only differ in case, whitespace or Unicode representation get
+ * the same key.
+ */
+public final class MessageKey {
+
+    private MessageKey() {
+    }
+
+    /**
+     * Returns a hex encoded SHA-256 hash of the normalized title and text of the message.
+     */
+    @NonNull
+    public static String of(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(normalize(message.title()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(message.message()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException("Can not create key for message " + message.link(), e);
+        }
+    }
+
+    @NonNull
+    static String normalize(@Nullable final String text) {
+        if (text == null) {
+            return "";
+        }
+        final String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        final StringBuilder builder = new StringBuilder(normalized.length());
+        boolean whitespace = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            final char c = normalized.charAt(i);
+            if (Character.isWhitespace(c)) {
+                whitespace = builder.length() > 0;
+            } else {
+                if (whitespace) {
+                    builder.append(' ');
+                    whitespace = false;
+                }
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package com.openelements.conduct.integration.classifier;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} stage with an {@link OnlineClassifier} that learns from the verdicts of the delegate (the
+ * LLM). Every verdict of the delegate is a training example.
+ * <p>
+ * In {@link Mode#SHADOW} the classifier never decides. It only records how often the verdict of the delegate agreed
+ * when the classifier was confident that a message is harmless. In {@link Mode#ACTIVE} the classifier answers those
+ * messages itself once it has seen {@code minExamples} examples and the agreement rate reached {@code minAgreement}.
+ * A share of {@code auditRate} of those messages is still sent to the delegate to keep measuring the agreement.
+ * The classifier never decides that a message violates the Code of Conduct.
+ */
+public class ClassifierConductChecker implements ConductChecker, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(ClassifierConductChecker.class);
+
+    /**
+     * Minimum number of confident predictions that must be compared with the delegate before the agreement rate is
+     * trusted.
+     */
+    private final static int MIN_AGREEMENT_SAMPLES = 200;
+
+    private final static int AGREEMENT_WINDOW = 2000;
+
+    public enum Mode {
+        SHADOW, ACTIVE
+    }
+
+    private final ConductChecker delegate;
+
+    private final OnlineClassifier classifier;
+
+    private final Mode mode;
+
+    private final double threshold;
+
+    private final long minExamples;
+
+    private final double minAgreement;
+
+    private final double auditRate;
+
+    private final @Nullable Path modelFile;
+
+    private final int saveInterval;
+
+    private final AtomicBoolean saving = new AtomicBoolean();
+
+    private final boolean[] agreements = new boolean[AGREEMENT_WINDOW];
+
+    private int agreementCount;
+
+    private int agreed;
+
+    private final Counter decided;
+
+    private final Counter delegated;
+
+    public ClassifierConductChecker(@NonNull final ConductChecker delegate, @NonNull final OnlineClassifier classifier,
+            @NonNull final Mode mode, final double threshold, final long minExamples, final double minAgreement,
+            final double auditRate, @Nullable final Path modelFile, final int saveInterval,
+            @NonNull final MeterRegistry meterRegistry) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.classifier = Objects.requireNonNull(classifier, "classifier must not be null");
+        this.mode = Objects.requireNonNull(mode, "mode must not be null");
+        if (threshold <= 0.5 || threshold >= 1) {
+            throw new IllegalArgumentException("threshold must be between 0.5 and 1");
+        }
+        this.threshold = threshold;
+        this.minExamples = minExamples;
+        this.minAgreement = minAgreement;
+        this.auditRate = auditRate;
+        this.modelFile = modelFile;
+        this.saveInterval = Math.max(1, saveInterval);
+        Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.decided = Counter.builder("guardian.classifier.messages").tag("outcome", "decided")
+                .register(meterRegistry);
+        this.delegated = Counter.builder("guardian.classifier.messages").tag("outcome", "delegated")
+                .register(meterRegistry);
+        Gauge.builder("guardian.classifier.agreement", this, ClassifierConductChecker::getAgreementRate)
+                .description("Share of confident harmless predictions the LLM agreed with")
+                .register(meterRegistry);
+        Gauge.builder("guardian.classifier.examples", classifier, OnlineClassifier::getExamples)
+                .description("Verdicts the classifier has been trained with")
+                .register(meterRegistry);
+        if (modelFile != null) {
+            try {
+                if (classifier.load(modelFile)) {
+                    log.info("Loaded classifier trained with {} verdicts from {}", classifier.getExamples(),
+                            modelFile);
+                }
+            } catch (Exception e) {
+                log.warn("Can not load classifier from {}", modelFile, e);
+            }
+        }
+        log.info("Classifier runs in {} mode", mode);
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final HashedFeatures features = HashedFeatures.of(message, classifier.getDimensions());
+        if (features.isEmpty()) {
+            return delegate.checkAsync(message);
+        }
+        final double harmless = 1 - classifier.predict(features);
+        final boolean confident = harmless >= threshold;
+        if (confident && mode == Mode.ACTIVE && isTrusted() && ThreadLocalRandom.current().nextDouble() >= auditRate) {
+            decided.increment();
+            return CompletableFuture.completedFuture(new CheckResult(message, ViolationState.NONE,
+                    "Classified as harmless by the local classifier (confidence %.3f)".formatted(harmless),
+                    harmless, "classifier"));
+        }
+        delegated.increment();
+        final CompletableFuture<CheckResult> checked = delegate.checkAsync(message);
+        return Futures.propagateCancellation(checked.thenApply(result -> {
+            if (confident) {
+                recordAgreement(result.state() == ViolationState.NONE);
+            }
+            classifier.train(features, result.state() != ViolationState.NONE);
+            if (classifier.getExamples() % saveInterval == 0) {
+                saveInBackground();
+            }
+            return result;
+        }), checked);
+    }
+
+    private synchronized void recordAgreement(final boolean agreement) {
+        final int slot = agreementCount % AGREEMENT_WINDOW;
+        if (agreementCount >= AGREEMENT_WINDOW && agreements[slot]) {
+            agreed--;
+        }
+        agreements[slot] = agreement;
+        if (agreement) {
+            agreed++;
+        }
+        agreementCount++;
+    }
+
+    /**
+     * Returns the share of the recent confident harmless predictions the delegate agreed with, or -1 if there has
+     * been no such prediction.
+     */
+    public synchronized double getAgreementRate() {
+        final int samples = Math.min(agreementCount, AGREEMENT_WINDOW);
+        return samples == 0 ? -1 : (double) agreed / samples;
+    }
+
+    private synchronized boolean isTrusted() {
+        return classifier.getExamples() >= minExamples
+                && Math.min(agreementCount, AGREEMENT_WINDOW) >= MIN_AGREEMENT_SAMPLES
+                && getAgreementRate() >= minAgreement;
+    }
+
+    private void saveInBackground() {
+        if (modelFile != null && saving.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("classifier-save").start(() -> {
+                try {
+                    save();
+                } finally {
+                    saving.set(false);
+                }
+            });
+        }
+    }
+
+    private void save() {
+        if (modelFile == null) {
+            return;
+        }
+        try {
+            classifier.save(modelFile);
+            log.debug("Stored classifier trained with {} verdicts in {}", classifier.getExamples(), modelFile);
+        } catch (Exception e) {
+            log.warn("Can not store classifier in {}", modelFile, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        log.info("Classifier agreement rate with the LLM: {} ({} verdicts learned)", getAgreementRate(),
+                classifier.getExamples());
+        save();
+    }
+}
@@ -0,0 +1,52 @@
+package com.openelements.conduct.integration.classifier;
+
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import com.openelements.conduct.integration.classifier.ClassifierConductChecker.Mode;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@ConditionalOnProperty(
+        name = "guardian.check.classifier.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class ClassifierConfig {
+
+    @Value("${guardian.check.classifier.mode:SHADOW}")
+    private Mode mode;
+
+    @Value("${guardian.check.classifier.dimensions:262144}")
+    private int dimensions;
+
+    @Value("${guardian.check.classifier.threshold:0.98}")
+    private double threshold;
+
+    @Value("${guardian.check.classifier.min-examples:5000}")
+    private long minExamples;
+
+    @Value("${guardian.check.classifier.min-agreement:0.99}")
+    private double minAgreement;
+
+    @Value("${guardian.check.classifier.audit-rate:0.05}")
+    private double auditRate;
+
+    @Value("${guardian.check.classifier.model-file:}")
+    private String modelFile;
+
+    @Value("${guardian.check.classifier.save-interval:100}")
+    private int saveInterval;
+
+    @Bean
+    @Order(700)
+    ConductCheckerDecorator classifierConductCheckerDecorator(MeterRegistry meterRegistry) {
+        final Path file = modelFile.isBlank() ? null : Path.of(modelFile);
+        return delegate -> new ClassifierConductChecker(delegate, new OnlineClassifier(dimensions), mode, threshold,
+                minExamples, minAgreement, auditRate, file, saveInterval, meterRegistry);
+    }
+}
@@ -0,0 +1,100 @@
+package com.openelements.conduct.integration.classifier;
+
+import com.openelements.conduct.data.Message;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Sparse features of a message for the {@link OnlineClassifier}: words, word pairs and character 4-grams of the
+ * lower case text are hashed into a fixed number of dimensions (the "hashing trick"). Character n-grams make the
+ * features robust against obfuscated words. All features have the same value, normalized to a vector of length 1.
+ *
+ * @param indices the indices of the features, sorted and distinct
+ * @param value   the value of each feature
+ */
+public record HashedFeatures(int @NonNull [] indices, float value) {
+
+    private final static int WORD_SEED = 0x2f0b3c1d;
+
+    private final static int PAIR_SEED = 0x7a4e9d35;
+
+    private final static int NGRAM_SEED = 0x5c1f8a27;
+
+    private final static int NGRAM_LENGTH = 4;
+
+    /**
+     * Returns the features of the title and text of the message.
+     *
+     * @param message    the message
+     * @param dimensions the number of dimensions, must be a power of two
+     * @return the features
+     */
+    @NonNull
+    public static HashedFeatures of(@NonNull final Message message, final int dimensions) {
+        Objects.requireNonNull(message, "message must not be null");
+        if (Integer.bitCount(dimensions) != 1) {
+            throw new IllegalArgumentException("dimensions must be a power of two");
+        }
+        final String text = normalize(message.title()) + ' ' + normalize(message.message());
+        int[] features = new int[64];
+        int count = 0;
+        int previousWord = 0;
+        int wordStart = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            final boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && wordStart < 0) {
+                wordStart = i;
+            } else if (!letter && wordStart >= 0) {
+                final String word = text.substring(wordStart, i);
+                final int wordHash = word.hashCode();
+                if (count + word.length() + 2 > features.length) {
+                    features = Arrays.copyOf(features, Math.max(features.length * 2, count + word.length() + 2));
+                }
+                features[count++] = mix(wordHash, WORD_SEED);
+                if (previousWord != 0) {
+                    features[count++] = mix(31 * previousWord + wordHash, PAIR_SEED);
+                }
+                final String padded = ' ' + word + ' ';
+                for (int n = 0; n + NGRAM_LENGTH <= padded.length(); n++) {
+                    features[count++] = mix(padded.substring(n, n + NGRAM_LENGTH).hashCode(), NGRAM_SEED);
+                }
+                previousWord = wordHash;
+                wordStart = -1;
+            }
+        }
+        final int mask = dimensions - 1;
+        for (int i = 0; i < count; i++) {
+            features[i] &= mask;
+        }
+        final int[] indices = Arrays.stream(features, 0, count).sorted().distinct().toArray();
+        return new HashedFeatures(indices, indices.length == 0 ? 0 : (float) (1 / Math.sqrt(indices.length)));
+    }
+
+    public boolean isEmpty() {
+        return indices.length == 0;
+    }
+
+    private static String normalize(@Nullable final String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so features that differ in a few bits of their hash land in different dimensions.
+     */
+    private static int mix(final int hash, final int seed) {
+        int h = hash ^ seed;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,169 @@
+package com.openelements.conduct.integration.classifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * A logistic regression over {@link HashedFeatures} that is trained one example at a time (stochastic gradient
+ * descent with AdaGrad learning rates). It predicts the probability that a message is not harmless. Weights and
+ * accumulated gradients are kept in primitive float arrays, so a model of 2^18 dimensions needs 2 MB.
+ * <p>
+ * The classifier is thread safe. Predictions and training are serialized, both are fast compared to a call to the
+ * LLM.
+ */
+public class OnlineClassifier {
+
+    private final static int FILE_MAGIC = 0x434c5346;
+
+    private final static int FILE_VERSION = 1;
+
+    private final static float LEARNING_RATE = 0.5f;
+
+    private final static float L2 = 1e-6f;
+
+    private final static float EPSILON = 1e-8f;
+
+    /**
+     * Weight of examples that are not harmless. They are rare and a harmless answer for them is the expensive error.
+     */
+    private final static float POSITIVE_WEIGHT = 4f;
+
+    private final int dimensions;
+
+    private final float[] weights;
+
+    private final float[] squaredGradients;
+
+    private float bias;
+
+    private float biasSquaredGradient;
+
+    private long examples;
+
+    public OnlineClassifier(final int dimensions) {
+        if (Integer.bitCount(dimensions) != 1) {
+            throw new IllegalArgumentException("dimensions must be a power of two");
+        }
+        this.dimensions = dimensions;
+        this.weights = new float[dimensions];
+        this.squaredGradients = new float[dimensions];
+    }
+
+    /**
+     * Returns the probability that the message of the features is not harmless.
+     */
+    public synchronized double predict(@NonNull final HashedFeatures features) {
+        Objects.requireNonNull(features, "features must not be null");
+        return sigmoid(score(features));
+    }
+
+    /**
+     * Trains the classifier with one labeled example.
+     *
+     * @param features the features of the message
+     * @param harmful  {@code true} if the message is not harmless
+     */
+    public synchronized void train(@NonNull final HashedFeatures features, final boolean harmful) {
+        Objects.requireNonNull(features, "features must not be null");
+        final double error = sigmoid(score(features)) - (harmful ? 1 : 0);
+        final float gradient = (float) error * (harmful ? POSITIVE_WEIGHT : 1f);
+        final float value = features.value();
+        for (int index : features.indices()) {
+            final float g = gradient * value + L2 * weights[index];
+            squaredGradients[index] += g * g;
+            weights[index] -= LEARNING_RATE * g / (float) Math.sqrt(squaredGradients[index] + EPSILON);
+        }
+        biasSquaredGradient += gradient * gradient;
+        bias -= LEARNING_RATE * gradient / (float) Math.sqrt(biasSquaredGradient + EPSILON);
+        examples++;
+    }
+
+    public synchronized long getExamples() {
+        return examples;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    private double score(@NonNull final HashedFeatures features) {
+        if (features.indices().length > 0 && features.indices()[features.indices().length - 1] >= dimensions) {
+            throw new IllegalArgumentException("features have more dimensions than the classifier");
+        }
+        double score = bias;
+        for (int index : features.indices()) {
+            score += weights[index] * features.value();
+        }
+        return score;
+    }
+
+    private static double sigmoid(final double score) {
+        return 1 / (1 + Math.exp(-score));
+    }
+
+    /**
+     * Loads the model from the file if the file exists and has the same dimensions.
+     *
+     * @return {@code true} if the model was loaded
+     */
+    public synchronized boolean load(@NonNull final Path file) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a classifier model file: " + file);
+            }
+            if (in.readInt() != dimensions) {
+                return false;
+            }
+            examples = in.readLong();
+            bias = in.readFloat();
+            biasSquaredGradient = in.readFloat();
+            for (int i = 0; i < dimensions; i++) {
+                weights[i] = in.readFloat();
+            }
+            for (int i = 0; i < dimensions; i++) {
+                squaredGradients[i] = in.readFloat();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Stores the model in the file. The model is written to a temporary file first, so a crash does not leave a
+     * broken model behind.
+     */
+    public synchronized void save(@NonNull final Path file) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(dimensions);
+            out.writeLong(examples);
+            out.writeFloat(bias);
+            out.writeFloat(biasSquaredGradient);
+            for (float weight : weights) {
+                out.writeFloat(weight);
+            }
+            for (float squaredGradient : squaredGradients) {
+                out.writeFloat(squaredGradient);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -1,9 +1,11 @@
 package com.openelements.conduct.integration.discord;
 
 import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.Futures;
 import com.openelements.conduct.data.ResultHandler;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
@@ -38,6 +40,17 @@ public class DiscordIntegration implements ResultHandler {
 
     @Override
     public void handle(@NonNull CheckResult result) {
+        try {
+            Futures.join(handleAsync(result));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to send message to Discord channel", e);
+        }
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Void> handleAsync(@NonNull CheckResult result) {
         final CompletableFuture<Void> future = new CompletableFuture<>();
         final TextChannel channel = jda.getTextChannelById(channelId);
         if (channel != null) {
@@ -46,12 +59,8 @@ public class DiscordIntegration implements ResultHandler {
             channel.sendMessage(message).queue(m -> future.complete(null),
                     throwable -> future.completeExceptionally(throwable));
         } else {
-            throw new IllegalArgumentException("Channel not found: " + channelId);
-        }
-        try {
-            future.get(10, java.util.concurrent.TimeUnit.SECONDS);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to send message to Discord channel", e);
+            future.completeExceptionally(new IllegalArgumentException("Channel not found: " + channelId));
         }
+        return future.orTimeout(10, TimeUnit.SECONDS);
     }
-}
\ No newline at end of file
+}
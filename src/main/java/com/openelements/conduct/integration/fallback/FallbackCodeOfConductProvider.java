@@ -1,6 +1,7 @@
 package com.openelements.conduct.integration.fallback;
 
 import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.CodeOfConductSnapshot;
 import com.openelements.conduct.data.TextfileType;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
@@ -19,13 +20,14 @@ public class FallbackCodeOfConductProvider implements CodeOfConductProvider {
     private static final Logger log = LoggerFactory.getLogger(FallbackCodeOfConductProvider.class);
     private static final String DEFAULT_COC_RESOURCE = "DEFAULT_CODE_OF_CONDUCT.md";
     
-    private final String defaultCodeOfConduct;
+    private final CodeOfConductSnapshot snapshot;
 
     public FallbackCodeOfConductProvider() {
         log.warn("Initializing fallback Code of Conduct provider. This provides a generic Code of Conduct.");
         try {
             ClassPathResource resource = new ClassPathResource(DEFAULT_COC_RESOURCE);
-            defaultCodeOfConduct = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            snapshot = CodeOfConductSnapshot.ofAllTypes(
+                    new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
         } catch (IOException e) {
             log.error("Failed to read default Code of Conduct from resources", e);
             throw new IllegalStateException("Failed to load default Code of Conduct resource", e);
@@ -40,6 +42,11 @@ public class FallbackCodeOfConductProvider implements CodeOfConductProvider {
 
     @Override
     public @NonNull String getCodeOfConduct(@NonNull TextfileType type) {
-        return defaultCodeOfConduct;
+        return snapshot.getCodeOfConduct(type);
+    }
+
+    @Override
+    public @NonNull String getVersion(@NonNull TextfileType type) {
+        return snapshot.getVersion(type);
     }
 }
@@ -1,14 +1,37 @@
 package com.openelements.conduct.integration.file;
 
 import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.CodeOfConductSnapshot;
 import com.openelements.conduct.data.TextfileType;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class FileBasedCodeOfConductProvider implements CodeOfConductProvider {
+/**
+ * Provides the Code of Conduct from files. The files are read once into a {@link CodeOfConductSnapshot}. If a
+ * directory is given, the files are read from it and the directory is watched, so an edit replaces the snapshot
+ * without a restart. Otherwise the files are loaded from the classpath. A reload that misses a file of the current
+ * snapshot, or can not read one, keeps the current snapshot.
+ */
+public class FileBasedCodeOfConductProvider implements CodeOfConductProvider, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(FileBasedCodeOfConductProvider.class);
 
     private final static String PLAIN_TEXT_FILE = "CODE_OF_CONDUCT.txt";
 
@@ -16,32 +39,136 @@ public class FileBasedCodeOfConductProvider implements CodeOfConductProvider {
 
     private final static String HTML_TEXT_FILE = "CODE_OF_CONDUCT.html";
 
-    @Override
-    public boolean supports(@NonNull TextfileType type) {
-        return getResource(type).isPresent();
+    private final static Map<TextfileType, String> FILES = Map.of(
+            TextfileType.PLAIN, PLAIN_TEXT_FILE,
+            TextfileType.MARKDOWN, MD_TEXT_FILE,
+            TextfileType.HTML, HTML_TEXT_FILE);
+
+    private final @Nullable Path directory;
+
+    private final AtomicReference<CodeOfConductSnapshot> snapshot;
+
+    private final @Nullable WatchService watchService;
+
+    public FileBasedCodeOfConductProvider() {
+        this(null);
+    }
+
+    public FileBasedCodeOfConductProvider(@Nullable final Path directory) {
+        this.directory = directory;
+        this.snapshot = new AtomicReference<>(load());
+        log.info("Loaded Code of Conduct {}", snapshot.get());
+        this.watchService = directory != null ? watch(directory) : null;
+    }
+
+    @NonNull
+    private CodeOfConductSnapshot load() {
+        final Map<TextfileType, String> codeOfConducts = new EnumMap<>(TextfileType.class);
+        FILES.forEach((type, name) -> {
+            final String content = directory != null ? readFile(directory.resolve(name)) : readResource(name);
+            if (content != null && !content.isBlank()) {
+                codeOfConducts.put(type, content);
+            }
+        });
+        return CodeOfConductSnapshot.of(codeOfConducts);
+    }
+
+    private static @Nullable String readFile(@NonNull final Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read code of conduct file: " + file, e);
+        }
     }
 
-    private Optional<URL> getResource(@NonNull TextfileType type) {
-        Objects.requireNonNull(type, "type must not be null");
-        if (type == TextfileType.PLAIN) {
-            return Optional.ofNullable(FileBasedCodeOfConductProvider.class.getClassLoader().getResource(PLAIN_TEXT_FILE));
+    private static @Nullable String readResource(@NonNull final String name) {
+        final URL resource = FileBasedCodeOfConductProvider.class.getClassLoader().getResource(name);
+        if (resource == null) {
+            return null;
         }
-        if (type == TextfileType.MARKDOWN) {
-            return Optional.ofNullable(FileBasedCodeOfConductProvider.class.getClassLoader().getResource(MD_TEXT_FILE));
+        try (final InputStream inputStream = resource.openStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read code of conduct file: " + resource, e);
         }
-        if (type == TextfileType.HTML) {
-            return Optional.ofNullable(FileBasedCodeOfConductProvider.class.getClassLoader().getResource(HTML_TEXT_FILE));
+    }
+
+    @NonNull
+    private WatchService watch(@NonNull final Path directory) {
+        try {
+            final WatchService service = FileSystems.getDefault().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            Thread.ofPlatform()
+                    .name("coc-file-watcher")
+                    .daemon(true)
+                    .start(() -> processEvents(service));
+            log.info("Watching {} for changes of the Code of Conduct", directory);
+            return service;
+        } catch (IOException e) {
+            throw new RuntimeException("Can not watch Code of Conduct directory " + directory, e);
+        }
+    }
+
+    private void processEvents(@NonNull final WatchService service) {
+        try {
+            while (true) {
+                final WatchKey key = service.take();
+                // all events of the key are handled by one reload, editors often write a file in several steps
+                key.pollEvents();
+                reload();
+                if (!key.reset()) {
+                    log.warn("Code of Conduct directory {} is not accessible anymore", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the provider has been closed
+        }
+    }
+
+    private void reload() {
+        try {
+            final CodeOfConductSnapshot loaded = load();
+            final CodeOfConductSnapshot previous = snapshot.get();
+            // editors often delete or truncate a file before writing it, a vanished file must not drop its type
+            for (TextfileType type : FILES.keySet()) {
+                if (previous.supports(type) && !loaded.supports(type)) {
+                    log.warn("Code of Conduct file {} is missing or empty, keeping {}", FILES.get(type), previous);
+                    return;
+                }
+            }
+            if (!loaded.hasSameContent(previous)) {
+                snapshot.set(loaded);
+                log.info("Code of Conduct changed from {} to {}", previous, loaded);
+            }
+        } catch (Exception e) {
+            log.warn("Can not reload Code of Conduct from {}, keeping {}", directory, snapshot.get(), e);
         }
-        return Optional.empty();
+    }
+
+    @Override
+    public boolean supports(@NonNull TextfileType type) {
+        return snapshot.get().supports(type);
     }
 
     @Override
     public @NonNull String getCodeOfConduct(@NonNull TextfileType type) {
-        final URL resource = getResource(type).orElseThrow(() -> new IllegalArgumentException("Unsupported type: " + type));
-        try(final InputStream inputStream = resource.openStream()) {
-            return new String(inputStream.readAllBytes());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to read code of conduct file: " + resource, e);
+        return snapshot.get().getCodeOfConduct(type);
+    }
+
+    @Override
+    public @NonNull String getVersion(@NonNull TextfileType type) {
+        return snapshot.get().getVersion(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
         }
     }
 }
@@ -1,6 +1,8 @@
 package com.openelements.conduct.integration.file;
 
 import com.openelements.conduct.data.CodeOfConductProvider;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,8 +15,11 @@ import org.springframework.context.annotation.Configuration;
 )
 public class FileConfig {
 
+    @Value("${guardian.integration.coc.file.directory:}")
+    private String directory;
+
     @Bean
     CodeOfConductProvider fileBasedCodeOfConductProvider() {
-        return new FileBasedCodeOfConductProvider();
+        return new FileBasedCodeOfConductProvider(directory.isBlank() ? null : Path.of(directory));
     }
 }
@@ -0,0 +1,48 @@
+package com.openelements.conduct.integration.github;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * A {@link ConductChecker} stage that resolves the Code of Conduct of a message once, without blocking, and passes
+ * the message with the resolved provider (see {@link Message#codeOfConduct()}) to the next stages. By that the cache,
+ * the chunking, the batching and the OpenAI checkers use the same Code of Conduct for a message and none of them
+ * waits for the GitHub API on its own. The result is returned for the original message.
+ */
+public class CodeOfConductResolvingConductChecker implements ConductChecker {
+
+    private final ConductChecker delegate;
+
+    private final CodeOfConductProvider codeOfConductProvider;
+
+    public CodeOfConductResolvingConductChecker(@NonNull final ConductChecker delegate,
+            @NonNull final CodeOfConductProvider codeOfConductProvider) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.codeOfConductProvider = Objects.requireNonNull(codeOfConductProvider,
+                "codeOfConductProvider must not be null");
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        if (message.codeOfConduct() != null) {
+            return delegate.checkAsync(message);
+        }
+        final CompletableFuture<CheckResult> result = Futures.composeCancellable(
+                codeOfConductProvider.forRepositoryAsync(message.repository()),
+                provider -> delegate.checkAsync(message.withCodeOfConduct(provider)));
+        return Futures.propagateCancellation(result.thenApply(checkResult -> checkResult.withMessage(message)),
+                result);
+    }
+}
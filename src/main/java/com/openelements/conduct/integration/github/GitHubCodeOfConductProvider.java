@@ -1,21 +1,55 @@
 package com.openelements.conduct.integration.github;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.CodeOfConductSnapshot;
+import com.openelements.conduct.data.Futures;
 import com.openelements.conduct.data.TextfileType;
 import com.openelements.conduct.endpoint.GitHubClient;
+import com.openelements.conduct.endpoint.GitHubResponse;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class GitHubCodeOfConductProvider implements CodeOfConductProvider {
+/**
+ * Loads the Code of Conduct of a repository from GitHub. The file is discovered with as few calls as possible:
+ * <ol>
+ *     <li>the community profile of the repository names the file GitHub has detected</li>
+ *     <li>otherwise the root listings of the repository and of the {@code .github} repository of the owner are
+ *     searched for the common file names</li>
+ *     <li>otherwise the candidates are requested in small batches by priority and the first hit is used</li>
+ * </ol>
+ * If a state file is given, the resolved file, its ETag and content are stored in it. Later startups only send a
+ * conditional request for the stored file, which is answered with 304 and does not count against the rate limit.
+ * <p>
+ * The Code of Conduct is held as a {@link CodeOfConductSnapshot}. If a poll interval is given, the resolved file is
+ * polled with its ETag in the background and a changed Code of Conduct replaces the snapshot (and its version).
+ */
+public class GitHubCodeOfConductProvider implements CodeOfConductProvider, AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(GitHubCodeOfConductProvider.class);
 
-    private static final String[] COMMON_COC_FILENAMES = {
+    static final String[] COMMON_COC_FILENAMES = {
             "CODE_OF_CONDUCT.md",
             "CODE_OF_CONDUCT.txt",
             "CODE_OF_CONDUCT",
@@ -26,75 +60,351 @@ public class GitHubCodeOfConductProvider implements CodeOfConductProvider {
             "CONDUCT.txt"
     };
 
-    private final String codeOfConduct;
+    private static final String[] BRANCHES = {"main", "master"};
 
-    public GitHubCodeOfConductProvider(@NonNull GitHubClient gitHubClient,
-            @NonNull String owner,
-            @NonNull String repo) {
-        log.info("Initialized GitHub Code of Conduct provider for {}/{}", owner, repo);
-        codeOfConduct = findCodeOfConduct(gitHubClient, owner, repo);
-    }
+    static final String ORG_DEFAULTS_REPO = ".github";
+
+    private static final long DISCOVERY_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Number of candidate files that are requested in parallel.
+     */
+    private static final int CANDIDATE_BATCH_SIZE = 4;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final GitHubClient gitHubClient;
+
+    private final String owner;
+
+    private final String repo;
+
+    private final @Nullable Path stateFile;
+
+    private final AtomicReference<CodeOfConductSnapshot> snapshot = new AtomicReference<>();
 
-    private String findCodeOfConduct(@NonNull GitHubClient gitHubClient,
+    private volatile DiscoveryState resolved;
+
+    private final @Nullable ScheduledExecutorService refresher;
+
+    public GitHubCodeOfConductProvider(@NonNull GitHubClient gitHubClient,
             @NonNull String owner,
             @NonNull String repo) {
-        return findCodeOfConduct(gitHubClient, owner, repo, "main")
-                .or(() -> findCodeOfConduct(gitHubClient, owner, repo, "master"))
-                .or(() -> findCodeOfConduct(gitHubClient, owner, ".github", "main"))
-                .or(() -> findCodeOfConduct(gitHubClient, owner, ".github", "master"))
-                .orElseThrow(() -> new RuntimeException("No code of conduct found for " + owner + " " + repo));
+        this(gitHubClient, owner, repo, null, Duration.ZERO);
     }
 
-    private Optional<String> findCodeOfConduct(@NonNull GitHubClient gitHubClient,
+    /**
+     * Creates the provider and loads the Code of Conduct.
+     *
+     * @param gitHubClient the client
+     * @param owner        the owner of the repository
+     * @param repo         the repository
+     * @param stateFile    the file to store the resolved Code of Conduct in, {@code null} to not store it
+     * @param pollInterval the interval to check the Code of Conduct for changes, zero to never check it
+     */
+    public GitHubCodeOfConductProvider(@NonNull GitHubClient gitHubClient,
             @NonNull String owner,
-            @NonNull String repo, @NonNull String branch) {
-        Objects.requireNonNull(gitHubClient, "gitHubClient must not be null");
-        Objects.requireNonNull(owner, "owner must not be null");
-        Objects.requireNonNull(repo, "repo must not be null");
-        Objects.requireNonNull(branch, "branch must not be null");
+            @NonNull String repo,
+            @Nullable Path stateFile,
+            @NonNull Duration pollInterval) {
+        this.gitHubClient = Objects.requireNonNull(gitHubClient, "gitHubClient must not be null");
+        this.owner = Objects.requireNonNull(owner, "owner must not be null");
+        this.repo = Objects.requireNonNull(repo, "repo must not be null");
+        Objects.requireNonNull(pollInterval, "pollInterval must not be null");
         if (owner.isBlank()) {
             throw new IllegalArgumentException("owner must not be blank");
         }
         if (repo.isBlank()) {
             throw new IllegalArgumentException("repo must not be blank");
         }
-        if (branch.isBlank()) {
-            throw new IllegalArgumentException("branch must not be blank");
+        this.stateFile = stateFile;
+        log.info("Initialized GitHub Code of Conduct provider for {}/{}", owner, repo);
+        loadCodeOfConduct();
+        if (pollInterval.isPositive()) {
+            refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                    .name("github-coc-refresher")
+                    .daemon(true)
+                    .factory());
+            refresher.scheduleWithFixedDelay(this::refresh, pollInterval.toMillis(), pollInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } else {
+            refresher = null;
         }
+    }
+
+    private void loadCodeOfConduct() {
+        final DiscoveryState state = readState(stateFile, owner, repo);
+        if (state != null) {
+            try {
+                final GitHubResponse response = await(gitHubClient.getAsync(URI.create(state.url()), state.etag()));
+                if (response.isNotModified()) {
+                    log.info("Code of Conduct {} has not changed", state.url());
+                    update(state, false);
+                    return;
+                }
+                if (response.isOk()) {
+                    log.info("Code of Conduct {} has changed", state.url());
+                    update(toState(response), true);
+                    return;
+                }
+                log.info("Code of Conduct {} not found anymore, searching again", state.url());
+            } catch (Exception e) {
+                log.warn("Can not revalidate Code of Conduct {}, using the stored one", state.url(), e);
+                update(state, false);
+                return;
+            }
+        }
+        final GitHubResponse response = findCodeOfConduct(gitHubClient, owner, repo)
+                .orElseThrow(() -> new RuntimeException("No code of conduct found for " + owner + " " + repo));
+        update(toState(response), true);
+    }
+
+    /**
+     * Checks the resolved file for changes with a conditional request. Checks are never blocked, they use the current
+     * snapshot until a changed Code of Conduct has been loaded.
+     */
+    private void refresh() {
+        final DiscoveryState current = resolved;
         try {
-            for (final String filename : COMMON_COC_FILENAMES) {
-                try {
-                    final JsonNode fileContent = gitHubClient.getRepositoryFileContent(owner, repo, filename, branch);
-                    if (fileContent != null && fileContent.has("content")) {
-                        log.info("Code of Conduct file {} found in {}/{}#{}", filename, owner, repo, branch);
-                        final String content = fileContent.get("content").asText();
-                        final String decodedContent = new String(Base64.getDecoder().decode(content.replace("\n", "")));
-                        log.debug("Code of Conduct file {} decoded content: {}", filename, decodedContent);
-                        return Optional.of(decodedContent);
-                    } else {
-                        log.debug("Code of Conduct file {} not found in {}/{}#{}", filename, owner, repo, branch);
+            final GitHubResponse response = await(gitHubClient.getAsync(URI.create(current.url()), current.etag()));
+            if (response.isNotModified()) {
+                log.debug("Code of Conduct {} has not changed", current.url());
+                return;
+            }
+            if (response.isOk()) {
+                update(toState(response), true);
+                return;
+            }
+            log.info("Code of Conduct {} not found anymore, searching again", current.url());
+            findCodeOfConduct(gitHubClient, owner, repo).ifPresentOrElse(
+                    found -> update(toState(found), true),
+                    () -> log.warn("No Code of Conduct found for {}/{}, keeping {}", owner, repo, snapshot.get()));
+        } catch (Exception e) {
+            log.warn("Can not refresh Code of Conduct {}", current.url(), e);
+        }
+    }
+
+    private void update(@NonNull DiscoveryState state, boolean persist) {
+        resolved = state;
+        final CodeOfConductSnapshot loaded = CodeOfConductSnapshot.ofAllTypes(state.content());
+        final CodeOfConductSnapshot previous = snapshot.get();
+        if (previous == null || !previous.hasSameContent(loaded)) {
+            snapshot.set(loaded);
+            if (previous != null) {
+                log.info("Code of Conduct changed from {} to {}", previous, loaded);
+            }
+        }
+        if (persist && stateFile != null) {
+            writeState(stateFile, state);
+        }
+    }
+
+    private Optional<GitHubResponse> findCodeOfConduct(@NonNull GitHubClient gitHubClient,
+            @NonNull String owner,
+            @NonNull String repo) {
+        return findByCommunityProfile(gitHubClient, owner, repo)
+                .or(() -> findByRootTree(gitHubClient, owner, repo))
+                .or(() -> findByCandidates(gitHubClient, owner, repo));
+    }
+
+    private Optional<GitHubResponse> findByCommunityProfile(@NonNull GitHubClient gitHubClient,
+            @NonNull String owner,
+            @NonNull String repo) {
+        try {
+            final GitHubResponse profile = await(gitHubClient.getCommunityProfileAsync(owner, repo));
+            final JsonNode fileNode = profile.isOk() ? profile.body().path("files").path("code_of_conduct_file")
+                    : null;
+            if (fileNode == null || !fileNode.hasNonNull("url")) {
+                log.debug("Community profile of {}/{} names no Code of Conduct file", owner, repo);
+                return Optional.empty();
+            }
+            final GitHubResponse file = await(gitHubClient.getAsync(URI.create(fileNode.get("url").asText()), null));
+            if (file.isOk()) {
+                log.info("Code of Conduct file {} found by community profile of {}/{}", fileNode.get("url").asText(),
+                        owner, repo);
+                return Optional.of(file);
+            }
+        } catch (Exception e) {
+            log.debug("Can not use community profile of {}/{}", owner, repo, e);
+        }
+        return Optional.empty();
+    }
+
+    private Optional<GitHubResponse> findByRootTree(@NonNull GitHubClient gitHubClient,
+            @NonNull String owner,
+            @NonNull String repo) {
+        final List<String> repos = List.of(repo, ORG_DEFAULTS_REPO);
+        final List<CompletableFuture<GitHubResponse>> trees = repos.stream()
+                .map(name -> gitHubClient.getRootTreeAsync(owner, name))
+                .toList();
+        for (int i = 0; i < repos.size(); i++) {
+            try {
+                final GitHubResponse tree = await(trees.get(i));
+                if (!tree.isOk()) {
+                    continue;
+                }
+                final Set<String> files = new HashSet<>();
+                tree.body().path("tree").forEach(entry -> {
+                    if ("blob".equals(entry.path("type").asText())) {
+                        files.add(entry.path("path").asText());
+                    }
+                });
+                for (final String filename : COMMON_COC_FILENAMES) {
+                    if (files.contains(filename)) {
+                        final GitHubResponse file = await(
+                                gitHubClient.getRepositoryFileContentAsync(owner, repos.get(i), filename, null));
+                        if (file.isOk()) {
+                            log.info("Code of Conduct file {} found in {}/{}", filename, owner, repos.get(i));
+                            return Optional.of(file);
+                        }
                     }
-                } catch (Exception e) {
-                    log.info("Code of Conduct file {} not found in {}/{}#{}", filename, owner, repo, branch);
                 }
+            } catch (Exception e) {
+                log.debug("Can not list files of {}/{}", owner, repos.get(i), e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch Code of Conduct from GitHub", e);
         }
         return Optional.empty();
     }
 
+    /**
+     * Requests the candidates in small parallel batches in the order of their priority. The results of a batch are
+     * taken in that order, so the hit with the highest priority wins. Once a file is found, the requests that are not
+     * needed anymore are cancelled and the remaining candidates are not requested at all.
+     */
+    private Optional<GitHubResponse> findByCandidates(@NonNull GitHubClient gitHubClient,
+            @NonNull String owner,
+            @NonNull String repo) {
+        final List<Candidate> candidates = new ArrayList<>();
+        for (final String candidateRepo : List.of(repo, ORG_DEFAULTS_REPO)) {
+            for (final String branch : BRANCHES) {
+                for (final String filename : COMMON_COC_FILENAMES) {
+                    candidates.add(new Candidate(candidateRepo, filename, branch));
+                }
+            }
+        }
+        for (int start = 0; start < candidates.size(); start += CANDIDATE_BATCH_SIZE) {
+            final List<Candidate> batch = candidates.subList(start,
+                    Math.min(start + CANDIDATE_BATCH_SIZE, candidates.size()));
+            final List<CompletableFuture<GitHubResponse>> responses = batch.stream()
+                    .map(candidate -> gitHubClient.getRepositoryFileContentAsync(owner, candidate.repo(),
+                            candidate.filename(), candidate.branch()))
+                    .toList();
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    final String name = owner + "/" + batch.get(i);
+                    try {
+                        final GitHubResponse file = await(responses.get(i));
+                        if (file.isOk() && file.body().has("content")) {
+                            log.info("Code of Conduct file {} found", name);
+                            return Optional.of(file);
+                        }
+                        log.debug("Code of Conduct file {} not found", name);
+                    } catch (Exception e) {
+                        log.info("Code of Conduct file {} not found", name);
+                    }
+                }
+            } finally {
+                responses.forEach(response -> response.cancel(true));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static GitHubResponse await(@NonNull CompletableFuture<GitHubResponse> response) {
+        return Futures.join(response, DISCOVERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private DiscoveryState toState(@NonNull GitHubResponse response) {
+        final JsonNode fileNode = Objects.requireNonNull(response.body(), "body must not be null");
+        final String decodedContent = decodeContent(fileNode);
+        log.debug("Code of Conduct decoded content: {}", decodedContent);
+        return new DiscoveryState(owner, repo, fileNode.get("url").asText(), response.etag(), decodedContent);
+    }
+
+    /**
+     * Returns the decoded content of a file returned by the contents API.
+     */
+    static String decodeContent(@NonNull JsonNode fileNode) {
+        final String content = fileNode.get("content").asText();
+        return new String(Base64.getDecoder().decode(content.replace("\n", "")), StandardCharsets.UTF_8);
+    }
+
+    private static @Nullable DiscoveryState readState(@Nullable Path stateFile, @NonNull String owner,
+            @NonNull String repo) {
+        if (stateFile == null || !Files.exists(stateFile)) {
+            return null;
+        }
+        try {
+            final DiscoveryState state = OBJECT_MAPPER.readValue(stateFile.toFile(), DiscoveryState.class);
+            if (!owner.equals(state.owner()) || !repo.equals(state.repo()) || state.url() == null
+                    || state.content() == null) {
+                log.info("Code of Conduct state in {} is for another repository", stateFile);
+                return null;
+            }
+            return state;
+        } catch (Exception e) {
+            log.warn("Can not load Code of Conduct state from {}", stateFile, e);
+            return null;
+        }
+    }
+
+    private static void writeState(@NonNull Path stateFile, @NonNull DiscoveryState state) {
+        try {
+            final Path parent = stateFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            final Path tempFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            OBJECT_MAPPER.writeValue(tempFile.toFile(), state);
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("Stored Code of Conduct state in {}", stateFile);
+        } catch (Exception e) {
+            log.warn("Can not store Code of Conduct state in {}", stateFile, e);
+        }
+    }
 
     @Override
     public boolean supports(@NonNull TextfileType type) {
-        Objects.requireNonNull(type, "type must not be null");
-        return true;
+        return snapshot.get().supports(type);
     }
 
     @Override
     public @NonNull String getCodeOfConduct(@NonNull TextfileType type) {
-        Objects.requireNonNull(type, "type must not be null");
-        return codeOfConduct;
+        return snapshot.get().getCodeOfConduct(type);
     }
 
+    @Override
+    public @NonNull String getVersion(@NonNull TextfileType type) {
+        return snapshot.get().getVersion(type);
+    }
+
+    @Override
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * The resolved Code of Conduct file as stored in the state file.
+     *
+     * @param owner   the owner of the checked repository
+     * @param repo    the checked repository
+     * @param url     the API URL of the resolved file
+     * @param etag    the ETag of the file
+     * @param content the decoded content of the file
+     */
+    record DiscoveryState(String owner, String repo, String url, @Nullable String etag, String content) {
+    }
+
+    /**
+     * A file that may contain the Code of Conduct.
+     */
+    private record Candidate(@NonNull String repo, @NonNull String filename, @NonNull String branch) {
+
+        @Override
+        public String toString() {
+            return repo + "/" + filename + "#" + branch;
+        }
+    }
 }
@@ -1,12 +1,18 @@
 package com.openelements.conduct.integration.github;
 
 import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.ConductCheckerDecorator;
 import com.openelements.conduct.endpoint.GitHubClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.file.Path;
+import java.time.Duration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.annotation.Order;
 
 @Configuration
 @ConditionalOnProperty(
@@ -21,10 +27,45 @@ public class GitHubConfig {
 
     @Value("${guardian.integration.github.coc.repo:Conduct-Guardian}")
     private String repo;
-    
+
+    @Value("${guardian.integration.github.coc.state-file:}")
+    private String stateFile;
+
+    @Value("${guardian.integration.github.coc.poll-interval:5m}")
+    private Duration pollInterval;
+
+    @Value("${guardian.integration.github.coc.per-repository.enabled:false}")
+    private boolean perRepositoryEnabled;
+
+    @Value("${guardian.integration.github.coc.per-repository.max-repositories:10000}")
+    private int maxRepositories;
+
+    @Value("${guardian.integration.github.coc.per-repository.refresh-interval:1h}")
+    private Duration refreshInterval;
+
     @Bean
     @Primary
-    CodeOfConductProvider githubCodeOfConductProvider(GitHubClient gitHubClient) {
-        return new GitHubCodeOfConductProvider(gitHubClient, owner, repo);
+    CodeOfConductProvider githubCodeOfConductProvider(GitHubClient gitHubClient, MeterRegistry meterRegistry) {
+        final GitHubCodeOfConductProvider provider = new GitHubCodeOfConductProvider(gitHubClient, owner, repo,
+                stateFile.isBlank() ? null : Path.of(stateFile), pollInterval);
+        if (!perRepositoryEnabled) {
+            return provider;
+        }
+        final RepositoryCodeOfConductProvider repositoryProvider = new RepositoryCodeOfConductProvider(gitHubClient,
+                provider, maxRepositories, refreshInterval);
+        CaffeineCacheMetrics.monitor(meterRegistry, repositoryProvider.getCache(), "coc-repositories");
+        return repositoryProvider;
+    }
+
+    @Bean
+    @Order(150)
+    @ConditionalOnProperty(
+            name = "guardian.integration.github.coc.per-repository.enabled",
+            havingValue = "true",
+            matchIfMissing = false
+    )
+    ConductCheckerDecorator codeOfConductResolvingConductCheckerDecorator(
+            CodeOfConductProvider githubCodeOfConductProvider) {
+        return delegate -> new CodeOfConductResolvingConductChecker(delegate, githubCodeOfConductProvider);
     }
 }
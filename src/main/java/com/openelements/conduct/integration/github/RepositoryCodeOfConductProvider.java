@@ -0,0 +1,291 @@
+package com.openelements.conduct.integration.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.CodeOfConductSnapshot;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.endpoint.GitHubClient;
+import com.openelements.conduct.endpoint.GitHubResponse;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CodeOfConductProvider} for instances that serve many repositories. The Code of Conduct of a message is
+ * resolved from the repository it was sent in: the file of the repository itself, then the default of the owner in
+ * its {@code .github} repository and last the default provider.
+ * <p>
+ * Resolutions are held in a bounded LRU cache. Concurrent lookups of a repository share one load and repositories
+ * without a Code of Conduct are cached as well. After the refresh interval an entry is revalidated with its ETag in
+ * the background while the old one is still used. So every repository costs at most one fetch per refresh interval,
+ * and the revalidation of an unchanged file is a 304 that does not count against the rate limit. A failed resolution
+ * is cached for a short time as well, so an unavailable API is not asked again for every message.
+ * <p>
+ * Checks resolve the Code of Conduct once per message with {@link #forRepositoryAsync(String)}, see
+ * {@link CodeOfConductResolvingConductChecker}.
+ */
+public class RepositoryCodeOfConductProvider implements CodeOfConductProvider, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(RepositoryCodeOfConductProvider.class);
+
+    private final static long RESOLVE_TIMEOUT_SECONDS = 10;
+
+    private final static Duration FAILURE_TIME_TO_LIVE = Duration.ofMinutes(1);
+
+    private final GitHubClient gitHubClient;
+
+    private final CodeOfConductProvider defaultProvider;
+
+    private final AsyncLoadingCache<String, Resolution> resolutions;
+
+    public RepositoryCodeOfConductProvider(@NonNull GitHubClient gitHubClient,
+            @NonNull CodeOfConductProvider defaultProvider,
+            int maxRepositories,
+            @NonNull Duration refreshInterval) {
+        this.gitHubClient = Objects.requireNonNull(gitHubClient, "gitHubClient must not be null");
+        this.defaultProvider = Objects.requireNonNull(defaultProvider, "defaultProvider must not be null");
+        Objects.requireNonNull(refreshInterval, "refreshInterval must not be null");
+        if (maxRepositories < 1) {
+            throw new IllegalArgumentException("maxRepositories must be at least 1");
+        }
+        if (!refreshInterval.isPositive()) {
+            throw new IllegalArgumentException("refreshInterval must be positive");
+        }
+        this.resolutions = Caffeine.newBuilder()
+                .maximumSize(maxRepositories)
+                .refreshAfterWrite(refreshInterval)
+                .expireAfter(new ResolutionExpiry())
+                .recordStats()
+                .buildAsync(new ResolutionLoader());
+        log.info("Resolving Code of Conduct per repository for up to {} repositories, refreshed every {}",
+                maxRepositories, refreshInterval);
+    }
+
+    @Override
+    public @NonNull CodeOfConductProvider forRepository(@Nullable String repository) {
+        return Futures.join(forRepositoryAsync(repository));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CodeOfConductProvider> forRepositoryAsync(@Nullable String repository) {
+        if (repository == null) {
+            return CompletableFuture.completedFuture(defaultProvider);
+        }
+        final int slash = repository.indexOf('/');
+        if (slash <= 0 || slash == repository.length() - 1) {
+            return CompletableFuture.completedFuture(defaultProvider);
+        }
+        // the names of GitHub repositories are case-insensitive
+        final String key = repository.toLowerCase(Locale.ROOT);
+        return resolve(key).thenCompose(own -> {
+            if (own != null) {
+                return CompletableFuture.completedFuture(own);
+            }
+            final String orgDefaults = key.substring(0, slash) + "/" + GitHubCodeOfConductProvider.ORG_DEFAULTS_REPO;
+            if (orgDefaults.equals(key)) {
+                return CompletableFuture.completedFuture(defaultProvider);
+            }
+            return resolve(orgDefaults).thenApply(org -> org != null ? org : defaultProvider);
+        });
+    }
+
+    /**
+     * Resolves the Code of Conduct of the repository, completes with {@code null} if it has none or can not be
+     * resolved in time.
+     */
+    @NonNull
+    private CompletableFuture<@Nullable CodeOfConductSnapshot> resolve(@NonNull String repository) {
+        // the timeout applies to a copy, the shared load of the cache keeps running
+        return resolutions.get(repository)
+                .<@Nullable CodeOfConductSnapshot>thenApply(Resolution::snapshot)
+                .orTimeout(RESOLVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .exceptionally(e -> {
+                    log.warn("Can not resolve Code of Conduct of {}, using the default", repository,
+                            Futures.getCause(e));
+                    return null;
+                });
+    }
+
+    /**
+     * Discovers the Code of Conduct of the repository. A failure is turned into {@link Resolution#FAILED}, so it is
+     * cached for {@link #FAILURE_TIME_TO_LIVE}.
+     */
+    @NonNull
+    private CompletableFuture<Resolution> discoverOrFail(@NonNull String repository) {
+        return discover(repository).exceptionally(e -> {
+            log.warn("Can not discover Code of Conduct of {}, retrying in {}", repository, FAILURE_TIME_TO_LIVE,
+                    Futures.getCause(e));
+            return Resolution.FAILED;
+        });
+    }
+
+    @NonNull
+    private CompletableFuture<Resolution> discover(@NonNull String repository) {
+        final int slash = repository.indexOf('/');
+        final String owner = repository.substring(0, slash);
+        final String name = repository.substring(slash + 1);
+        return gitHubClient.getCommunityProfileAsync(owner, name).thenCompose(profile -> {
+            if (profile.isOk()) {
+                final JsonNode fileNode = profile.body().path("files").path("code_of_conduct_file");
+                if (!fileNode.hasNonNull("url")) {
+                    log.debug("No Code of Conduct in {}", repository);
+                    return CompletableFuture.completedFuture(Resolution.NOT_FOUND);
+                }
+                return fetch(URI.create(fileNode.get("url").asText()), null);
+            }
+            // private repositories have no community profile, so the root of the default branch is searched
+            return gitHubClient.getRootTreeAsync(owner, name).thenCompose(tree -> {
+                if (!tree.isOk()) {
+                    log.debug("Repository {} not found", repository);
+                    return CompletableFuture.completedFuture(Resolution.NOT_FOUND);
+                }
+                final Set<String> files = new HashSet<>();
+                tree.body().path("tree").forEach(entry -> {
+                    if ("blob".equals(entry.path("type").asText())) {
+                        files.add(entry.path("path").asText());
+                    }
+                });
+                for (final String filename : GitHubCodeOfConductProvider.COMMON_COC_FILENAMES) {
+                    if (files.contains(filename)) {
+                        return gitHubClient.getRepositoryFileContentAsync(owner, name, filename, null)
+                                .thenApply(file -> file.isOk() ? toResolution(file) : Resolution.NOT_FOUND);
+                    }
+                }
+                log.debug("No Code of Conduct in {}", repository);
+                return CompletableFuture.completedFuture(Resolution.NOT_FOUND);
+            });
+        });
+    }
+
+    /**
+     * Fetches the file of a resolution. With a former resolution the request is conditional and the former
+     * resolution is returned if the file has not changed.
+     *
+     * @return the resolution or {@code null} if the file does not exist anymore
+     */
+    @NonNull
+    private CompletableFuture<@Nullable Resolution> fetch(@NonNull URI url, @Nullable Resolution previous) {
+        return gitHubClient.getAsync(url, previous != null ? previous.etag() : null).thenApply(response -> {
+            if (response.isNotModified() && previous != null) {
+                return previous;
+            }
+            return response.isOk() ? toResolution(response) : null;
+        });
+    }
+
+    @NonNull
+    private static Resolution toResolution(@NonNull GitHubResponse response) {
+        final JsonNode fileNode = Objects.requireNonNull(response.body(), "body must not be null");
+        return new Resolution(fileNode.path("url").asText(null), response.etag(),
+                CodeOfConductSnapshot.ofAllTypes(GitHubCodeOfConductProvider.decodeContent(fileNode)));
+    }
+
+    @NonNull
+    public Cache<String, Resolution> getCache() {
+        return resolutions.synchronous();
+    }
+
+    @Override
+    public boolean supports(@NonNull TextfileType type) {
+        return defaultProvider.supports(type);
+    }
+
+    @Override
+    public @NonNull String getCodeOfConduct(@NonNull TextfileType type) {
+        return defaultProvider.getCodeOfConduct(type);
+    }
+
+    @Override
+    public @NonNull String getVersion(@NonNull TextfileType type) {
+        return defaultProvider.getVersion(type);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (defaultProvider instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private final class ResolutionLoader implements AsyncCacheLoader<String, Resolution> {
+
+        @Override
+        public CompletableFuture<? extends Resolution> asyncLoad(String repository, Executor executor) {
+            return discoverOrFail(repository);
+        }
+
+        @Override
+        public CompletableFuture<? extends Resolution> asyncReload(String repository, Resolution oldValue,
+                Executor executor) {
+            if (oldValue.url() == null) {
+                return discover(repository);
+            }
+            return fetch(URI.create(oldValue.url()), oldValue).thenCompose(resolution -> {
+                if (resolution == null) {
+                    log.info("Code of Conduct {} of {} not found anymore", oldValue.url(), repository);
+                    return discover(repository);
+                }
+                if (resolution != oldValue) {
+                    log.info("Code of Conduct of {} changed to {}", repository, resolution.snapshot());
+                }
+                return CompletableFuture.completedFuture(resolution);
+            });
+        }
+    }
+
+    /**
+     * Failed resolutions expire after {@link #FAILURE_TIME_TO_LIVE}, all others are only refreshed.
+     */
+    static final class ResolutionExpiry implements Expiry<String, Resolution> {
+
+        @Override
+        public long expireAfterCreate(String repository, Resolution resolution, long currentTime) {
+            return resolution == Resolution.FAILED ? FAILURE_TIME_TO_LIVE.toNanos() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String repository, Resolution resolution, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(repository, resolution, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String repository, Resolution resolution, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * The Code of Conduct of a repository.
+     *
+     * @param url      the API URL of the file, {@code null} if the repository has no Code of Conduct
+     * @param etag     the ETag of the file
+     * @param snapshot the Code of Conduct, {@code null} if the repository has no Code of Conduct
+     */
+    public record Resolution(@Nullable String url, @Nullable String etag, @Nullable CodeOfConductSnapshot snapshot) {
+
+        static final Resolution NOT_FOUND = new Resolution(null, null, null);
+
+        /**
+         * The resolution could not be discovered (for example because the API was not available).
+         */
+        static final Resolution FAILED = new Resolution(null, null, null);
+    }
+}
@@ -1,6 +1,5 @@
 package com.openelements.conduct.integration.log;
 
-import com.openelements.conduct.data.ResultHandler;
 import com.openelements.conduct.integration.discord.DiscordIntegration;
 import java.util.logging.LogRecord;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,7 +16,7 @@ import org.springframework.context.annotation.Configuration;
 public class LogConfig {
 
     @Bean
-    ResultHandler logResultHandler() {
+    LogIntegration logResultHandler() {
         return new LogIntegration();
     }
 
@@ -1,6 +1,8 @@
 package com.openelements.conduct.integration.log;
 
 import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.EarlyVerdictListener;
+import com.openelements.conduct.data.Message;
 import com.openelements.conduct.data.ResultHandler;
 import com.openelements.conduct.data.ViolationState;
 import java.util.Objects;
@@ -8,7 +10,7 @@ import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LogIntegration implements ResultHandler {
+public class LogIntegration implements ResultHandler, EarlyVerdictListener {
 
     private final static Logger log = LoggerFactory.getLogger(LogIntegration.class);
 
@@ -25,4 +27,9 @@ public class LogIntegration implements ResultHandler {
             log.warn("Violation found!!!! :( -> {} \n {}", result.message().link(), result.reason());
         }
     }
+
+    @Override
+    public void onEarlyVerdict(@NonNull Message message, @NonNull ViolationState state) {
+        log.debug("Verdict {} received for {}", state, message.link());
+    }
 }
@@ -0,0 +1,101 @@
+package com.openelements.conduct.integration.neardup;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.data.ViolationState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} stage that reuses the verdict of a recently checked message for a near duplicate of it. Spam
+ * waves post slightly changed copies of the same text (other mentions, links or punctuation) that the exact cache
+ * misses.
+ * <p>
+ * Only verdicts with one of the configured states are reused. By default a NONE verdict is not reused, since changing
+ * a single word of a harmless text can make it offending. Short messages are never matched for the same reason.
+ */
+public class NearDuplicateConductChecker implements ConductChecker {
+
+    private final static Logger log = LoggerFactory.getLogger(NearDuplicateConductChecker.class);
+
+    private final ConductChecker delegate;
+
+    private final NearDuplicateIndex index;
+
+    private final CodeOfConductProvider codeOfConductProvider;
+
+    private final Set<ViolationState> reusedStates;
+
+    private final int minWords;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public NearDuplicateConductChecker(@NonNull final ConductChecker delegate, @NonNull final NearDuplicateIndex index,
+            @NonNull final CodeOfConductProvider codeOfConductProvider,
+            @NonNull final Set<ViolationState> reusedStates, final int minWords,
+            @NonNull final MeterRegistry meterRegistry) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.index = Objects.requireNonNull(index, "index must not be null");
+        this.codeOfConductProvider = Objects.requireNonNull(codeOfConductProvider,
+                "codeOfConductProvider must not be null");
+        this.reusedStates = Set.copyOf(Objects.requireNonNull(reusedStates, "reusedStates must not be null"));
+        this.minWords = minWords;
+        Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.hits = Counter.builder("guardian.near-duplicate.messages").tag("outcome", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("guardian.near-duplicate.messages").tag("outcome", "miss")
+                .register(meterRegistry);
+        Gauge.builder("guardian.near-duplicate.entries", index, NearDuplicateIndex::size)
+                .description("Messages in the near duplicate index")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final List<String> words = new ArrayList<>(SimHash.words(message.title()));
+        words.addAll(SimHash.words(message.message()));
+        if (words.size() < minWords) {
+            return delegate.checkAsync(message);
+        }
+        final long fingerprint = SimHash.fingerprint(words);
+        final String version = codeOfConductProvider.forMessage(message)
+                .getVersion(TextfileType.MARKDOWN);
+        final CheckResult known = index.find(fingerprint, version);
+        if (known != null) {
+            hits.increment();
+            log.debug("Message {} is a near duplicate of {}", message.link(), known.message().link());
+            return CompletableFuture.completedFuture(new CheckResult(message, known.state(),
+                    known.reason() + " (near duplicate of " + known.message().link() + ")", known.confidence(),
+                    "near-duplicate"));
+        }
+        misses.increment();
+        final CompletableFuture<CheckResult> checked = delegate.checkAsync(message);
+        return Futures.propagateCancellation(checked.thenApply(result -> {
+            if (reusedStates.contains(result.state())) {
+                index.add(fingerprint, version, result);
+            }
+            return result;
+        }), checked);
+    }
+}
@@ -0,0 +1,48 @@
+package com.openelements.conduct.integration.neardup;
+
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import com.openelements.conduct.data.ViolationState;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@ConditionalOnProperty(
+        name = "guardian.check.near-duplicate.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class NearDuplicateConfig {
+
+    @Value("${guardian.check.near-duplicate.max-distance:6}")
+    private int maxDistance;
+
+    @Value("${guardian.check.near-duplicate.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${guardian.check.near-duplicate.ttl:1h}")
+    private Duration timeToLive;
+
+    @Value("${guardian.check.near-duplicate.min-words:8}")
+    private int minWords;
+
+    @Value("${guardian.check.near-duplicate.states:POSSIBLE_VIOLATION,VIOLATION}")
+    private List<ViolationState> states;
+
+    @Bean
+    @Order(600)
+    ConductCheckerDecorator nearDuplicateConductCheckerDecorator(CodeOfConductProvider codeOfConductProvider,
+            MeterRegistry meterRegistry) {
+        return delegate -> new NearDuplicateConductChecker(delegate,
+                new NearDuplicateIndex(maxDistance, maxEntries, timeToLive, Clock.systemUTC()),
+                codeOfConductProvider, EnumSet.copyOf(states), minWords, meterRegistry);
+    }
+}
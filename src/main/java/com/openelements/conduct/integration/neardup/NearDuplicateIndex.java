@@ -0,0 +1,140 @@
+package com.openelements.conduct.integration.neardup;
+
+import com.openelements.conduct.data.CheckResult;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An index of SimHash fingerprints of recently checked messages and their verdicts. Lookups use banded locality
+ * sensitive hashing: the 64 bits are split in {@code maxDistance + 1} bands, so (by the pigeonhole principle) each
+ * fingerprint within the distance shares at least one band with the searched one. Only the entries of matching bands
+ * are compared.
+ * <p>
+ * The index holds at most {@code maxEntries} entries. The oldest entries are evicted first and entries older than
+ * {@code timeToLive} are not used anymore.
+ */
+public class NearDuplicateIndex {
+
+    private final int maxDistance;
+
+    private final int maxEntries;
+
+    private final Duration timeToLive;
+
+    private final Clock clock;
+
+    private final int bandBits;
+
+    private final List<Map<Long, List<Entry>>> bands;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    public NearDuplicateIndex(final int maxDistance, final int maxEntries, @NonNull final Duration timeToLive,
+            @NonNull final Clock clock) {
+        if (maxDistance < 0 || maxDistance > 10) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and 10");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxDistance = maxDistance;
+        this.maxEntries = maxEntries;
+        this.timeToLive = Objects.requireNonNull(timeToLive, "timeToLive must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        final int bandCount = maxDistance + 1;
+        this.bandBits = (Long.SIZE + bandCount - 1) / bandCount;
+        this.bands = new ArrayList<>(bandCount);
+        for (int i = 0; i < bandCount; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Returns the verdict of the nearest indexed fingerprint within the maximum distance.
+     *
+     * @param fingerprint the fingerprint
+     * @param version     the version the verdict must have been created for (like the version of the Code of
+     *                    Conduct)
+     * @return the verdict or {@code null}
+     */
+    public synchronized @Nullable CheckResult find(final long fingerprint, @NonNull final String version) {
+        evict();
+        Entry nearest = null;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (int band = 0; band < bands.size(); band++) {
+            final List<Entry> candidates = bands.get(band).get(band(fingerprint, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (Entry candidate : candidates) {
+                final int distance = SimHash.distance(fingerprint, candidate.fingerprint());
+                if (distance <= maxDistance && distance < nearestDistance && candidate.version().equals(version)) {
+                    nearest = candidate;
+                    nearestDistance = distance;
+                }
+            }
+        }
+        return nearest == null ? null : nearest.result();
+    }
+
+    /**
+     * Adds the verdict for the fingerprint.
+     */
+    public synchronized void add(final long fingerprint, @NonNull final String version,
+            @NonNull final CheckResult result) {
+        Objects.requireNonNull(version, "version must not be null");
+        Objects.requireNonNull(result, "result must not be null");
+        final Entry entry = new Entry(fingerprint, version, result, clock.millis());
+        entries.addLast(entry);
+        for (int band = 0; band < bands.size(); band++) {
+            bands.get(band).computeIfAbsent(band(fingerprint, band), key -> new ArrayList<>(1)).add(entry);
+        }
+        while (entries.size() > maxEntries) {
+            remove(entries.removeFirst());
+        }
+        evict();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        final long oldest = clock.millis() - timeToLive.toMillis();
+        while (!entries.isEmpty() && entries.peekFirst().created() < oldest) {
+            remove(entries.removeFirst());
+        }
+    }
+
+    private void remove(@NonNull final Entry entry) {
+        for (int band = 0; band < bands.size(); band++) {
+            final Long key = band(entry.fingerprint(), band);
+            final List<Entry> bucket = bands.get(band).get(key);
+            if (bucket != null) {
+                // entries are evicted in insertion order, so the entry is at the start of the bucket
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    bands.get(band).remove(key);
+                }
+            }
+        }
+    }
+
+    private long band(final long fingerprint, final int band) {
+        final int shift = band * bandBits;
+        final long mask = bandBits >= Long.SIZE ? -1L : (1L << bandBits) - 1;
+        return fingerprint >>> shift & mask;
+    }
+
+    private record Entry(long fingerprint, @NonNull String version, @NonNull CheckResult result, long created) {
+    }
+}
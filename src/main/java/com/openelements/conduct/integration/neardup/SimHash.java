@@ -0,0 +1,99 @@
+package com.openelements.conduct.integration.neardup;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 64 bit SimHash fingerprints of texts. Similar texts get fingerprints with a small Hamming distance.
+ * <p>
+ * The features of a text are its words and word pairs. Before that the text is reduced to lower case words of letters, so
+ * changed links, mentions, numbers and punctuation (as typical for spam waves) do not change the fingerprint.
+ */
+public final class SimHash {
+
+    private SimHash() {
+    }
+
+    /**
+     * Returns the words of the text that are used as features.
+     */
+    @NonNull
+    static List<String> words(@Nullable final String text) {
+        final List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        final String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        final StringBuilder word = new StringBuilder();
+        boolean skip = false;
+        for (int i = 0; i <= normalized.length(); i++) {
+            final char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.isWhitespace(c)) {
+                if (!skip && !word.isEmpty()) {
+                    words.add(word.toString());
+                }
+                word.setLength(0);
+                skip = false;
+            } else if (word.isEmpty() && !skip && (c == '@' || normalized.startsWith("http", i))) {
+                // mentions and links are the parts a spam wave changes
+                skip = true;
+            } else if (!skip && Character.isLetter(c)) {
+                word.append(c);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the fingerprint of the words.
+     */
+    public static long fingerprint(@NonNull final List<String> words) {
+        Objects.requireNonNull(words, "words must not be null");
+        final int[] weights = new int[Long.SIZE];
+        for (int i = 0; i < words.size(); i++) {
+            add(weights, hash(words.get(i)));
+            if (i > 0) {
+                add(weights, hash(words.get(i - 1) + ' ' + words.get(i)));
+            }
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(final long a, final long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static void add(final int @NonNull [] weights, final long hash) {
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            weights[bit] += (hash >>> bit & 1) == 1 ? 1 : -1;
+        }
+    }
+
+    /**
+     * FNV-1a with the finalizer of MurmurHash3, so all bits of the hash depend on all characters.
+     */
+    private static long hash(@NonNull final String feature) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < feature.length(); i++) {
+            hash ^= feature.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
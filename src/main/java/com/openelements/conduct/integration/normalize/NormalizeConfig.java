@@ -0,0 +1,28 @@
+package com.openelements.conduct.integration.normalize;
+
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import com.openelements.conduct.data.TextfileType;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@ConditionalOnProperty(
+        name = "guardian.check.normalize.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class NormalizeConfig {
+
+    @Value("${guardian.check.normalize.type:MARKDOWN}")
+    private TextfileType type;
+
+    @Bean
+    @Order(200)
+    ConductCheckerDecorator normalizingConductCheckerDecorator(MeterRegistry meterRegistry) {
+        return delegate -> new NormalizingConductChecker(delegate, type, meterRegistry);
+    }
+}
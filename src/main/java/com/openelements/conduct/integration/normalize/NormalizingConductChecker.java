@@ -0,0 +1,70 @@
+package com.openelements.conduct.integration.normalize;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.integration.normalize.TextNormalizer.NormalizedText;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} stage that removes templates, comments and markup from a message before it is checked.
+ * See {@link TextNormalizer}. Everything that is shown to the readers (including code and quotes) is still checked.
+ * The verdict is returned for the original message.
+ * <p>
+ * If nothing is left after the normalization the original message is checked.
+ */
+public class NormalizingConductChecker implements ConductChecker {
+
+    private final static Logger log = LoggerFactory.getLogger(NormalizingConductChecker.class);
+
+    private final ConductChecker delegate;
+
+    private final TextfileType type;
+
+    private final DistributionSummary removedCharacters;
+
+    public NormalizingConductChecker(@NonNull final ConductChecker delegate, @NonNull final TextfileType type,
+            @NonNull final MeterRegistry meterRegistry) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.type = Objects.requireNonNull(type, "type must not be null");
+        Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.removedCharacters = DistributionSummary.builder("guardian.normalize.removed-characters")
+                .description("Characters removed from a message before it is checked")
+                .baseUnit("characters")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final NormalizedText normalized = TextNormalizer.normalize(message.message(), type);
+        if (normalized.removedCharacters() == 0) {
+            removedCharacters.record(0);
+            return delegate.checkAsync(message);
+        }
+        if (normalized.text().isEmpty()) {
+            log.debug("Normalization of {} removed all content, checking the original message", message.link());
+            removedCharacters.record(0);
+            return delegate.checkAsync(message);
+        }
+        log.debug("Normalization of {} removed {} of {} characters", message.link(),
+                normalized.removedCharacters(), message.message().length());
+        removedCharacters.record(normalized.removedCharacters());
+        final Message normalizedMessage = message.withMessage(normalized.text());
+        final CompletableFuture<CheckResult> checked = delegate.checkAsync(normalizedMessage);
+        return Futures.propagateCancellation(checked.thenApply(result -> result.withMessage(message)), checked);
+    }
+}
@@ -0,0 +1,359 @@
+package com.openelements.conduct.integration.normalize;
+
+import com.openelements.conduct.data.TextfileType;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reduces a message to the text that is shown to its readers. The text is tokenized in a single pass, line by line,
+ * and only templates, comments and markup are dropped:
+ * <ul>
+ *     <li>HTML comments (like the hints of issue templates) and the content of {@code <script>}/{@code <style>}</li>
+ *     <li>HTML tags, images, URLs of links and bare URLs (the text of a link is kept)</li>
+ *     <li>the markup of code fences, quotes, headings, lists and checkboxes (their content is kept)</li>
+ * </ul>
+ * Code blocks, stack traces and quotes are kept, since everything that is rendered can contain a violation.
+ * For {@link TextfileType#PLAIN} only the whitespace is normalized, for {@link TextfileType#HTML} no markdown syntax is
+ * interpreted.
+ */
+public final class TextNormalizer {
+
+    private final static Set<String> SKIPPED_ELEMENTS = Set.of("script", "style");
+
+    private final TextfileType type;
+
+    private final StringBuilder out = new StringBuilder();
+
+    private char fenceChar;
+
+    private int fenceLength;
+
+    private boolean inHtmlComment;
+
+    private @Nullable String skippedElement;
+
+    private boolean previousBlank = true;
+
+    private boolean inList;
+
+    private TextNormalizer(@NonNull final TextfileType type) {
+        this.type = type;
+    }
+
+    /**
+     * Normalizes the given text.
+     *
+     * @param text the text
+     * @param type the type of the text
+     * @return the normalized text and the number of removed characters
+     */
+    @NonNull
+    public static NormalizedText normalize(@NonNull final String text, @NonNull final TextfileType type) {
+        Objects.requireNonNull(text, "text must not be null");
+        Objects.requireNonNull(type, "type must not be null");
+        final TextNormalizer normalizer = new TextNormalizer(type);
+        int position = 0;
+        while (position <= text.length()) {
+            int end = text.indexOf('\n', position);
+            if (end < 0) {
+                end = text.length();
+            }
+            final int lineEnd = end > position && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            normalizer.line(text, position, lineEnd);
+            position = end + 1;
+        }
+        final String normalized = normalizer.out.toString().strip();
+        return new NormalizedText(normalized, Math.max(0, text.length() - normalized.length()));
+    }
+
+    private void line(@NonNull final String text, final int start, final int end) {
+        final int lengthBefore = out.length();
+        if (type == TextfileType.PLAIN) {
+            out.append(text, start, end);
+        } else if (type == TextfileType.HTML) {
+            inline(text, start, end);
+        } else {
+            markdownLine(text, start, end);
+        }
+        // trailing whitespace is dropped and blank lines are collapsed
+        int length = out.length();
+        while (length > lengthBefore && Character.isWhitespace(out.charAt(length - 1))) {
+            length--;
+        }
+        out.setLength(length);
+        if (length == lengthBefore) {
+            if (!previousBlank) {
+                out.append('\n');
+            }
+            previousBlank = true;
+        } else {
+            out.append('\n');
+            previousBlank = false;
+        }
+    }
+
+    private void markdownLine(@NonNull final String text, final int start, final int end) {
+        if (inHtmlComment || skippedElement != null) {
+            inline(text, start, end);
+            return;
+        }
+        int indent = 0;
+        int content = start;
+        while (content < end && (text.charAt(content) == ' ' || text.charAt(content) == '\t')) {
+            indent += text.charAt(content) == '\t' ? 4 : 1;
+            content++;
+        }
+        if (fenceLength > 0) {
+            if (indent < 4 && countRun(text, content, end, fenceChar) >= fenceLength
+                    && isBlank(text, content + countRun(text, content, end, fenceChar), end)) {
+                fenceLength = 0;
+            } else {
+                // code is kept as it is, it is not interpreted as markdown
+                out.append(text, content, end);
+            }
+            return;
+        }
+        if (content == end) {
+            inList = inList && !previousBlank;
+            return;
+        }
+        final char first = text.charAt(content);
+        if (indent < 4 && (first == '`' || first == '~') && countRun(text, content, end, first) >= 3) {
+            fenceChar = first;
+            fenceLength = countRun(text, content, end, first);
+            return;
+        }
+        if (indent >= 4 && previousBlank && !inList) {
+            out.append(text, content, end);
+            return;
+        }
+        while (content < end && (text.charAt(content) == '>' || text.charAt(content) == ' ')) {
+            content++;
+        }
+        if (content == end) {
+            return;
+        }
+        final int listContent = listItemContent(text, content, end);
+        if (listContent >= 0) {
+            inList = true;
+            content = listContent;
+            if (isCheckbox(text, content, end)) {
+                content += 3;
+                while (content < end && text.charAt(content) == ' ') {
+                    content++;
+                }
+            }
+        } else if (text.charAt(content) == '#') {
+            final int hashes = countRun(text, content, end, '#');
+            if (hashes <= 6 && (content + hashes == end || text.charAt(content + hashes) == ' ')) {
+                content += hashes;
+            }
+        }
+        inline(text, content, end);
+    }
+
+    /**
+     * Copies the prose of a line and drops HTML comments, tags, images and URLs.
+     */
+    private void inline(@NonNull final String text, final int start, final int end) {
+        int i = start;
+        while (i < end) {
+            if (inHtmlComment) {
+                final int close = text.indexOf("-->", i);
+                if (close < 0 || close >= end) {
+                    return;
+                }
+                inHtmlComment = false;
+                i = close + 3;
+                continue;
+            }
+            if (skippedElement != null) {
+                final int close = indexOfIgnoreCase(text, "</" + skippedElement, i, end);
+                if (close < 0) {
+                    return;
+                }
+                final int tagEnd = text.indexOf('>', close);
+                skippedElement = null;
+                i = tagEnd < 0 || tagEnd >= end ? end : tagEnd + 1;
+                continue;
+            }
+            final char c = text.charAt(i);
+            if (c == '<') {
+                if (text.startsWith("<!--", i)) {
+                    inHtmlComment = true;
+                    i += 4;
+                    continue;
+                }
+                final int tagEnd = tagEnd(text, i, end);
+                if (tagEnd > 0) {
+                    final String name = tagName(text, i + 1, tagEnd);
+                    if (SKIPPED_ELEMENTS.contains(name) && text.charAt(tagEnd - 1) != '/') {
+                        skippedElement = name;
+                    }
+                    i = tagEnd + 1;
+                    continue;
+                }
+            } else if (c == '&') {
+                final int entityEnd = decodeEntity(text, i, end);
+                if (entityEnd > 0) {
+                    i = entityEnd;
+                    continue;
+                }
+            } else if (type == TextfileType.MARKDOWN && (c == '!' || c == '[')) {
+                final int linkEnd = link(text, c == '!' ? i + 1 : i, end, c == '!');
+                if (linkEnd > 0) {
+                    i = linkEnd;
+                    continue;
+                }
+            } else if (type == TextfileType.MARKDOWN && c == '`') {
+                i++;
+                continue;
+            } else if (c == 'h' && (text.startsWith("http://", i) || text.startsWith("https://", i))) {
+                while (i < end && !Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                continue;
+            }
+            out.append(c);
+            i++;
+        }
+    }
+
+    /**
+     * Handles {@code [text](url)} and {@code ![alt](url)}. The text of a link is kept, images are dropped.
+     *
+     * @return the index after the link or -1 if there is no link at the position
+     */
+    private int link(@NonNull final String text, final int start, final int end, final boolean image) {
+        if (start >= end || text.charAt(start) != '[') {
+            return -1;
+        }
+        final int textEnd = text.indexOf("](", start);
+        if (textEnd < 0 || textEnd >= end) {
+            return -1;
+        }
+        final int urlEnd = text.indexOf(')', textEnd);
+        if (urlEnd < 0 || urlEnd >= end) {
+            return -1;
+        }
+        if (!image) {
+            inline(text, start + 1, textEnd);
+        }
+        return urlEnd + 1;
+    }
+
+    private int decodeEntity(@NonNull final String text, final int start, final int end) {
+        final int semicolon = text.indexOf(';', start);
+        if (semicolon < 0 || semicolon >= end || semicolon - start > 8) {
+            return -1;
+        }
+        final String decoded = switch (text.substring(start + 1, semicolon)) {
+            case "amp" -> "&";
+            case "lt" -> "<";
+            case "gt" -> ">";
+            case "quot" -> "\"";
+            case "apos", "#39" -> "'";
+            case "nbsp" -> " ";
+            default -> null;
+        };
+        if (decoded == null) {
+            return -1;
+        }
+        out.append(decoded);
+        return semicolon + 1;
+    }
+
+    /**
+     * Returns the index of the closing {@code >} of a tag at the position or -1 if there is no tag.
+     */
+    private static int tagEnd(@NonNull final String text, final int start, final int end) {
+        if (start + 1 >= end) {
+            return -1;
+        }
+        final char next = text.charAt(start + 1);
+        if (!Character.isLetter(next) && next != '/') {
+            return -1;
+        }
+        final int close = text.indexOf('>', start);
+        return close < 0 || close >= end ? -1 : close;
+    }
+
+    private static String tagName(@NonNull final String text, final int start, final int end) {
+        int i = start;
+        while (i < end && Character.isLetterOrDigit(text.charAt(i))) {
+            i++;
+        }
+        return text.substring(start, i).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the start of the content of a list item ({@code - }, {@code * }, {@code + } or {@code 1. }) or -1.
+     */
+    private static int listItemContent(@NonNull final String text, final int start, final int end) {
+        int i = start;
+        final char first = text.charAt(i);
+        if (first == '-' || first == '*' || first == '+') {
+            i++;
+        } else {
+            while (i < end && i - start < 9 && Character.isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == start || i >= end || text.charAt(i) != '.' && text.charAt(i) != ')') {
+                return -1;
+            }
+            i++;
+        }
+        if (i < end && text.charAt(i) != ' ') {
+            return -1;
+        }
+        while (i < end && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isCheckbox(@NonNull final String text, final int start, final int end) {
+        return end - start >= 3 && text.charAt(start) == '['
+                && " xX".indexOf(text.charAt(start + 1)) >= 0
+                && text.charAt(start + 2) == ']';
+    }
+
+    private static int countRun(@NonNull final String text, final int start, final int end, final char c) {
+        int i = start;
+        while (i < end && text.charAt(i) == c) {
+            i++;
+        }
+        return i - start;
+    }
+
+    private static boolean isBlank(@NonNull final String text, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfIgnoreCase(@NonNull final String text, @NonNull final String search, final int start,
+            final int end) {
+        for (int i = start; i <= end - search.length(); i++) {
+            if (text.regionMatches(true, i, search, 0, search.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The result of a normalization.
+     *
+     * @param text              the normalized text
+     * @param removedCharacters the number of characters that have been removed
+     */
+    public record NormalizedText(@NonNull String text, int removedCharacters) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.openelements.conduct.integration.openai;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} that collects messages for up to {@code maxBatchSize} messages or {@code maxDelay} and
+ * checks them with a single request to the OpenAI API. By that the Code of Conduct is only sent once per batch. If the
+ * batch response is malformed (or misses a verdict for a message) the affected messages are checked one by one.
+ */
+public class BatchingConductChecker implements ConductChecker, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(BatchingConductChecker.class);
+
+    private final OpenAiBasedConductChecker delegate;
+
+    private final int maxBatchSize;
+
+    private final Duration maxDelay;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService executor;
+
+    private final Object lock = new Object();
+
+    private List<PendingCheck> pending = new ArrayList<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    public BatchingConductChecker(@NonNull final OpenAiBasedConductChecker delegate, final int maxBatchSize,
+            @NonNull final Duration maxDelay) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.maxDelay = Objects.requireNonNull(maxDelay, "maxDelay must not be null");
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("openai-batch-scheduler")
+                .daemon(true)
+                .factory());
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        log.info("Batching OpenAI checks with up to {} messages or {} ms", maxBatchSize, maxDelay.toMillis());
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        return checkAsync(message, state -> {});
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message,
+            @NonNull final Consumer<ViolationState> earlyVerdict) {
+        Objects.requireNonNull(message, "message must not be null");
+        Objects.requireNonNull(earlyVerdict, "earlyVerdict must not be null");
+        final PendingCheck check = new PendingCheck(message, new CompletableFuture<>(), earlyVerdict);
+        List<PendingCheck> fullBatch = null;
+        synchronized (lock) {
+            pending.add(check);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(this::flush, maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            submit(fullBatch);
+        }
+        return check.result();
+    }
+
+    private List<PendingCheck> takePending() {
+        final List<PendingCheck> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void flush() {
+        final List<PendingCheck> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private void submit(@NonNull final List<PendingCheck> batch) {
+        executor.execute(() -> checkBatch(batch));
+    }
+
+    private void checkBatch(@NonNull final List<PendingCheck> batch) {
+        // a request contains a single Code of Conduct, so messages of repositories with different ones are split
+        final Map<String, List<PendingCheck>> byCodeOfConduct = new LinkedHashMap<>();
+        for (PendingCheck check : batch) {
+            if (check.result().isDone()) {
+                // cancelled while waiting for the batch
+                continue;
+            }
+            final String version;
+            try {
+                version = delegate.getCodeOfConductVersion(check.message());
+            } catch (Exception e) {
+                check.result().completeExceptionally(e);
+                continue;
+            }
+            byCodeOfConduct.computeIfAbsent(version, ignored -> new ArrayList<>()).add(check);
+        }
+        byCodeOfConduct.values().forEach(this::checkSameCodeOfConduct);
+    }
+
+    private void checkSameCodeOfConduct(@NonNull final List<PendingCheck> batch) {
+        if (batch.size() == 1) {
+            checkSingle(batch.getFirst());
+            return;
+        }
+        log.debug("Checking batch of {} messages", batch.size());
+        delegate.checkBatchAsync(batch.stream().map(PendingCheck::message).toList())
+                .whenComplete((results, throwable) -> {
+                    if (throwable != null) {
+                        log.warn("Batch check of {} messages failed, checking messages one by one", batch.size(),
+                                Futures.getCause(throwable));
+                        batch.forEach(this::checkSingle);
+                        return;
+                    }
+                    for (int i = 0; i < batch.size(); i++) {
+                        final PendingCheck check = batch.get(i);
+                        final CheckResult result = results.get(i);
+                        if (result != null) {
+                            check.earlyVerdict().accept(result.state());
+                            check.result().complete(result);
+                        } else {
+                            log.warn("Batch response contains no verdict for {}, checking it on its own",
+                                    check.message().link());
+                            checkSingle(check);
+                        }
+                    }
+                });
+    }
+
+    private void checkSingle(@NonNull final PendingCheck check) {
+        final CompletableFuture<CheckResult> single = delegate.checkAsync(check.message(), check.earlyVerdict());
+        Futures.propagateCancellation(check.result(), single);
+        single.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                check.result().completeExceptionally(Futures.getCause(throwable));
+            } else {
+                check.result().complete(result);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        flush();
+        scheduler.shutdownNow();
+        executor.close();
+    }
+
+    private record PendingCheck(@NonNull Message message, @NonNull CompletableFuture<CheckResult> result,
+            @NonNull Consumer<ViolationState> earlyVerdict) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.openelements.conduct.integration.openai;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} that checks messages with a fast (small and cheap) model first and only escalates to the
+ * strong model if the fast verdict is not good enough:
+ * <ul>
+ *     <li>the fast model answered {@link ViolationState#POSSIBLE_VIOLATION}</li>
+ *     <li>the fast model is less confident than {@code minConfidence}</li>
+ *     <li>the fast model failed</li>
+ * </ul>
+ * Messages longer than {@code maxFastLength} characters go to the strong model directly. The tier that decided is
+ * added in front of {@link CheckResult#decidedBy()}.
+ * <p>
+ * A verdict of the fast model without confidence is accepted, so models that ignore the confidence field still
+ * benefit from the cascade.
+ */
+public class CascadingConductChecker implements ConductChecker, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(CascadingConductChecker.class);
+
+    private final ConductChecker fast;
+
+    private final ConductChecker strong;
+
+    private final double minConfidence;
+
+    private final int maxFastLength;
+
+    private final Counter fastDecided;
+
+    private final Counter escalated;
+
+    private final Counter strongOnly;
+
+    public CascadingConductChecker(@NonNull final ConductChecker fast, @NonNull final ConductChecker strong,
+            final double minConfidence, final int maxFastLength, @NonNull final MeterRegistry meterRegistry) {
+        this.fast = Objects.requireNonNull(fast, "fast must not be null");
+        this.strong = Objects.requireNonNull(strong, "strong must not be null");
+        this.minConfidence = minConfidence;
+        this.maxFastLength = maxFastLength;
+        Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.fastDecided = tierCounter(meterRegistry, "fast");
+        this.escalated = tierCounter(meterRegistry, "escalated");
+        this.strongOnly = tierCounter(meterRegistry, "strong");
+    }
+
+    private static Counter tierCounter(@NonNull final MeterRegistry meterRegistry, @NonNull final String outcome) {
+        return Counter.builder("guardian.openai.cascade.messages")
+                .description("Messages by the tier of the cascade that decided")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        return checkAsync(message, state -> {});
+    }
+
+    /**
+     * Checks the message. The verdict of the fast model is only passed on once it is accepted, since it may still be
+     * escalated by its confidence, the verdict of the strong model as soon as it is decided.
+     */
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message,
+            @NonNull final Consumer<ViolationState> earlyVerdict) {
+        Objects.requireNonNull(message, "message must not be null");
+        Objects.requireNonNull(earlyVerdict, "earlyVerdict must not be null");
+        final int length = message.message().length() + (message.title() == null ? 0 : message.title().length());
+        if (length > maxFastLength) {
+            strongOnly.increment();
+            return checkStrong(message, earlyVerdict);
+        }
+        final CompletableFuture<CheckResult> fastResult = fast.checkAsync(message);
+        final CompletableFuture<@Nullable CheckResult> accepted = fastResult.handle((result, throwable) -> {
+            if (throwable != null) {
+                log.warn("Fast check of {} failed, escalating", message.link(), Futures.getCause(throwable));
+                return null;
+            }
+            return needsEscalation(result) ? null : result;
+        });
+        // cancelling the check cancels the fast or, once escalated, the strong check
+        return Futures.composeCancellable(Futures.propagateCancellation(accepted, fastResult), result -> {
+            if (result != null) {
+                fastDecided.increment();
+                earlyVerdict.accept(result.state());
+                return CompletableFuture.completedFuture(result.withDecidedBy(tier("fast", result)));
+            }
+            escalated.increment();
+            return checkStrong(message, earlyVerdict);
+        });
+    }
+
+    private boolean needsEscalation(@NonNull final CheckResult result) {
+        return result.state() == ViolationState.POSSIBLE_VIOLATION
+                || result.confidence() != null && result.confidence() < minConfidence;
+    }
+
+    @NonNull
+    private CompletableFuture<CheckResult> checkStrong(@NonNull final Message message,
+            @NonNull final Consumer<ViolationState> earlyVerdict) {
+        final CompletableFuture<CheckResult> result = strong.checkAsync(message, earlyVerdict);
+        return Futures.propagateCancellation(result.thenApply(checkResult ->
+                checkResult.withDecidedBy(tier("strong", checkResult))), result);
+    }
+
+    @NonNull
+    private static String tier(@NonNull final String tier, @NonNull final CheckResult result) {
+        return result.decidedBy() == null ? tier : tier + "/" + result.decidedBy();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (ConductChecker checker : new ConductChecker[]{fast, strong}) {
+            if (checker instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.openelements.conduct.integration.openai;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.data.ViolationState;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} that splits messages that are too large for a single request into overlapping chunks. The
+ * chunks are cut at paragraph and markdown boundaries (blank lines, headings and code fences), checked in parallel
+ * and reduced to the worst verdict. The reasons of all chunks with that verdict are merged.
+ * <p>
+ * The chunk size is the context window of the model minus the Code of Conduct and a reserve for the instructions and
+ * the answer, capped by {@code maxChunkTokens} since very large prompts are slow.
+ */
+public class ChunkingConductChecker implements ConductChecker, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(ChunkingConductChecker.class);
+
+    /**
+     * Tokens reserved for the instructions of the prompt and the answer.
+     */
+    private final static int PROMPT_RESERVE_TOKENS = 1_024;
+
+    private final static int MIN_CHUNK_TOKENS = 256;
+
+    private final ConductChecker delegate;
+
+    private final CodeOfConductProvider codeOfConductProvider;
+
+    private final TokenEstimator tokenEstimator;
+
+    private final int maxChunkTokens;
+
+    private final int overlapTokens;
+
+    private final AtomicReference<ChunkBudget> budget = new AtomicReference<>();
+
+    public ChunkingConductChecker(@NonNull final ConductChecker delegate,
+            @NonNull final CodeOfConductProvider codeOfConductProvider, @NonNull final TokenEstimator tokenEstimator,
+            final int maxChunkTokens, final int overlapTokens) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.codeOfConductProvider = Objects.requireNonNull(codeOfConductProvider,
+                "codeOfConductProvider must not be null");
+        this.tokenEstimator = Objects.requireNonNull(tokenEstimator, "tokenEstimator must not be null");
+        if (maxChunkTokens < MIN_CHUNK_TOKENS) {
+            throw new IllegalArgumentException("maxChunkTokens must be at least " + MIN_CHUNK_TOKENS);
+        }
+        if (overlapTokens < 0 || overlapTokens >= maxChunkTokens / 2) {
+            throw new IllegalArgumentException("overlapTokens must be between 0 and half of maxChunkTokens");
+        }
+        this.maxChunkTokens = maxChunkTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        return checkAsync(message, state -> {});
+    }
+
+    /**
+     * Checks the message. The worst verdict of the chunks is passed on once every chunk has decided, or at once when
+     * a chunk finds a violation.
+     */
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message,
+            @NonNull final Consumer<ViolationState> earlyVerdict) {
+        Objects.requireNonNull(message, "message must not be null");
+        Objects.requireNonNull(earlyVerdict, "earlyVerdict must not be null");
+        final int chunkTokens = getChunkTokens(codeOfConductProvider.forMessage(message));
+        final String title = message.title() == null ? "" : message.title();
+        if (tokenEstimator.estimate(title) + tokenEstimator.estimate(message.message()) <= chunkTokens) {
+            return delegate.checkAsync(message, earlyVerdict);
+        }
+        final List<String> chunks = split(message.message(), chunkTokens - tokenEstimator.estimate(title));
+        log.debug("Checking {} in {} chunks of up to {} tokens", message.link(), chunks.size(), chunkTokens);
+        final ChunkVerdicts chunkVerdicts = new ChunkVerdicts(chunks.size(), earlyVerdict);
+        final List<CompletableFuture<CheckResult>> results = chunks.stream()
+                .map(chunk -> delegate.checkAsync(message.withMessage(chunk), chunkVerdicts::decided))
+                .toList();
+        final CompletableFuture<CheckResult> reduced = CompletableFuture
+                .allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> reduce(message, results.stream().map(CompletableFuture::join).toList()));
+        reduced.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                results.forEach(chunkResult -> chunkResult.cancel(true));
+            }
+        });
+        return reduced;
+    }
+
+    private int getChunkTokens(@NonNull final CodeOfConductProvider codeOfConductProvider) {
+        final String version = codeOfConductProvider.getVersion(TextfileType.MARKDOWN);
+        final ChunkBudget current = budget.get();
+        if (current != null && current.codeOfConductVersion().equals(version)) {
+            return current.tokens();
+        }
+        final int codeOfConductTokens = tokenEstimator.estimate(
+                codeOfConductProvider.getCodeOfConduct(TextfileType.MARKDOWN));
+        final int available = tokenEstimator.getContextWindow() - codeOfConductTokens - PROMPT_RESERVE_TOKENS;
+        if (available < MIN_CHUNK_TOKENS) {
+            log.warn("Code of Conduct leaves only {} tokens of the context window of {}", available,
+                    tokenEstimator.getModel());
+        }
+        final int tokens = Math.max(MIN_CHUNK_TOKENS, Math.min(maxChunkTokens, available));
+        budget.set(new ChunkBudget(version, tokens));
+        return tokens;
+    }
+
+    @NonNull
+    private static CheckResult reduce(@NonNull final Message message, @NonNull final List<CheckResult> results) {
+        final ViolationState worst = results.stream()
+                .map(CheckResult::state)
+                .max(Comparator.naturalOrder())
+                .orElse(ViolationState.NONE);
+        final List<CheckResult> deciding = results.stream().filter(result -> result.state() == worst).toList();
+        final String reason = IntStream.range(0, results.size())
+                .filter(i -> results.get(i).state() == worst)
+                .mapToObj(i -> results.size() == 1 ? results.get(i).reason()
+                        : "Part " + (i + 1) + "/" + results.size() + ": " + results.get(i).reason())
+                .collect(Collectors.joining("\n"));
+        // the verdict is as certain as the least certain chunk that led to it
+        final Double confidence = deciding.stream().allMatch(result -> result.confidence() != null)
+                ? deciding.stream().mapToDouble(CheckResult::confidence).min().orElse(1) : null;
+        final String decidedBy = deciding.stream()
+                .map(CheckResult::decidedBy)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.joining(","));
+        return new CheckResult(message, worst, reason, confidence, decidedBy.isEmpty() ? null : decidedBy);
+    }
+
+    /**
+     * Splits the text in chunks of at most {@code chunkTokens} tokens. Each chunk starts with the end of the previous
+     * chunk (up to {@code overlapTokens}), so content at a boundary is seen in context.
+     */
+    @NonNull
+    List<String> split(@NonNull final String text, final int chunkTokens) {
+        final int limit = Math.max(MIN_CHUNK_TOKENS / 2, chunkTokens);
+        final List<String> pieces = new ArrayList<>();
+        for (String block : splitBlocks(text)) {
+            if (tokenEstimator.estimate(block) <= limit) {
+                pieces.add(block);
+            } else {
+                for (String line : block.split("(?<=\n)")) {
+                    splitLine(line, limit, pieces);
+                }
+            }
+        }
+        final List<String> chunks = new ArrayList<>();
+        final List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (String piece : pieces) {
+            final int pieceTokens = tokenEstimator.estimate(piece);
+            if (currentTokens + pieceTokens > limit && !current.isEmpty()) {
+                chunks.add(String.join("", current));
+                // keep the trailing pieces of the last chunk as overlap
+                final List<String> overlap = new ArrayList<>();
+                int overlapSize = 0;
+                for (int i = current.size() - 1; i > 0; i--) {
+                    final int size = tokenEstimator.estimate(current.get(i));
+                    if (overlapSize + size > overlapTokens || overlapSize + size + pieceTokens > limit) {
+                        break;
+                    }
+                    overlap.addFirst(current.get(i));
+                    overlapSize += size;
+                }
+                current.clear();
+                current.addAll(overlap);
+                currentTokens = overlapSize;
+            }
+            current.add(piece);
+            currentTokens += pieceTokens;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(String.join("", current));
+        }
+        return chunks;
+    }
+
+    /**
+     * Splits markdown in blocks: paragraphs end at blank lines, headings start a new block and fenced code blocks are
+     * kept together.
+     */
+    @NonNull
+    private static List<String> splitBlocks(@NonNull final String text) {
+        final List<String> blocks = new ArrayList<>();
+        final StringBuilder block = new StringBuilder();
+        boolean inFence = false;
+        for (String line : text.split("(?<=\n)")) {
+            final String trimmed = line.strip();
+            final boolean fence = trimmed.startsWith("```") || trimmed.startsWith("~~~");
+            if (!inFence && (fence || trimmed.startsWith("#")) && !block.isEmpty()) {
+                blocks.add(block.toString());
+                block.setLength(0);
+            }
+            block.append(line);
+            if (fence) {
+                inFence = !inFence;
+            }
+            if (!inFence && (trimmed.isEmpty() || fence)) {
+                blocks.add(block.toString());
+                block.setLength(0);
+            }
+        }
+        if (!block.isEmpty()) {
+            blocks.add(block.toString());
+        }
+        return blocks;
+    }
+
+    /**
+     * Cuts a line that is too long (for example a pasted log or minified code) at whitespace if possible.
+     */
+    private void splitLine(@NonNull final String line, final int limit, @NonNull final List<String> pieces) {
+        String rest = line;
+        while (tokenEstimator.estimate(rest) > limit) {
+            // the estimate grows with the length of the prefix, so the longest prefix within the limit is searched
+            int low = 1;
+            int high = rest.length();
+            while (low < high) {
+                final int middle = (low + high + 1) >>> 1;
+                if (tokenEstimator.estimate(rest.substring(0, middle)) <= limit) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            int end = low;
+            final int whitespace = rest.lastIndexOf(' ', end);
+            if (whitespace > end / 2) {
+                end = whitespace + 1;
+            }
+            if (end > 1 && Character.isHighSurrogate(rest.charAt(end - 1))) {
+                end--;
+            }
+            pieces.add(rest.substring(0, end));
+            rest = rest.substring(end);
+        }
+        if (!rest.isEmpty()) {
+            pieces.add(rest);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Reduces the early verdicts of the chunks of a message to the worst one.
+     */
+    private static final class ChunkVerdicts {
+
+        private final Consumer<ViolationState> earlyVerdict;
+
+        private int pending;
+
+        private ViolationState worst = ViolationState.NONE;
+
+        private boolean passed;
+
+        private ChunkVerdicts(final int chunks, @NonNull final Consumer<ViolationState> earlyVerdict) {
+            this.pending = chunks;
+            this.earlyVerdict = earlyVerdict;
+        }
+
+        private void decided(@NonNull final ViolationState state) {
+            final ViolationState verdict;
+            synchronized (this) {
+                pending--;
+                if (state.compareTo(worst) > 0) {
+                    worst = state;
+                }
+                // no other chunk can make a violation worse
+                if (passed || pending > 0 && worst != ViolationState.VIOLATION) {
+                    return;
+                }
+                passed = true;
+                verdict = worst;
+            }
+            earlyVerdict.accept(verdict);
+        }
+    }
+
+    private record ChunkBudget(@NonNull String codeOfConductVersion, int tokens) {
+    }
+}
@@ -0,0 +1,168 @@
+package com.openelements.conduct.integration.openai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Digests of the Code of Conduct by its version. A digest is a compact list of numbered rules that is sent instead of
+ * the full text, so every check needs far less prompt tokens. It is created once per version by the model and, if a
+ * directory is given, stored there as {@code <version>.digest.md}. A digest in the directory is used as it is, so it
+ * can be reviewed, edited or created offline.
+ * <p>
+ * A share of the checks that use a digest is evaluated against the full text, see {@link #shouldEvaluate()}.
+ * <p>
+ * All digests are created by one generator, so checkers of a fast model use the digests of the strong model.
+ */
+public class CodeOfConductDigests {
+
+    private final static Logger log = LoggerFactory.getLogger(CodeOfConductDigests.class);
+
+    private final static int MAX_DIGESTS = 1024;
+
+    private final static long RETRY_DELAY_MINUTES = 10;
+
+    private final static Pattern VERSION_PATTERN = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final static Pattern RULE_PATTERN = Pattern.compile("(?m)^\\s*1\\.\\s+\\S");
+
+    private final @Nullable Path directory;
+
+    private final double evaluationRate;
+
+    private final Function<String, CompletableFuture<String>> generator;
+
+    private final Cache<String, CompletableFuture<String>> digests = Caffeine.newBuilder()
+            .maximumSize(MAX_DIGESTS)
+            .build();
+
+    /**
+     * @param directory      the directory the digests are stored in, {@code null} to hold them in memory only
+     * @param evaluationRate the share of checks with a digest that are evaluated against the full text
+     * @param generator      creates the digest from the Code of Conduct
+     */
+    public CodeOfConductDigests(@Nullable final Path directory, final double evaluationRate,
+            @NonNull final Function<String, CompletableFuture<String>> generator) {
+        if (evaluationRate < 0 || evaluationRate > 1) {
+            throw new IllegalArgumentException("evaluationRate must be between 0 and 1");
+        }
+        this.directory = directory;
+        this.evaluationRate = evaluationRate;
+        this.generator = Objects.requireNonNull(generator, "generator must not be null");
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new RuntimeException("Can not create digest directory " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the digest of a Code of Conduct version. If the digest is neither known nor stored, it is created by
+     * the generator. Concurrent calls share one creation and a failed creation is retried after some minutes.
+     *
+     * @param version       the version of the Code of Conduct
+     * @param codeOfConduct the Code of Conduct
+     * @return the digest, completed exceptionally if it can not be created
+     */
+    @NonNull
+    public CompletableFuture<String> get(@NonNull final String version, @NonNull final String codeOfConduct) {
+        return digests.get(version, key -> load(key, codeOfConduct));
+    }
+
+    @NonNull
+    private CompletableFuture<String> load(@NonNull final String version, @NonNull final String codeOfConduct) {
+        final String stored = read(version);
+        if (stored != null) {
+            log.info("Using stored digest of Code of Conduct {}", version);
+            return CompletableFuture.completedFuture(stored);
+        }
+        log.info("Creating digest of Code of Conduct {}", version);
+        CompletableFuture<String> created;
+        try {
+            created = generator.apply(codeOfConduct);
+        } catch (Exception e) {
+            created = CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<String> digest = created.thenApply(content -> {
+            final String trimmed = content.strip();
+            if (!RULE_PATTERN.matcher(trimmed).find()) {
+                throw new IllegalStateException("Digest is no numbered list of rules: " + content);
+            }
+            if (trimmed.length() >= codeOfConduct.length()) {
+                throw new IllegalStateException("Digest is not shorter than the Code of Conduct");
+            }
+            log.info("Created digest of Code of Conduct {} with {} instead of {} characters", version,
+                    trimmed.length(), codeOfConduct.length());
+            write(version, trimmed);
+            return trimmed;
+        });
+        digest.whenComplete((content, e) -> {
+            if (e != null) {
+                log.warn("Can not create digest of Code of Conduct {}, using the full text", version, e);
+                CompletableFuture.delayedExecutor(RETRY_DELAY_MINUTES, TimeUnit.MINUTES)
+                        .execute(() -> digests.asMap().remove(version, digest));
+            }
+        });
+        return digest;
+    }
+
+    private @Nullable Path getFile(@NonNull final String version) {
+        if (directory == null || !VERSION_PATTERN.matcher(version).matches()) {
+            return null;
+        }
+        return directory.resolve(version + ".digest.md");
+    }
+
+    private @Nullable String read(@NonNull final String version) {
+        final Path file = getFile(version);
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            final String content = Files.readString(file, StandardCharsets.UTF_8).strip();
+            return content.isEmpty() ? null : content;
+        } catch (IOException e) {
+            log.warn("Can not read digest {}", file, e);
+            return null;
+        }
+    }
+
+    private void write(@NonNull final String version, @NonNull final String digest) {
+        final Path file = getFile(version);
+        if (file == null) {
+            return;
+        }
+        try {
+            final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tempFile, digest + System.lineSeparator(), StandardCharsets.UTF_8);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Stored digest of Code of Conduct {} in {}", version, file);
+        } catch (IOException e) {
+            log.warn("Can not store digest {}", file, e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if a check that used a digest should be repeated with the full text to measure the
+     * agreement of both.
+     */
+    public boolean shouldEvaluate() {
+        return evaluationRate > 0 && ThreadLocalRandom.current().nextDouble() < evaluationRate;
+    }
+}
@@ -0,0 +1,22 @@
+package com.openelements.conduct.integration.openai;
+
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Options for the completions of the {@link OpenAiBasedConductChecker}.
+ *
+ * @param responseFormat how the JSON verdict is requested
+ * @param maxTokens      the maximum number of completion tokens per verdict, 0 for no limit
+ */
+public record CompletionOptions(@NonNull ResponseFormat responseFormat, int maxTokens) {
+
+    public final static CompletionOptions DEFAULT = new CompletionOptions(ResponseFormat.PROMPT, 0);
+
+    public CompletionOptions {
+        Objects.requireNonNull(responseFormat, "responseFormat must not be null");
+        if (maxTokens < 0) {
+            throw new IllegalArgumentException("maxTokens must not be negative");
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.openelements.conduct.integration.openai;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} that spreads the checks over several OpenAI compatible endpoints.
+ * <p>
+ * Each check goes to the better of two randomly picked endpoints, rated by the moving average (EWMA) of their latency
+ * times their outstanding requests. If the check has not answered after the configured percentile of the observed
+ * latencies, a hedged request is sent to another endpoint. The first answer wins and the other request is cancelled.
+ * A failed request is hedged at once, so a broken endpoint does not fail the check.
+ */
+public class LoadBalancingConductChecker implements ConductChecker, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(LoadBalancingConductChecker.class);
+
+    private final static double EWMA_ALPHA = 0.3;
+
+    private final static int LATENCY_WINDOW = 512;
+
+    private final static int MIN_LATENCY_SAMPLES = 20;
+
+    private final List<Backend> backends;
+
+    private final boolean hedgingEnabled;
+
+    private final double hedgePercentile;
+
+    private final Duration minHedgeDelay;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+
+    private int latencyCount;
+
+    private long hedgeDelayNanos = -1;
+
+    public LoadBalancingConductChecker(@NonNull final List<? extends ConductChecker> checkers,
+            final boolean hedgingEnabled, final double hedgePercentile, @NonNull final Duration minHedgeDelay) {
+        Objects.requireNonNull(checkers, "checkers must not be null");
+        if (checkers.isEmpty()) {
+            throw new IllegalArgumentException("checkers must not be empty");
+        }
+        if (hedgePercentile <= 0 || hedgePercentile >= 1) {
+            throw new IllegalArgumentException("hedgePercentile must be between 0 and 1");
+        }
+        this.backends = checkers.stream().map(Backend::new).toList();
+        this.hedgingEnabled = hedgingEnabled && backends.size() > 1;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelay = Objects.requireNonNull(minHedgeDelay, "minHedgeDelay must not be null");
+        this.scheduler = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform()
+                .name("openai-hedge-scheduler")
+                .daemon(true)
+                .factory());
+        // most checks answer before their hedge is due, the cancelled hedges must not pile up in the queue
+        scheduler.setRemoveOnCancelPolicy(true);
+        log.info("Balancing OpenAI checks over {} endpoints (hedging {})", backends.size(),
+                this.hedgingEnabled ? "at p" + Math.round(hedgePercentile * 100) : "disabled");
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        return checkAsync(message, state -> {});
+    }
+
+    /**
+     * Checks the message. The first of the hedged requests that decides passes its verdict on.
+     */
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message,
+            @NonNull final Consumer<ViolationState> earlyVerdict) {
+        Objects.requireNonNull(message, "message must not be null");
+        Objects.requireNonNull(earlyVerdict, "earlyVerdict must not be null");
+        final HedgedCheck check = new HedgedCheck(message, earlyVerdict);
+        check.launch();
+        final long hedgeDelayNanos = getHedgeDelayNanos();
+        // no hedging before enough latencies are known, the failover still happens
+        if (hedgingEnabled && hedgeDelayNanos >= 0 && !check.result.isDone()) {
+            final ScheduledFuture<?> hedge = scheduler.schedule(check::launch, hedgeDelayNanos,
+                    TimeUnit.NANOSECONDS);
+            check.result.whenComplete((result, throwable) -> hedge.cancel(false));
+        }
+        return check.result;
+    }
+
+    /**
+     * Picks the better of two random backends (power of two choices), skipping the given one.
+     */
+    @NonNull
+    private Backend select(@Nullable final Backend exclude) {
+        final List<Backend> candidates = exclude == null ? backends
+                : backends.stream().filter(backend -> backend != exclude).toList();
+        if (candidates.size() == 1) {
+            return candidates.getFirst();
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(candidates.size());
+        final int second = (first + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+        final Backend a = candidates.get(first);
+        final Backend b = candidates.get(second);
+        return a.getCost() <= b.getCost() ? a : b;
+    }
+
+    private synchronized void recordLatency(final long nanos) {
+        latencies[latencyCount % LATENCY_WINDOW] = nanos;
+        latencyCount++;
+        // the percentile is recalculated now and then instead of on every check
+        if (latencyCount >= MIN_LATENCY_SAMPLES && latencyCount % 32 == 0 || latencyCount == MIN_LATENCY_SAMPLES) {
+            final long[] window = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_WINDOW));
+            Arrays.sort(window);
+            hedgeDelayNanos = window[(int) Math.min(window.length - 1, Math.floor(window.length * hedgePercentile))];
+        }
+    }
+
+    /**
+     * Returns the delay after that a check is hedged or -1 if not enough latencies are known yet.
+     */
+    private synchronized long getHedgeDelayNanos() {
+        if (hedgeDelayNanos < 0) {
+            return -1;
+        }
+        return Math.max(minHedgeDelay.toNanos(), hedgeDelayNanos);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Backend backend : backends) {
+            if (backend.checker instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Error closing {}", backend.checker, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * One check that is sent to at most two backends.
+     */
+    private final class HedgedCheck {
+
+        private final Message message;
+
+        private final CompletableFuture<CheckResult> result = new CompletableFuture<>();
+
+        private final Consumer<ViolationState> earlyVerdict;
+
+        private final AtomicBoolean decided = new AtomicBoolean();
+
+        private final List<CompletableFuture<CheckResult>> attempts = new ArrayList<>(2);
+
+        private Backend first;
+
+        private int launched;
+
+        private int running;
+
+        private Throwable failure;
+
+        private HedgedCheck(@NonNull final Message message, @NonNull final Consumer<ViolationState> earlyVerdict) {
+            this.message = message;
+            this.earlyVerdict = earlyVerdict;
+            // once there is a result (or the check is cancelled) the other request is not needed anymore
+            result.whenComplete((checkResult, throwable) -> cancelAttempts());
+        }
+
+        private void launch() {
+            final Backend backend;
+            synchronized (this) {
+                if (result.isDone() || launched == Math.min(2, backends.size())) {
+                    return;
+                }
+                backend = select(first);
+                if (first == null) {
+                    first = backend;
+                } else {
+                    log.debug("Sending hedged request for {}", message.link());
+                }
+                launched++;
+                running++;
+            }
+            final long start = System.nanoTime();
+            backend.outstanding.incrementAndGet();
+            final CompletableFuture<CheckResult> attempt = backend.checker.checkAsync(message, this::decided);
+            synchronized (this) {
+                attempts.add(attempt);
+            }
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+            attempt.whenComplete((checkResult, throwable) -> {
+                backend.outstanding.decrementAndGet();
+                final long latency = System.nanoTime() - start;
+                if (throwable == null) {
+                    backend.recordLatency(latency);
+                    recordLatency(latency);
+                    result.complete(checkResult);
+                } else if (attempt.isCancelled()) {
+                    // the slower request of a hedged pair is at least that slow
+                    backend.recordLatency(Math.max(latency, backend.getEwmaNanos()));
+                } else {
+                    backend.recordFailure(latency);
+                    failed(Futures.getCause(throwable));
+                }
+            });
+        }
+
+        private void decided(@NonNull final ViolationState state) {
+            if (decided.compareAndSet(false, true)) {
+                earlyVerdict.accept(state);
+            }
+        }
+
+        private void cancelAttempts() {
+            final List<CompletableFuture<CheckResult>> toCancel;
+            synchronized (this) {
+                toCancel = List.copyOf(attempts);
+            }
+            toCancel.forEach(attempt -> attempt.cancel(true));
+        }
+
+        private void failed(@NonNull final Throwable throwable) {
+            final boolean failover;
+            synchronized (this) {
+                running--;
+                if (failure == null) {
+                    failure = throwable;
+                }
+                failover = launched < Math.min(2, backends.size());
+                if (!failover && running == 0) {
+                    result.completeExceptionally(failure);
+                    return;
+                }
+            }
+            if (failover) {
+                log.warn("Check of {} failed, trying another endpoint", message.link(), throwable);
+                launch();
+            }
+        }
+    }
+
+    /**
+     * A checker together with its observed latency and outstanding requests.
+     */
+    private static final class Backend {
+
+        private final ConductChecker checker;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private double ewmaNanos;
+
+        private Backend(@NonNull final ConductChecker checker) {
+            this.checker = Objects.requireNonNull(checker, "checker must not be null");
+        }
+
+        private synchronized void recordLatency(final long nanos) {
+            ewmaNanos = ewmaNanos == 0 ? nanos : EWMA_ALPHA * nanos + (1 - EWMA_ALPHA) * ewmaNanos;
+        }
+
+        private synchronized void recordFailure(final long nanos) {
+            // failures count as slow answers, so the endpoint gets less traffic until it recovers
+            recordLatency(Math.max(2 * nanos, 2 * getEwmaNanos()));
+        }
+
+        private synchronized long getEwmaNanos() {
+            return (long) ewmaNanos;
+        }
+
+        private synchronized double getCost() {
+            return ewmaNanos * (outstanding.get() + 1);
+        }
+    }
+}
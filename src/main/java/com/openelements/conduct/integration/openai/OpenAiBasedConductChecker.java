@@ -1,38 +1,88 @@
 package com.openelements.conduct.integration.openai;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.openelements.conduct.data.CheckResult;
 import com.openelements.conduct.data.CodeOfConductProvider;
 import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
 import com.openelements.conduct.data.Message;
 import com.openelements.conduct.data.TextfileType;
 import com.openelements.conduct.data.ViolationState;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpClient.Version;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.web.client.RestClient;
 
 public class OpenAiBasedConductChecker implements ConductChecker {
 
     private final static Logger log = LoggerFactory.getLogger(OpenAiBasedConductChecker.class);
 
-    private final RestClient restClient;
+    private final static Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
 
-    private final String endpoint;
+    private final static int MAX_REDIRECTS = 5;
+
+    private final static int MAX_REQUEST_TEMPLATES = 64;
+
+    /**
+     * Time after that a request template without digest is created anew, to pick up a digest that has been created
+     * (or can be created again after a failure) in the meantime.
+     */
+    private final static Duration DIGEST_RETRY_INTERVAL = Duration.ofMinutes(1);
+
+    /**
+     * Rough number of bytes per token, used to estimate the tokens of a request for the rate limit.
+     */
+    private final static int BYTES_PER_TOKEN = 4;
+
+    /**
+     * Tokens reserved for the completion of a request.
+     */
+    private final static int COMPLETION_TOKEN_RESERVE = 256;
+
+    private final static JsonStringEncoder JSON_ENCODER = JsonStringEncoder.getInstance();
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Streamed responses are read line by line with blocking calls, so each stream is read on its own virtual thread.
+     */
+    private final static Executor STREAM_READER = command -> Thread.ofVirtual().name("openai-stream").start(command);
+
+    private final HttpClient httpClient;
+
+    private final AtomicReference<URI> endpoint;
 
     private final String apiKey;
 
@@ -40,129 +90,762 @@ public class OpenAiBasedConductChecker implements ConductChecker {
 
     private final String model;
 
-    private final String prompt;
+    private final String decidedBy;
+
+    private final OpenAiMetrics metrics;
+
+    private final RateLimitGovernor governor;
+
+    private final CompletionOptions completion;
+
+    private final StreamingOptions streaming;
+
+    private final @Nullable CodeOfConductDigests digests;
+
+    private final String systemPrompt;
+
+    private final String[] messageParts;
+
+    private final String batchSystemPrompt;
+
+    private final String digestPrompt;
+
+    private final String rulesPrompt;
+
+    /**
+     * The request templates by Code of Conduct version. Several versions are used if repositories have their own Code
+     * of Conduct.
+     */
+    private final Cache<String, RequestTemplate> requestTemplates;
 
     public OpenAiBasedConductChecker(@NonNull final String endpoint,
             @NonNull final String apiKey,
             @NonNull final String model,
-            @NonNull final CodeOfConductProvider codeOfConductProvider) {
+            @NonNull final CodeOfConductProvider codeOfConductProvider,
+            @NonNull final OpenAiMetrics metrics,
+            @NonNull final RateLimitGovernor governor) {
+        this(endpoint, apiKey, model, codeOfConductProvider, metrics, governor, CompletionOptions.DEFAULT,
+                StreamingOptions.DISABLED);
+    }
+
+    public OpenAiBasedConductChecker(@NonNull final String endpoint,
+            @NonNull final String apiKey,
+            @NonNull final String model,
+            @NonNull final CodeOfConductProvider codeOfConductProvider,
+            @NonNull final OpenAiMetrics metrics,
+            @NonNull final RateLimitGovernor governor,
+            @NonNull final CompletionOptions completion,
+            @NonNull final StreamingOptions streaming) {
+        this(endpoint, apiKey, model, codeOfConductProvider, metrics, governor, completion, streaming, null);
+    }
+
+    public OpenAiBasedConductChecker(@NonNull final String endpoint,
+            @NonNull final String apiKey,
+            @NonNull final String model,
+            @NonNull final CodeOfConductProvider codeOfConductProvider,
+            @NonNull final OpenAiMetrics metrics,
+            @NonNull final RateLimitGovernor governor,
+            @NonNull final CompletionOptions completion,
+            @NonNull final StreamingOptions streaming,
+            @Nullable final CodeOfConductDigests digests) {
         this.apiKey = Objects.requireNonNull(apiKey, "apiKey must not be null");
         if (apiKey.isBlank()) {
             throw new IllegalArgumentException("apiKey must not be blank");
         }
-        this.endpoint = Objects.requireNonNull(endpoint, "endpoint must not be null");
+        this.endpoint = new AtomicReference<>(URI.create(
+                Objects.requireNonNull(endpoint, "endpoint must not be null")));
         this.model = Objects.requireNonNull(model, "model must not be null");
+        this.decidedBy = "openai/" + model;
         this.codeOfConductProvider = Objects.requireNonNull(codeOfConductProvider,
                 "codeOfConductProvider must not be null");
+        this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+        this.governor = Objects.requireNonNull(governor, "governor must not be null");
+        this.completion = Objects.requireNonNull(completion, "completion must not be null");
+        this.streaming = Objects.requireNonNull(streaming, "streaming must not be null");
+        this.digests = digests;
+        this.requestTemplates = Caffeine.newBuilder()
+                .maximumSize(MAX_REQUEST_TEMPLATES)
+                .expireAfter(new TemplateExpiry(digests != null))
+                .build();
 
         log.info("Using OpenAI API with model: {}", model);
         log.info("Using OpenAI API with endpoint: {}", endpoint);
+        log.info("Using OpenAI API with response format: {}", completion.responseFormat());
 
-        this.restClient = RestClient.builder()
-                .baseUrl(endpoint)
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        // One client for all calls: it keeps connections alive and negotiates HTTP/2 via ALPN for https endpoints
+        this.httpClient = HttpClient.newBuilder()
+                .version(Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
                 .build();
 
-        try (final InputStream inputStream = OpenAiBasedConductChecker.class.getResourceAsStream("prompt.txt")) {
+        this.systemPrompt = loadResource("prompt.txt");
+        this.messageParts = loadResource("message.txt").split("%s", -1);
+        if (messageParts.length != 3) {
+            throw new IllegalStateException("Message template must contain placeholders for title and text");
+        }
+        this.batchSystemPrompt = loadResource("batch-prompt.txt");
+        this.digestPrompt = loadResource("digest-prompt.txt");
+        this.rulesPrompt = loadResource("rules.txt");
+    }
+
+    private static String loadResource(@NonNull final String name) {
+        try (final InputStream inputStream = OpenAiBasedConductChecker.class.getResourceAsStream(name)) {
             if (inputStream == null) {
-                throw new IllegalStateException("Prompt file not found");
+                throw new IllegalStateException("Prompt file not found: " + name);
             }
-            this.prompt = new String(inputStream.readAllBytes());
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
         } catch (Exception e) {
-            throw new RuntimeException("Error loading prompt file", e);
+            throw new RuntimeException("Error loading prompt file " + name, e);
         }
     }
 
-    private String createPrompt(@NonNull Message message) {
-        Objects.requireNonNull(message, "message must not be null");
-        if (codeOfConductProvider.supports(TextfileType.MARKDOWN)) {
-            String codeOfConduct = codeOfConductProvider.getCodeOfConduct(TextfileType.MARKDOWN);
-            return prompt.formatted(message.title(), message.message(), codeOfConduct);
-        } else {
+    /**
+     * Returns the request template for the current Code of Conduct of the message. The template contains the
+     * serialized request with the model, the fixed parts of the prompt and the Code of Conduct, so only the escaped
+     * title and text of a message must be added for a request. A new template is created once the Code of Conduct
+     * changes.
+     * <p>
+     * The instructions and the Code of Conduct are sent as the system message and the message to check comes last.
+     * By that all requests share the same prefix, which is served from the prompt cache of the provider.
+     */
+    private RequestTemplate getRequestTemplate(@NonNull final Message message) {
+        final CodeOfConductProvider provider = getCodeOfConductProvider(message);
+        return requestTemplates.get(provider.getVersion(TextfileType.MARKDOWN),
+                version -> createRequestTemplate(version, provider.getCodeOfConduct(TextfileType.MARKDOWN)));
+    }
+
+    /**
+     * Returns the provider of the Code of Conduct the message is checked against. Only the markdown Code of Conduct is
+     * sent to the model.
+     */
+    @NonNull
+    private CodeOfConductProvider getCodeOfConductProvider(@NonNull final Message message) {
+        final CodeOfConductProvider provider = codeOfConductProvider.forMessage(message);
+        if (!provider.supports(TextfileType.MARKDOWN)) {
             throw new UnsupportedOperationException("Not implemented yet other texttype than markdown.");
         }
+        return provider;
+    }
+
+    @NonNull
+    private RequestTemplate createRequestTemplate(@NonNull final String version,
+            @NonNull final String codeOfConduct) {
+        final String digest = getDigest(version, codeOfConduct);
+        final String instructions = systemPrompt.formatted(digest != null ? rulesPrompt.formatted(digest)
+                : codeOfConduct);
+        final RequestTemplate template = new RequestTemplate(version, digest != null,
+                utf8("{\"model\":\"" + escape(model) + "\",\"messages\":["
+                        + "{\"role\":\"system\",\"content\":\"" + escape(instructions) + "\"},"
+                        + "{\"role\":\"user\",\"content\":\"" + escape(messageParts[0])),
+                utf8(escape(messageParts[1])),
+                utf8(escape(messageParts[2]) + "\"}]"
+                        + getCompletionParameters()
+                        + (streaming.enabled() ? ",\"stream\":true,\"stream_options\":{\"include_usage\":true}" : "")
+                        + "}"));
+        return template;
+    }
+
+    /**
+     * Returns the digest of the Code of Conduct or {@code null} if digests are disabled or the digest is not created
+     * yet. In the latter case the request template of the version is dropped once the creation completes, so the next
+     * check uses the digest or, after a failure, tries again. A template without digest expires after
+     * {@link #DIGEST_RETRY_INTERVAL} in any case.
+     */
+    private @Nullable String getDigest(@NonNull final String version, @NonNull final String codeOfConduct) {
+        if (digests == null) {
+            return null;
+        }
+        final CompletableFuture<String> digest = digests.get(version, codeOfConduct);
+        if (digest.isDone()) {
+            return digest.isCompletedExceptionally() ? null : digest.join();
+        }
+        // async, since the digest can be completed while the template is created in the cache
+        digest.whenCompleteAsync((content, e) -> requestTemplates.invalidate(version));
+        return null;
+    }
+
+    /**
+     * Asks the model of this checker for a digest of the Code of Conduct as a list of numbered rules. Used as the
+     * generator of the {@link CodeOfConductDigests}.
+     */
+    @NonNull
+    CompletableFuture<String> createDigest(@NonNull final String codeOfConduct) {
+        final ObjectNode requestNode = OBJECT_MAPPER.createObjectNode().put("model", model);
+        final ArrayNode chatNode = requestNode.putArray("messages");
+        chatNode.addObject().put("role", "system").put("content", digestPrompt);
+        chatNode.addObject().put("role", "user").put("content", codeOfConduct);
+        try {
+            return callOpenAIEndpoint(OBJECT_MAPPER.writeValueAsBytes(requestNode));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Repeats a check that used a digest with the full text of the Code of Conduct and records if both agree. The
+     * evaluation runs in the background and does not change the result of the check.
+     */
+    private void evaluateDigest(@NonNull final CheckResult result, @NonNull final String version) {
+        final Message message = result.message();
+        final CodeOfConductProvider provider = codeOfConductProvider.forMessage(message);
+        if (!version.equals(provider.getVersion(TextfileType.MARKDOWN))) {
+            return;
+        }
+        final ObjectNode requestNode = OBJECT_MAPPER.createObjectNode().put("model", model);
+        final ArrayNode chatNode = requestNode.putArray("messages");
+        chatNode.addObject().put("role", "system")
+                .put("content", systemPrompt.formatted(provider.getCodeOfConduct(TextfileType.MARKDOWN)));
+        chatNode.addObject().put("role", "user").put("content", messageParts[0] + message.title() + messageParts[1]
+                + message.message() + messageParts[2]);
+        addCompletionParameters(requestNode, 1, false);
+        final byte[] requestBody;
+        try {
+            requestBody = OBJECT_MAPPER.writeValueAsBytes(requestNode);
+        } catch (JsonProcessingException e) {
+            log.warn("Can not create evaluation request for digest of Code of Conduct {}", version, e);
+            return;
+        }
+        callOpenAIEndpoint(requestBody).whenComplete((content, e) -> {
+            if (e != null) {
+                log.debug("Evaluation of digest of Code of Conduct {} failed", version, e);
+                return;
+            }
+            try {
+                final CheckResult fullResult = toCheckResult(message, parseVerdict(content));
+                final boolean agreed = fullResult.state() == result.state();
+                metrics.recordDigestEvaluation(agreed);
+                if (!agreed) {
+                    log.info("Digest of Code of Conduct {} disagrees with full text: {} ({}) instead of {} ({})",
+                            version, result.state(), result.reason(), fullResult.state(), fullResult.reason());
+                }
+            } catch (Exception ex) {
+                log.debug("Evaluation of digest of Code of Conduct {} has no valid verdict: {}", version, content);
+            }
+        });
+    }
+
+    /**
+     * Returns the completion parameters of a single check as JSON members that are appended to the request template.
+     */
+    @NonNull
+    private String getCompletionParameters() {
+        final ObjectNode parameters = OBJECT_MAPPER.createObjectNode();
+        addCompletionParameters(parameters, 1, false);
+        final String json = parameters.toString();
+        return json.length() > 2 ? "," + json.substring(1, json.length() - 1) : "";
     }
 
     @Override
     public @NonNull CheckResult check(@NonNull final Message message) {
-        final String prompt = createPrompt(message);
-        final JsonNode jsonNode = callOpenAIEndpoint(endpoint, prompt);
-        final String result = jsonNode.get("result").asText();
-        final String reason = jsonNode.get("reason").asText();
-        final ViolationState violationState = ViolationState.valueOf(result);
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        return checkAsync(message, state -> {});
+    }
+
+    /**
+     * Checks the message. A streamed check passes the verdict as soon as it is read from the stream, before the rest
+     * of the answer.
+     */
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message,
+            @NonNull final Consumer<ViolationState> earlyVerdict) {
+        Objects.requireNonNull(message, "message must not be null");
+        Objects.requireNonNull(earlyVerdict, "earlyVerdict must not be null");
+        final RequestTemplate template;
+        final byte[] requestBody;
+        try {
+            template = getRequestTemplate(message);
+            requestBody = template.apply(message);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<CheckResult> result = checkAsync(message, requestBody, earlyVerdict);
+        if (template.digest() && digests != null && digests.shouldEvaluate()) {
+            result.thenAccept(checkResult -> evaluateDigest(checkResult, template.codeOfConductVersion()));
+        }
+        return result;
+    }
+
+    @NonNull
+    private CompletableFuture<CheckResult> checkAsync(@NonNull final Message message,
+            final byte @NonNull [] requestBody, @NonNull final Consumer<ViolationState> earlyVerdict) {
+        if (streaming.enabled()) {
+            return checkStreamed(message, requestBody, earlyVerdict);
+        }
+        final CompletableFuture<String> response = callOpenAIEndpoint(requestBody);
+        return Futures.propagateCancellation(response.thenApply(content -> {
+            final CheckResult result;
+            try {
+                result = toCheckResult(message, parseVerdict(content));
+            } catch (Exception e) {
+                metrics.recordVerdicts(completion.responseFormat(), 0, 1);
+                throw new IllegalStateException("Response from OpenAI API is no valid verdict: " + content, e);
+            }
+            metrics.recordVerdicts(completion.responseFormat(), 1, 0);
+            earlyVerdict.accept(result.state());
+            return result;
+        }), response);
+    }
+
+    @NonNull
+    private CheckResult toCheckResult(@NonNull final Message message, @NonNull final JsonNode verdictNode) {
+        final JsonNode resultNode = verdictNode.get("result");
+        final JsonNode reasonNode = verdictNode.get("reason");
+        if (resultNode == null || !resultNode.isTextual()) {
+            throw new IllegalStateException("Verdict does not contain 'result'");
+        }
+        final ViolationState violationState = ViolationState.valueOf(resultNode.asText().trim());
         return new CheckResult(
                 message,
                 violationState,
-                reason
+                reasonNode == null || reasonNode.isNull() ? "" : reasonNode.asText(),
+                getConfidence(verdictNode),
+                decidedBy
         );
     }
 
-    @Nullable
-    private JsonNode callOpenAIEndpoint(@NotNull final String url, @NotNull final String prompt) {
-        Objects.requireNonNull(url, "url must not be null");
-        Objects.requireNonNull(prompt, "prompt must not be null");
+    /**
+     * Adds the parameters that constrain the completion to a request.
+     *
+     * @param requestNode the request
+     * @param verdicts    the number of verdicts the completion contains
+     * @param batch       {@code true} if the verdicts are requested as a batch
+     */
+    private void addCompletionParameters(@NonNull final ObjectNode requestNode, final int verdicts,
+            final boolean batch) {
+        if (completion.responseFormat() == ResponseFormat.JSON_SCHEMA) {
+            requestNode.set("response_format", createResponseFormat(batch));
+        }
+        if (completion.maxTokens() > 0) {
+            requestNode.put("max_tokens", (long) completion.maxTokens() * verdicts);
+        }
+    }
+
+    /**
+     * Creates the {@code response_format} that constrains the answer to the JSON schema of a verdict or, for batches,
+     * of an object with the verdicts in a {@code results} array (the root of a schema must be an object).
+     */
+    @NonNull
+    private static ObjectNode createResponseFormat(final boolean batch) {
+        final ObjectNode verdictSchema = OBJECT_MAPPER.createObjectNode().put("type", "object");
+        final ObjectNode properties = verdictSchema.putObject("properties");
+        final ArrayNode required = verdictSchema.putArray("required");
+        if (batch) {
+            properties.putObject("id").put("type", "integer");
+            required.add("id");
+        }
+        final ArrayNode states = properties.putObject("result").put("type", "string").putArray("enum");
+        Arrays.stream(ViolationState.values()).map(ViolationState::name).forEach(states::add);
+        properties.putObject("reason").put("type", "string");
+        properties.putObject("confidence").put("type", "number");
+        required.add("result").add("reason").add("confidence");
+        verdictSchema.put("additionalProperties", false);
+        final ObjectNode schema;
+        if (batch) {
+            schema = OBJECT_MAPPER.createObjectNode().put("type", "object");
+            schema.putObject("properties").putObject("results").put("type", "array").set("items", verdictSchema);
+            schema.putArray("required").add("results");
+            schema.put("additionalProperties", false);
+        } else {
+            schema = verdictSchema;
+        }
+        final ObjectNode responseFormat = OBJECT_MAPPER.createObjectNode().put("type", "json_schema");
+        responseFormat.putObject("json_schema")
+                .put("name", batch ? "verdicts" : "verdict")
+                .put("strict", true)
+                .set("schema", schema);
+        return responseFormat;
+    }
+
+    /**
+     * Returns the version of the Code of Conduct the message is checked against. Only messages with the same version
+     * can be checked in one batch.
+     */
+    @NonNull
+    String getCodeOfConductVersion(@NonNull final Message message) {
+        return getCodeOfConductProvider(message).getVersion(TextfileType.MARKDOWN);
+    }
+
+    /**
+     * Checks several messages with a single request. The returned map contains the results by the index of the
+     * message in the given list. Messages for that the response contains no valid verdict are missing in the map.
+     *
+     * @param messages the messages
+     * @return the results by index, completes exceptionally if the call fails or the response is not a JSON array
+     */
+    @NonNull
+    public CompletableFuture<Map<Integer, CheckResult>> checkBatchAsync(@NonNull final List<Message> messages) {
+        Objects.requireNonNull(messages, "messages must not be null");
+        if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        final byte[] requestBody;
         try {
-            final ObjectMapper objectMapper = new ObjectMapper();
-            final ObjectNode requestNode = objectMapper.createObjectNode();
-            requestNode.put("model", model);
-            final ArrayNode messagesNode = objectMapper.createArrayNode();
-            final ObjectNode messageNode = objectMapper.createObjectNode();
-            messageNode.put("role", "user");
-            messageNode.put("content", prompt);
-            messagesNode.add(messageNode);
-            requestNode.set("messages", messagesNode);
-
-            log.debug("Request to OpenAI API: {}", requestNode.toPrettyString());
-
-            final HttpClient httpClient = HttpClient.newBuilder().version(Version.HTTP_1_1)
-                    .build();
-            final HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                    .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestNode.toString()))
-                    .build();
-            final HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            final String responseBody = response.body();
-            log.debug("Response from OpenAI API: {}", responseBody);
-            if (response.statusCode() == 307) {
-                final String location = response.headers().firstValue("Location")
-                        .orElseThrow(() -> new IllegalStateException("No Location header found in 307 response"));
-                log.info("Received 307 redirect from OpenAI API. Redirecting to: {}", location);
-                return callOpenAIEndpoint(location, prompt);
-            }
-            if (response.statusCode() != 200) {
-                throw new IllegalStateException("Error calling OpenAI API: " + responseBody);
-            }
-            final JsonNode responseNode = objectMapper.readTree(responseBody);
-            if (responseNode == null) {
-                throw new IllegalStateException("Response from OpenAI API is null");
-            }
-            if (!responseNode.has("choices")) {
-                throw new IllegalStateException("Response from OpenAI API does not contain 'choices'");
-            }
-            final JsonNode choicesNode = responseNode.get("choices");
-            if (choicesNode == null || !choicesNode.isArray() || choicesNode.size() == 0) {
-                throw new IllegalStateException("Response from OpenAI API does not contain valid 'choices'");
-            }
-            if (choicesNode.size() > 1) {
-                log.warn("Warning: More than one choice found in the response. Using the first one.");
-            }
-            final JsonNode firstChoice = choicesNode.get(0);
-            if (!firstChoice.has("message")) {
-                throw new IllegalStateException("Response from OpenAI API does not contain 'message'");
-            }
-            if (!firstChoice.get("message").has("content")) {
-                throw new IllegalStateException("Response from OpenAI API does not contain 'content'");
-            }
-            final String resultAsText = firstChoice.get("message").get("content").asText();
-            if (resultAsText.startsWith("```json") && resultAsText.endsWith("```")) {
-                return objectMapper.readTree(resultAsText.substring(7, resultAsText.length() - 3).trim());
-            }
-            return objectMapper.readTree(resultAsText);
+            requestBody = createBatchRequest(messages);
         } catch (Exception e) {
-            throw new RuntimeException("Error calling OpenAI API", e);
+            return CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<String> response = callOpenAIEndpoint(requestBody);
+        return Futures.propagateCancellation(response.thenApply(content -> toCheckResults(messages, content)),
+                response);
+    }
+
+    private byte @NonNull [] createBatchRequest(@NonNull final List<Message> messages)
+            throws JsonProcessingException {
+        final CodeOfConductProvider provider = getCodeOfConductProvider(messages.getFirst());
+        final String version = provider.getVersion(TextfileType.MARKDOWN);
+        if (messages.stream().anyMatch(message -> !version.equals(getCodeOfConductVersion(message)))) {
+            throw new IllegalArgumentException("All messages of a batch must have the same Code of Conduct");
+        }
+        final String codeOfConduct = provider.getCodeOfConduct(TextfileType.MARKDOWN);
+        final String digest = getDigest(version, codeOfConduct);
+        final ArrayNode messagesNode = OBJECT_MAPPER.createArrayNode();
+        for (int i = 0; i < messages.size(); i++) {
+            messagesNode.addObject()
+                    .put("id", i)
+                    .put("title", messages.get(i).title())
+                    .put("text", messages.get(i).message());
+        }
+        final ObjectNode requestNode = OBJECT_MAPPER.createObjectNode().put("model", model);
+        final ArrayNode chatNode = requestNode.putArray("messages");
+        chatNode.addObject().put("role", "system").put("content",
+                batchSystemPrompt.formatted(digest != null ? rulesPrompt.formatted(digest) : codeOfConduct));
+        chatNode.addObject().put("role", "user").put("content", messagesNode.toString());
+        addCompletionParameters(requestNode, messages.size(), true);
+        return OBJECT_MAPPER.writeValueAsBytes(requestNode);
+    }
+
+    @NonNull
+    private Map<Integer, CheckResult> toCheckResults(@NonNull final List<Message> messages,
+            @NonNull final String content) {
+        JsonNode resultsNode;
+        try {
+            final JsonNode responseNode = parseVerdict(content);
+            resultsNode = responseNode.has("results") ? responseNode.get("results") : responseNode;
+        } catch (Exception e) {
+            resultsNode = null;
+        }
+        if (resultsNode == null || !resultsNode.isArray()) {
+            metrics.recordVerdicts(completion.responseFormat(), 0, messages.size());
+            throw new IllegalStateException("Batch response from OpenAI API is not a JSON array");
+        }
+        final Map<Integer, CheckResult> results = new HashMap<>();
+        for (JsonNode resultNode : resultsNode) {
+            try {
+                final int id = resultNode.get("id").asInt(-1);
+                if (id < 0 || id >= messages.size()) {
+                    log.warn("Batch response from OpenAI API contains unknown id: {}", resultNode);
+                    continue;
+                }
+                results.put(id, toCheckResult(messages.get(id), resultNode));
+            } catch (Exception e) {
+                log.warn("Batch response from OpenAI API contains invalid entry: {}", resultNode);
+            }
+        }
+        metrics.recordVerdicts(completion.responseFormat(), results.size(), messages.size() - results.size());
+        return results;
+    }
+
+    /**
+     * Checks the message with a streamed completion. The verdict is scanned while it is streamed, so it is passed to
+     * {@code earlyVerdict} at once and the rest of the completion can be skipped once a NONE verdict is known.
+     */
+    @NonNull
+    private CompletableFuture<CheckResult> checkStreamed(@NonNull final Message message,
+            final byte @NonNull [] requestBody, @NonNull final Consumer<ViolationState> earlyVerdict) {
+        if (log.isDebugEnabled()) {
+            log.debug("Streamed request to OpenAI API: {}", new String(requestBody, StandardCharsets.UTF_8));
+        }
+        final CompletableFuture<HttpResponse<Stream<String>>> responseFuture = governor.execute(
+                estimateTokens(requestBody), () -> send(endpoint.get(), requestBody, 0, BodyHandlers.ofLines()));
+        final CompletableFuture<CheckResult> result = responseFuture.thenApplyAsync(response -> {
+            try (Stream<String> lines = response.body()) {
+                return readStream(message, requestBody.length, response.statusCode(), lines, earlyVerdict);
+            } catch (IOException e) {
+                throw new RuntimeException("Error calling OpenAI API", e);
+            }
+        }, STREAM_READER);
+        result.whenComplete((checkResult, throwable) -> {
+            if (result.isCancelled()) {
+                // a cancelled check does not read the stream, closing it gives back the connection and the permit
+                responseFuture.thenAccept(response -> response.body().close());
+            }
+        });
+        return Futures.propagateCancellation(result, responseFuture);
+    }
+
+    /**
+     * Reads the verdict from the streamed completion. The stream is read up to {@code [DONE]}, since the usage of the
+     * request is sent in the last chunk. If the stream is left early (or the provider sends no usage) the usage is
+     * estimated from the size of the request and the content read so far.
+     */
+    @NonNull
+    private CheckResult readStream(@NonNull final Message message, final int requestSize, final int statusCode,
+            @NonNull final Stream<String> lines, @NonNull final Consumer<ViolationState> earlyVerdict)
+            throws IOException {
+        if (statusCode != 200) {
+            throw new IllegalStateException("Error calling OpenAI API: " + lines.collect(Collectors.joining("\n")));
+        }
+        final VerdictScanner scanner = new VerdictScanner();
+        ViolationState state = null;
+        boolean stopped = false;
+        boolean usageRecorded = false;
+        int contentLength = 0;
+        final Iterator<String> iterator = lines.iterator();
+        while (iterator.hasNext()) {
+            final String line = iterator.next();
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            final String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            final JsonNode chunk = OBJECT_MAPPER.readTree(data);
+            final JsonNode usageNode = chunk.get("usage");
+            if (usageNode != null && !usageNode.isNull()) {
+                metrics.recordUsage(TokenUsage.of(usageNode));
+                usageRecorded = true;
+            }
+            final JsonNode contentNode = chunk.at("/choices/0/delta/content");
+            if (contentNode.isTextual() && !scanner.isDone()) {
+                contentLength += contentNode.asText().length();
+                scanner.feed(contentNode.asText());
+            }
+            if (state == null && scanner.get("result") != null) {
+                state = parseState(scanner.get("result"));
+                if (state != null) {
+                    earlyVerdict.accept(state);
+                }
+                if (state == ViolationState.NONE && streaming.stopOnNone()) {
+                    // closing the stream cancels the rest of the completion
+                    stopped = true;
+                    break;
+                }
+            }
+        }
+        if (!usageRecorded) {
+            metrics.recordUsage(new TokenUsage(requestSize / BYTES_PER_TOKEN, 0, contentLength / BYTES_PER_TOKEN));
+        }
+        if (state == null) {
+            metrics.recordVerdicts(completion.responseFormat(), 0, 1);
+            throw new IllegalStateException("Streamed response from OpenAI API contains no result");
+        }
+        metrics.recordVerdicts(completion.responseFormat(), 1, 0);
+        final String reason = scanner.getPartial("reason");
+        return new CheckResult(message, state,
+                reason != null ? reason : stopped ? "Stopped reading the response after the verdict" : "",
+                parseConfidence(scanner.get("confidence")), decidedBy);
+    }
+
+    private static @Nullable ViolationState parseState(@NonNull final String value) {
+        try {
+            return ViolationState.valueOf(value.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the optional confidence of a verdict. Values outside of 0 to 1 are ignored.
+     */
+    private static @Nullable Double getConfidence(@NonNull final JsonNode verdictNode) {
+        final JsonNode confidenceNode = verdictNode.get("confidence");
+        if (confidenceNode == null || !confidenceNode.isNumber()) {
+            return null;
+        }
+        return parseConfidence(confidenceNode.asText());
+    }
+
+    private static @Nullable Double parseConfidence(@Nullable final String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            final double confidence = Double.parseDouble(value);
+            return confidence >= 0 && confidence <= 1 ? confidence : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int estimateTokens(final byte @NonNull [] requestBody) {
+        return requestBody.length / BYTES_PER_TOKEN + COMPLETION_TOKEN_RESERVE;
+    }
+
+    /**
+     * Calls the endpoint and returns the content of the answer.
+     */
+    @NonNull
+    private CompletableFuture<String> callOpenAIEndpoint(final byte @NonNull [] requestBody) {
+        Objects.requireNonNull(requestBody, "requestBody must not be null");
+        if (log.isDebugEnabled()) {
+            log.debug("Request to OpenAI API: {}", new String(requestBody, StandardCharsets.UTF_8));
+        }
+        final CompletableFuture<HttpResponse<String>> responseFuture = governor.execute(estimateTokens(requestBody),
+                () -> send(endpoint.get(), requestBody, 0, BodyHandlers.ofString()));
+        final CompletableFuture<String> result = responseFuture.thenApply(response -> {
+            try {
+                return parseResponse(response);
+            } catch (Exception e) {
+                throw new RuntimeException("Error calling OpenAI API", e);
+            }
+        });
+        // cancelling the result (for example after a timeout) aborts the HTTP exchange
+        return Futures.propagateCancellation(result, responseFuture);
+    }
+
+    @NonNull
+    private String parseResponse(@NonNull final HttpResponse<String> response) throws Exception {
+        final String responseBody = response.body();
+        log.debug("Response from OpenAI API: {}", responseBody);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Error calling OpenAI API: " + responseBody);
+        }
+        final JsonNode responseNode = OBJECT_MAPPER.readTree(responseBody);
+        if (responseNode == null) {
+            throw new IllegalStateException("Response from OpenAI API is null");
+        }
+        final TokenUsage usage = TokenUsage.of(responseNode.get("usage"));
+        metrics.recordUsage(usage);
+        log.debug("Token usage of OpenAI API call: {} prompt ({} cached), {} completion", usage.promptTokens(),
+                usage.cachedTokens(), usage.completionTokens());
+        if (!responseNode.has("choices")) {
+            throw new IllegalStateException("Response from OpenAI API does not contain 'choices'");
+        }
+        final JsonNode choicesNode = responseNode.get("choices");
+        if (choicesNode == null || !choicesNode.isArray() || choicesNode.size() == 0) {
+            throw new IllegalStateException("Response from OpenAI API does not contain valid 'choices'");
+        }
+        if (choicesNode.size() > 1) {
+            log.warn("Warning: More than one choice found in the response. Using the first one.");
+        }
+        final JsonNode firstChoice = choicesNode.get(0);
+        if (!firstChoice.has("message")) {
+            throw new IllegalStateException("Response from OpenAI API does not contain 'message'");
+        }
+        final JsonNode refusalNode = firstChoice.get("message").get("refusal");
+        if (refusalNode != null && refusalNode.isTextual()) {
+            metrics.recordVerdicts(completion.responseFormat(), 0, 1);
+            throw new IllegalStateException("OpenAI API refused to answer: " + refusalNode.asText());
+        }
+        if (!firstChoice.get("message").has("content")) {
+            throw new IllegalStateException("Response from OpenAI API does not contain 'content'");
+        }
+        if ("length".equals(firstChoice.path("finish_reason").asText())) {
+            log.warn("Response from OpenAI API has been cut at the token limit of {}", completion.maxTokens());
+        }
+        return firstChoice.get("message").get("content").asText();
+    }
+
+    /**
+     * Parses the JSON verdict of the model. Without a response schema the model sometimes wraps the JSON in a
+     * markdown fence or adds a sentence, so the outermost JSON object or array is used.
+     */
+    @NonNull
+    private static JsonNode parseVerdict(@NonNull final String content) throws JsonProcessingException {
+        final String trimmed = content.trim();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            return OBJECT_MAPPER.readTree(trimmed);
+        }
+        final int objectStart = trimmed.indexOf('{');
+        final int arrayStart = trimmed.indexOf('[');
+        final boolean array = arrayStart >= 0 && (objectStart < 0 || arrayStart < objectStart);
+        final int start = array ? arrayStart : objectStart;
+        final int end = trimmed.lastIndexOf(array ? ']' : '}');
+        if (start < 0 || end < start) {
+            throw new IllegalStateException("Response contains no JSON");
+        }
+        return OBJECT_MAPPER.readTree(trimmed.substring(start, end + 1));
+    }
+
+    @NonNull
+    private <T> CompletableFuture<HttpResponse<T>> send(@NonNull final URI uri, final byte @NonNull [] requestBody,
+            final int redirects, @NonNull final BodyHandler<T> bodyHandler) {
+        final HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                // HTTP/2 over plain http would need an h2c upgrade that many self-hosted endpoints do not support
+                .version("https".equalsIgnoreCase(uri.getScheme()) ? Version.HTTP_2 : Version.HTTP_1_1)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody))
+                .build();
+        final CompletableFuture<HttpResponse<T>> exchange = httpClient.sendAsync(request, bodyHandler);
+        return Futures.propagateCancellation(exchange.thenCompose(response -> {
+            if (response.statusCode() != 307) {
+                return CompletableFuture.completedFuture(response);
+            }
+            if (redirects >= MAX_REDIRECTS) {
+                throw new IllegalStateException("Too many redirects from OpenAI API");
+            }
+            final String location = response.headers().firstValue("Location")
+                    .orElseThrow(() -> new IllegalStateException("No Location header found in 307 response"));
+            final URI target = response.uri().resolve(location);
+            log.info("Received 307 redirect from OpenAI API. Using {} for all further calls", target);
+            endpoint.set(target);
+            if (response.body() instanceof AutoCloseable body) {
+                // a streamed body must be closed to release the connection
+                try {
+                    body.close();
+                } catch (Exception e) {
+                    log.debug("Error closing body of redirect response", e);
+                }
+            }
+            return send(target, requestBody, redirects + 1, bodyHandler);
+        }), exchange);
+    }
+
+    private static String escape(@Nullable final String value) {
+        return new String(JSON_ENCODER.quoteAsString(String.valueOf(value)));
+    }
+
+    private static byte[] utf8(@NonNull final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Templates with a digest (or without digests enabled) never expire, the others after
+     * {@link #DIGEST_RETRY_INTERVAL}.
+     */
+    private record TemplateExpiry(boolean digestsEnabled) implements Expiry<String, RequestTemplate> {
+
+        @Override
+        public long expireAfterCreate(String version, RequestTemplate template, long currentTime) {
+            return template.digest() || !digestsEnabled ? Long.MAX_VALUE : DIGEST_RETRY_INTERVAL.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String version, RequestTemplate template, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(version, template, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String version, RequestTemplate template, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * The serialized request split at the positions of the message title and text.
+     */
+    private record RequestTemplate(@NonNull String codeOfConductVersion, boolean digest, byte @NonNull [] head,
+                                   byte @NonNull [] titleToText, byte @NonNull [] tail) {
+
+        private byte[] apply(@NonNull final Message message) {
+            final byte[] title = JSON_ENCODER.quoteAsUTF8(String.valueOf(message.title()));
+            final byte[] text = JSON_ENCODER.quoteAsUTF8(message.message());
+            final byte[] body = new byte[head.length + title.length + titleToText.length + text.length + tail.length];
+            int position = 0;
+            for (byte[] part : List.of(head, title, titleToText, text, tail)) {
+                System.arraycopy(part, 0, body, position, part.length);
+                position += part.length;
+            }
+            return body;
         }
     }
-}
\ No newline at end of file
+}
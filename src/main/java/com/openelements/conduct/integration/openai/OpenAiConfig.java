@@ -2,7 +2,15 @@ package com.openelements.conduct.integration.openai;
 
 import com.openelements.conduct.data.CodeOfConductProvider;
 import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.EarlyVerdictListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -26,9 +34,199 @@ public class OpenAiConfig {
     @Value("${guardian.integration.openai.endpoint}")
     private String endpoint;
 
+    @Value("${guardian.integration.openai.endpoints:}")
+    private List<String> endpoints;
+
+    @Value("${guardian.integration.openai.models:}")
+    private List<String> models;
+
+    @Value("${guardian.integration.openai.apiKeys:}")
+    private List<String> apiKeys;
+
+    @Value("${guardian.integration.openai.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${guardian.integration.openai.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${guardian.integration.openai.hedge.min-delay:200ms}")
+    private Duration hedgeMinDelay;
+
+    @Value("${guardian.integration.openai.chunk.enabled:true}")
+    private boolean chunkEnabled;
+
+    @Value("${guardian.integration.openai.chunk.max-tokens:4000}")
+    private int chunkMaxTokens;
+
+    @Value("${guardian.integration.openai.chunk.overlap-tokens:200}")
+    private int chunkOverlapTokens;
+
+    @Value("${guardian.integration.openai.cascade.enabled:false}")
+    private boolean cascadeEnabled;
+
+    @Value("${guardian.integration.openai.cascade.fast-model:gpt-4o-mini}")
+    private String cascadeFastModel;
+
+    @Value("${guardian.integration.openai.cascade.fast-endpoint:}")
+    private String cascadeFastEndpoint;
+
+    @Value("${guardian.integration.openai.cascade.min-confidence:0.8}")
+    private double cascadeMinConfidence;
+
+    @Value("${guardian.integration.openai.cascade.max-fast-length:4000}")
+    private int cascadeMaxFastLength;
+
+    @Value("${guardian.integration.openai.response-format:PROMPT}")
+    private ResponseFormat responseFormat;
+
+    @Value("${guardian.integration.openai.max-tokens:0}")
+    private int maxTokens;
+
+    @Value("${guardian.integration.openai.stream.enabled:false}")
+    private boolean streamEnabled;
+
+    @Value("${guardian.integration.openai.stream.stop-on-none:false}")
+    private boolean streamStopOnNone;
+
+    @Value("${guardian.integration.openai.digest.enabled:false}")
+    private boolean digestEnabled;
+
+    @Value("${guardian.integration.openai.digest.directory:}")
+    private String digestDirectory;
+
+    @Value("${guardian.integration.openai.digest.evaluation-rate:0.05}")
+    private double digestEvaluationRate;
+
+    @Value("${guardian.integration.openai.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${guardian.integration.openai.batch.max-size:10}")
+    private int batchMaxSize;
+
+    @Value("${guardian.integration.openai.batch.max-delay:250ms}")
+    private Duration batchMaxDelay;
+
+    @Value("${guardian.integration.openai.governor.initial-limit:8}")
+    private int governorInitialLimit;
+
+    @Value("${guardian.integration.openai.governor.min-limit:1}")
+    private int governorMinLimit;
+
+    @Value("${guardian.integration.openai.governor.max-limit:64}")
+    private int governorMaxLimit;
+
+    @Value("${guardian.integration.openai.governor.tokens-per-minute:0}")
+    private int governorTokensPerMinute;
+
+    @Value("${guardian.integration.openai.governor.max-retries:5}")
+    private int governorMaxRetries;
+
+    @Value("${guardian.integration.openai.governor.deadline:2m}")
+    private Duration governorDeadline;
+
+    @Bean
+    OpenAiMetrics openAiMetrics(@NonNull final MeterRegistry meterRegistry) {
+        return new OpenAiMetrics(meterRegistry);
+    }
+
+    @Bean
+    RateLimitGovernors openAiRateLimitGovernors(@NonNull final MeterRegistry meterRegistry) {
+        return new RateLimitGovernors(name -> new RateLimitGovernor(name, governorInitialLimit, governorMinLimit,
+                governorMaxLimit, governorTokensPerMinute, governorMaxRetries, governorDeadline, meterRegistry));
+    }
+
     @Bean
     @Primary
-    ConductChecker gptBasedConductChecker(@NonNull final CodeOfConductProvider codeOfConductProvider) {
-        return new OpenAiBasedConductChecker(endpoint, apiKey, model, codeOfConductProvider);
+    ConductChecker gptBasedConductChecker(@NonNull final CodeOfConductProvider codeOfConductProvider,
+            @NonNull final OpenAiMetrics openAiMetrics, @NonNull final RateLimitGovernors openAiRateLimitGovernors,
+            @NonNull final MeterRegistry meterRegistry,
+            @NonNull final ObjectProvider<EarlyVerdictListener> earlyVerdictListeners) {
+        final CompletionOptions completion = new CompletionOptions(responseFormat, maxTokens);
+        final StreamingOptions streaming = streamEnabled
+                ? new StreamingOptions(true, streamStopOnNone)
+                : StreamingOptions.DISABLED;
+        final List<String> allEndpoints = endpoints.isEmpty() ? List.of(endpoint) : endpoints;
+        // one instance for all checkers, so every Code of Conduct version is digested once and always by the strong
+        // model (of the first endpoint), never by the fast model of the cascade
+        final CodeOfConductDigests digests;
+        if (digestEnabled) {
+            final String digestEndpoint = allEndpoints.getFirst().trim();
+            final String digestApiKey = getForEndpoint(apiKeys, apiKey, 0, "apiKeys");
+            final String digestModel = getForEndpoint(models, model, 0, "models");
+            final OpenAiBasedConductChecker digestGenerator = new OpenAiBasedConductChecker(digestEndpoint,
+                    digestApiKey, digestModel, codeOfConductProvider, openAiMetrics,
+                    openAiRateLimitGovernors.get(digestEndpoint, digestApiKey, digestModel));
+            digests = new CodeOfConductDigests(digestDirectory.isBlank() ? null : Path.of(digestDirectory),
+                    digestEvaluationRate, digestGenerator::createDigest);
+        } else {
+            digests = null;
+        }
+        final List<ConductChecker> checkers = new ArrayList<>();
+        for (int i = 0; i < allEndpoints.size(); i++) {
+            final String checkerEndpoint = allEndpoints.get(i).trim();
+            final String checkerApiKey = getForEndpoint(apiKeys, apiKey, i, "apiKeys");
+            final String checkerModel = getForEndpoint(models, model, i, "models");
+            final OpenAiBasedConductChecker checker = new OpenAiBasedConductChecker(checkerEndpoint, checkerApiKey,
+                    checkerModel, codeOfConductProvider, openAiMetrics,
+                    openAiRateLimitGovernors.get(checkerEndpoint, checkerApiKey, checkerModel), completion, streaming,
+                    digests);
+            checkers.add(batchEnabled ? new BatchingConductChecker(checker, batchMaxSize, batchMaxDelay) : checker);
+        }
+        final ConductChecker strong = checkers.size() == 1 ? checkers.getFirst()
+                : new LoadBalancingConductChecker(checkers, hedgeEnabled, hedgePercentile, hedgeMinDelay);
+        final List<String> allModels = new ArrayList<>(models.isEmpty() ? List.of(model) : models);
+        final ConductChecker checker;
+        if (cascadeEnabled) {
+            final String fastEndpoint = cascadeFastEndpoint.isBlank() ? allEndpoints.getFirst().trim()
+                    : cascadeFastEndpoint;
+            final String fastApiKey = getForEndpoint(apiKeys, apiKey, 0, "apiKeys");
+            final ConductChecker fast = new OpenAiBasedConductChecker(fastEndpoint, fastApiKey, cascadeFastModel,
+                    codeOfConductProvider, openAiMetrics,
+                    openAiRateLimitGovernors.get(fastEndpoint, fastApiKey, cascadeFastModel), completion, streaming,
+                    digests);
+            checker = new CascadingConductChecker(fast, strong, cascadeMinConfidence, cascadeMaxFastLength,
+                    meterRegistry);
+            allModels.add(cascadeFastModel);
+        } else {
+            checker = strong;
+        }
+        final ConductChecker chunking;
+        if (chunkEnabled) {
+            // the chunks must fit the model with the smallest context window
+            final TokenEstimator tokenEstimator = allModels.stream()
+                    .map(name -> new TokenEstimator(name.trim()))
+                    .min(Comparator.comparingInt(TokenEstimator::getContextWindow))
+                    .orElseThrow();
+            chunking = new ChunkingConductChecker(checker, codeOfConductProvider, tokenEstimator, chunkMaxTokens,
+                    chunkOverlapTokens);
+        } else {
+            chunking = checker;
+        }
+        final List<EarlyVerdictListener> listeners = earlyVerdictListeners.orderedStream().toList();
+        if (listeners.isEmpty()) {
+            return chunking;
+        }
+        // published once from the outermost stage, the inner stages only pass up the verdict that decides the
+        // message, so the verdicts of rejected fast tiers, later hedged calls and single chunks are not published
+        return new VerdictPublishingConductChecker(chunking, listeners);
+    }
+
+    /**
+     * Returns the value for the endpoint at the given index. A list with a single value applies to all endpoints and
+     * an empty list falls back to the single value property.
+     */
+    private static String getForEndpoint(@NonNull final List<String> values, @NonNull final String fallback,
+            final int index, @NonNull final String name) {
+        if (values.isEmpty()) {
+            return fallback;
+        }
+        if (values.size() == 1) {
+            return values.getFirst().trim();
+        }
+        if (index >= values.size()) {
+            throw new IllegalStateException("guardian.integration.openai." + name
+                    + " must contain one value or one value per endpoint");
+        }
+        return values.get(index).trim();
     }
 }
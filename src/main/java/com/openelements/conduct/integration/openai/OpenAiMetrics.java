@@ -0,0 +1,82 @@
+package com.openelements.conduct.integration.openai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Locale;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Metrics of the calls to the OpenAI API.
+ */
+public class OpenAiMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter promptTokens;
+
+    private final Counter cachedTokens;
+
+    private final Counter completionTokens;
+
+    public OpenAiMetrics(@NonNull final MeterRegistry meterRegistry) {
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.promptTokens = tokenCounter("prompt");
+        this.cachedTokens = tokenCounter("cached");
+        this.completionTokens = tokenCounter("completion");
+    }
+
+    private Counter tokenCounter(@NonNull final String type) {
+        return Counter.builder("guardian.openai.tokens")
+                .description("Tokens used by calls to the OpenAI API")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    public void recordUsage(@NonNull final TokenUsage usage) {
+        Objects.requireNonNull(usage, "usage must not be null");
+        promptTokens.increment(usage.promptTokens());
+        cachedTokens.increment(usage.cachedTokens());
+        completionTokens.increment(usage.completionTokens());
+    }
+
+    /**
+     * Records the verdicts of a response by the response format, so the parse failures of the formats can be
+     * compared.
+     *
+     * @param responseFormat the response format of the request
+     * @param parsed         the number of valid verdicts
+     * @param failed         the number of verdicts that were missing or could not be parsed
+     */
+    public void recordVerdicts(@NonNull final ResponseFormat responseFormat, final int parsed, final int failed) {
+        Objects.requireNonNull(responseFormat, "responseFormat must not be null");
+        verdictCounter(responseFormat, "parsed").increment(parsed);
+        verdictCounter(responseFormat, "failed").increment(failed);
+    }
+
+    private Counter verdictCounter(@NonNull final ResponseFormat responseFormat, @NonNull final String outcome) {
+        return Counter.builder("guardian.openai.verdicts")
+                .description("Verdicts in responses of the OpenAI API by response format and parse outcome")
+                .tag("format", responseFormat.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the evaluation of a check with a Code of Conduct digest against the same check with the full text.
+     *
+     * @param agreed {@code true} if both checks came to the same result
+     */
+    public void recordDigestEvaluation(final boolean agreed) {
+        Counter.builder("guardian.openai.digest.evaluations")
+                .description("Checks with a Code of Conduct digest that were repeated with the full text")
+                .tag("outcome", agreed ? "agreed" : "disagreed")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @NonNull
+    MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+}
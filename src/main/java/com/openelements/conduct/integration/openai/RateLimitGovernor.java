@@ -0,0 +1,604 @@
+package com.openelements.conduct.integration.openai;
+
+import com.openelements.conduct.data.Futures;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.BaseStream;
+import javax.net.ssl.SSLSession;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Governs the calls to the OpenAI API to get the maximum sustained throughput without running into error storms.
+ * <ul>
+ *     <li>The number of concurrent calls is limited by an AIMD limit: every successful call increases the limit
+ *     additively, every rate limited or failed call halves it.</li>
+ *     <li>A token bucket (sized in tokens, not requests) limits the estimated tokens per minute. Its size and content
+ *     are synced with the {@code x-ratelimit-*-tokens} headers of the responses.</li>
+ *     <li>Calls that end with 429, 5xx or an I/O error are retried with jittered exponential backoff (or after the
+ *     time given by {@code retry-after}) as long as the deadline of the call is not reached.</li>
+ * </ul>
+ * Waiting calls do not block a thread. They are queued in order and started once a permit is released or the tokens
+ * are refilled. The permit of a streamed response is held until its body is closed.
+ */
+public class RateLimitGovernor implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(RateLimitGovernor.class);
+
+    private final static long BACKOFF_BASE_MILLIS = 500;
+
+    private final static long BACKOFF_MAX_MILLIS = 30_000;
+
+    private final static Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final int maxRetries;
+
+    private final Duration deadline;
+
+    private final ScheduledExecutorService timer;
+
+    private final Counter retries;
+
+    private final Counter rejected;
+
+    private double limit;
+
+    private int inFlight;
+
+    private double tokenCapacity;
+
+    private double availableTokens;
+
+    private long lastRefillNanos;
+
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private boolean refillScheduled;
+
+    /**
+     * @param name the name of the governed limit (for example model and host), used as tag of the metrics
+     */
+    public RateLimitGovernor(@NonNull final String name, final int initialLimit, final int minLimit,
+            final int maxLimit, final int tokensPerMinute, final int maxRetries, @NonNull final Duration deadline,
+            @NonNull final MeterRegistry meterRegistry) {
+        Objects.requireNonNull(name, "name must not be null");
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.maxRetries = maxRetries;
+        this.deadline = Objects.requireNonNull(deadline, "deadline must not be null");
+        // 0 means unlimited until the API reports its limit
+        this.tokenCapacity = tokensPerMinute > 0 ? tokensPerMinute : Double.POSITIVE_INFINITY;
+        this.availableTokens = tokenCapacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("openai-governor-timer-" + name)
+                .daemon(true)
+                .factory());
+        Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        Gauge.builder("guardian.openai.governor.limit", this, RateLimitGovernor::getLimit)
+                .description("Current concurrency limit for calls to the OpenAI API")
+                .tag("governor", name)
+                .register(meterRegistry);
+        Gauge.builder("guardian.openai.governor.in-flight", this, RateLimitGovernor::getInFlight)
+                .description("Calls to the OpenAI API in flight")
+                .tag("governor", name)
+                .register(meterRegistry);
+        Gauge.builder("guardian.openai.governor.tokens", this, RateLimitGovernor::getAvailableTokens)
+                .description("Tokens available in the token bucket")
+                .tag("governor", name)
+                .register(meterRegistry);
+        this.retries = Counter.builder("guardian.openai.governor.retries").tag("governor", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("guardian.openai.governor.rejected").tag("governor", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Executes the call once a permit and the estimated tokens are available and retries it on rate limits and
+     * server errors.
+     *
+     * @param estimatedTokens the estimated number of tokens of the call (input and output)
+     * @param call            the call, invoked once per attempt
+     * @return the response of the final attempt
+     */
+    @NonNull
+    public <T> CompletableFuture<HttpResponse<T>> execute(final int estimatedTokens,
+            @NonNull final Supplier<CompletableFuture<HttpResponse<T>>> call) {
+        Objects.requireNonNull(call, "call must not be null");
+        final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        final long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        attempt(estimatedTokens, call, 0, deadlineNanos, result);
+        return result;
+    }
+
+    private <T> void attempt(final int estimatedTokens,
+            @NonNull final Supplier<CompletableFuture<HttpResponse<T>>> call, final int attempt,
+            final long deadlineNanos, @NonNull final CompletableFuture<HttpResponse<T>> result) {
+        if (result.isDone()) {
+            return;
+        }
+        final Waiter waiter = new Waiter(estimatedTokens,
+                () -> start(estimatedTokens, call, attempt, deadlineNanos, result), result);
+        if (!enqueue(waiter, deadlineNanos)) {
+            reject(result);
+            return;
+        }
+        drain();
+        expireAtDeadline(waiter, deadlineNanos);
+    }
+
+    private <T> void start(final int estimatedTokens, @NonNull final Supplier<CompletableFuture<HttpResponse<T>>> call,
+            final int attempt, final long deadlineNanos, @NonNull final CompletableFuture<HttpResponse<T>> result) {
+        final CompletableFuture<HttpResponse<T>> response;
+        try {
+            response = call.get();
+        } catch (Exception e) {
+            adjustLimit(false);
+            release();
+            result.completeExceptionally(e);
+            return;
+        }
+        Futures.propagateCancellation(result, response);
+        response.whenComplete((httpResponse, throwable) -> {
+            if (throwable != null && result.isCancelled()) {
+                // an abandoned call (for example the loser of a hedged request) says nothing about the API
+                release();
+                return;
+            }
+            final boolean retryable;
+            long backoffMillis = backoff(attempt);
+            if (throwable != null) {
+                retryable = isIoError(throwable);
+                adjustLimit(false);
+            } else {
+                update(httpResponse.headers());
+                final int status = httpResponse.statusCode();
+                retryable = status == 429 || status >= 500;
+                adjustLimit(!retryable);
+                if (retryable) {
+                    final Long retryAfter = retryAfterMillis(httpResponse.headers());
+                    if (retryAfter != null) {
+                        backoffMillis = Math.max(backoffMillis, retryAfter);
+                    }
+                }
+            }
+            if (retryable && attempt < maxRetries
+                    && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis) < deadlineNanos) {
+                retries.increment();
+                log.info("OpenAI API call failed (attempt {}), retrying in {} ms", attempt + 1, backoffMillis);
+                release();
+                if (httpResponse != null) {
+                    discard(httpResponse);
+                }
+                schedule(() -> attempt(estimatedTokens, call, attempt + 1, deadlineNanos, result), backoffMillis,
+                        result);
+            } else if (throwable != null) {
+                release();
+                result.completeExceptionally(throwable);
+            } else {
+                final HttpResponse<T> delivered = releaseOnClose(httpResponse);
+                if (!result.complete(delivered)) {
+                    discard(delivered);
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedules the next attempt of a call. Once the governor is closed the call fails instead of waiting forever.
+     */
+    private void schedule(@NonNull final Runnable nextAttempt, final long delayMillis,
+            @NonNull final CompletableFuture<?> result) {
+        try {
+            timer.schedule(nextAttempt, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("Rate limit governor has been closed", e));
+        }
+    }
+
+    private void reject(@NonNull final CompletableFuture<?> result) {
+        rejected.increment();
+        result.completeExceptionally(new IllegalStateException(
+                "Deadline reached while waiting for OpenAI API rate limit"));
+    }
+
+    /**
+     * Closes the body of a response that is not passed to the caller. A streamed body holds the connection until it
+     * is closed.
+     */
+    private static void discard(@NonNull final HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.debug("Can not close body of discarded OpenAI API response", e);
+            }
+        }
+    }
+
+    /**
+     * Holds the permit of a streamed response until its body is closed, so the limit bounds the open streams and not
+     * only the calls waiting for their headers. Any other response gives its permit back at once.
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private <T> HttpResponse<T> releaseOnClose(@NonNull final HttpResponse<T> response) {
+        if (response.body() instanceof BaseStream<?, ?> stream) {
+            final AtomicBoolean released = new AtomicBoolean();
+            final T body = (T) stream.onClose(() -> {
+                if (released.compareAndSet(false, true)) {
+                    release();
+                }
+            });
+            return new StreamedResponse<>(response, body);
+        }
+        release();
+        return response;
+    }
+
+    /**
+     * Queues the call behind the calls that are already waiting.
+     *
+     * @return false if the tokens of the call can not be available before its deadline
+     */
+    private synchronized boolean enqueue(@NonNull final Waiter waiter, final long deadlineNanos) {
+        refill();
+        final long waitMillis = tokenWaitMillis(waiter.estimatedTokens);
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis) > deadlineNanos) {
+            return false;
+        }
+        waiters.add(waiter);
+        waiter.queued = true;
+        return true;
+    }
+
+    /**
+     * Starts the waiting calls in order as long as permits and tokens are available. Called whenever a permit is
+     * released and once the tokens for the first waiting call are refilled.
+     */
+    private void drain() {
+        final List<Waiter> started = new ArrayList<>();
+        long refillMillis = 0;
+        synchronized (this) {
+            refill();
+            Waiter head;
+            while ((head = waiters.peek()) != null) {
+                if (head.result.isDone()) {
+                    waiters.poll();
+                    head.queued = false;
+                    continue;
+                }
+                final long waitMillis = tryAcquire(head.estimatedTokens);
+                if (waitMillis != 0) {
+                    if (waitMillis > 0 && !refillScheduled) {
+                        refillScheduled = true;
+                        refillMillis = waitMillis;
+                    }
+                    break;
+                }
+                waiters.poll();
+                head.queued = false;
+                started.add(head);
+            }
+        }
+        if (refillMillis > 0) {
+            try {
+                timer.schedule(this::refilled, refillMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Rate limit governor has been closed, waiting calls have been failed");
+            }
+        }
+        for (Waiter waiter : started) {
+            final ScheduledFuture<?> expiry = waiter.expiry;
+            if (expiry != null) {
+                expiry.cancel(false);
+            }
+            waiter.start.run();
+        }
+    }
+
+    private void refilled() {
+        synchronized (this) {
+            refillScheduled = false;
+        }
+        drain();
+    }
+
+    /**
+     * Fails the call if it is still waiting once its deadline is reached.
+     */
+    private void expireAtDeadline(@NonNull final Waiter waiter, final long deadlineNanos) {
+        synchronized (this) {
+            if (!waiter.queued) {
+                return;
+            }
+        }
+        try {
+            waiter.expiry = timer.schedule(() -> {
+                if (dequeue(waiter)) {
+                    reject(waiter.result);
+                }
+            }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            if (dequeue(waiter)) {
+                waiter.result.completeExceptionally(new IllegalStateException("Rate limit governor has been closed",
+                        e));
+            }
+        }
+    }
+
+    private synchronized boolean dequeue(@NonNull final Waiter waiter) {
+        if (!waiter.queued) {
+            return false;
+        }
+        waiters.remove(waiter);
+        waiter.queued = false;
+        return true;
+    }
+
+    /**
+     * Tries to take a permit and the tokens.
+     *
+     * @return 0 if the call can start, -1 if all permits are taken, otherwise the time in milliseconds until the
+     * tokens are refilled
+     */
+    private synchronized long tryAcquire(final int estimatedTokens) {
+        if (inFlight >= (int) limit) {
+            return -1;
+        }
+        final long waitMillis = tokenWaitMillis(estimatedTokens);
+        if (waitMillis > 0) {
+            return waitMillis;
+        }
+        availableTokens -= Math.min(estimatedTokens, tokenCapacity);
+        inFlight++;
+        return 0;
+    }
+
+    private synchronized long tokenWaitMillis(final int estimatedTokens) {
+        // a call that needs more than the whole bucket may start once the bucket is full
+        final double needed = Math.min(estimatedTokens, tokenCapacity);
+        if (availableTokens >= needed) {
+            return 0;
+        }
+        final double tokensPerMilli = tokenCapacity / 60_000d;
+        return Math.max(1, (long) Math.ceil((needed - availableTokens) / tokensPerMilli));
+    }
+
+    private synchronized void adjustLimit(final boolean success) {
+        if (success) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        } else {
+            limit = Math.max(minLimit, limit / 2);
+            log.debug("Decreased OpenAI API concurrency limit to {}", (int) limit);
+        }
+    }
+
+    /**
+     * Gives the permit back and starts the next waiting calls.
+     */
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    private synchronized void refill() {
+        final long now = System.nanoTime();
+        if (Double.isFinite(tokenCapacity)) {
+            final double elapsedMinutes = (now - lastRefillNanos) / 60_000_000_000d;
+            availableTokens = Math.min(tokenCapacity, availableTokens + elapsedMinutes * tokenCapacity);
+        }
+        lastRefillNanos = now;
+    }
+
+    private synchronized void update(@NonNull final HttpHeaders headers) {
+        headers.firstValueAsLong("x-ratelimit-limit-tokens").ifPresent(capacity -> {
+            if (capacity > 0 && capacity != tokenCapacity) {
+                if (!Double.isFinite(availableTokens)) {
+                    availableTokens = capacity;
+                }
+                tokenCapacity = capacity;
+                availableTokens = Math.min(availableTokens, capacity);
+            }
+        });
+        headers.firstValueAsLong("x-ratelimit-remaining-tokens").ifPresent(remaining -> {
+            refill();
+            availableTokens = Math.min(availableTokens, remaining);
+        });
+        headers.firstValueAsLong("x-ratelimit-remaining-requests").ifPresent(remaining -> {
+            if (remaining == 0) {
+                limit = minLimit;
+            }
+        });
+    }
+
+    private static long backoff(final int attempt) {
+        final long max = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(max / 2, max + 1);
+    }
+
+    private static @Nullable Long retryAfterMillis(@NonNull final HttpHeaders headers) {
+        final Long retryAfter = headers.firstValue("retry-after-ms")
+                .map(RateLimitGovernor::parseLong)
+                .or(() -> headers.firstValue("retry-after")
+                        .map(RateLimitGovernor::parseLong)
+                        .map(seconds -> seconds == null ? null : seconds * 1000))
+                .orElse(null);
+        if (retryAfter != null) {
+            return retryAfter;
+        }
+        return headers.firstValue("x-ratelimit-reset-tokens")
+                .or(() -> headers.firstValue("x-ratelimit-reset-requests"))
+                .map(RateLimitGovernor::parseResetDuration)
+                .orElse(null);
+    }
+
+    private static @Nullable Long parseLong(@NonNull final String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses durations like {@code 20ms}, {@code 1s} or {@code 6m0s} as used by the {@code x-ratelimit-reset-*}
+     * headers.
+     */
+    static @Nullable Long parseResetDuration(@NonNull final String value) {
+        final Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            final double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return found ? (long) Math.ceil(millis) : null;
+    }
+
+    private static boolean isIoError(@NonNull final Throwable throwable) {
+        Throwable current = throwable;
+        while (current != null) {
+            if (current instanceof IOException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill();
+        return Double.isFinite(availableTokens) ? availableTokens : -1;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        final List<Waiter> waiting;
+        synchronized (this) {
+            waiting = List.copyOf(waiters);
+            waiters.forEach(waiter -> waiter.queued = false);
+            waiters.clear();
+        }
+        waiting.forEach(waiter -> waiter.result.completeExceptionally(
+                new IllegalStateException("Rate limit governor has been closed")));
+    }
+
+    /**
+     * A call waiting for a permit and its tokens.
+     */
+    private static final class Waiter {
+
+        private final int estimatedTokens;
+
+        private final Runnable start;
+
+        private final CompletableFuture<?> result;
+
+        // guarded by the governor
+        private boolean queued;
+
+        private volatile @Nullable ScheduledFuture<?> expiry;
+
+        private Waiter(final int estimatedTokens, @NonNull final Runnable start,
+                @NonNull final CompletableFuture<?> result) {
+            this.estimatedTokens = estimatedTokens;
+            this.start = start;
+            this.result = result;
+        }
+    }
+
+    /**
+     * A streamed response whose body gives the permit back once it is closed.
+     */
+    private record StreamedResponse<T>(@NonNull HttpResponse<T> response, @NonNull T body)
+            implements HttpResponse<T> {
+
+        @Override
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return response.request();
+        }
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return response.previousResponse();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return response.headers();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return response.sslSession();
+        }
+
+        @Override
+        public URI uri() {
+            return response.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return response.version();
+        }
+    }
+}
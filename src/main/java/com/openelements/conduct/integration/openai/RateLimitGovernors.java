@@ -0,0 +1,68 @@
+package com.openelements.conduct.integration.openai;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Holds one {@link RateLimitGovernor} per endpoint, API key and model. The OpenAI API limits the requests and tokens
+ * per organization and model, so calls that do not share a limit must not share a governor: a 429 of one model would
+ * otherwise throttle all of them.
+ */
+public class RateLimitGovernors implements AutoCloseable {
+
+    private final Function<String, RateLimitGovernor> factory;
+
+    private final Map<GovernorKey, RateLimitGovernor> governors = new HashMap<>();
+
+    private final Set<String> names = new HashSet<>();
+
+    /**
+     * @param factory creates the governor for the given name
+     */
+    public RateLimitGovernors(@NonNull final Function<String, RateLimitGovernor> factory) {
+        this.factory = Objects.requireNonNull(factory, "factory must not be null");
+    }
+
+    /**
+     * Returns the governor for calls with the given endpoint, API key and model, creating it on first use.
+     */
+    @NonNull
+    public synchronized RateLimitGovernor get(@NonNull final String endpoint, @NonNull final String apiKey,
+            @NonNull final String model) {
+        Objects.requireNonNull(endpoint, "endpoint must not be null");
+        Objects.requireNonNull(apiKey, "apiKey must not be null");
+        Objects.requireNonNull(model, "model must not be null");
+        return governors.computeIfAbsent(new GovernorKey(endpoint, apiKey, model),
+                key -> factory.apply(createName(key)));
+    }
+
+    /**
+     * Returns a unique name of the form {@code model@host}, the API key is not part of the name since the name is
+     * exposed as tag of the metrics.
+     */
+    @NonNull
+    private String createName(@NonNull final GovernorKey key) {
+        final String host = URI.create(key.endpoint()).getHost();
+        final String base = key.model() + "@" + (host != null ? host : key.endpoint());
+        String name = base;
+        for (int i = 2; !names.add(name); i++) {
+            name = base + "#" + i;
+        }
+        return name;
+    }
+
+    @Override
+    public synchronized void close() {
+        governors.values().forEach(RateLimitGovernor::close);
+        governors.clear();
+    }
+
+    private record GovernorKey(@NonNull String endpoint, @NonNull String apiKey, @NonNull String model) {
+    }
+}
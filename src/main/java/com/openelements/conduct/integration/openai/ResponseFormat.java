@@ -0,0 +1,20 @@
+package com.openelements.conduct.integration.openai;
+
+/**
+ * Defines how the JSON verdict is requested from the model.
+ */
+public enum ResponseFormat {
+
+    /**
+     * The JSON verdict is only requested by the prompt. Works with every OpenAI compatible endpoint, but the model can
+     * answer with text that is no valid verdict.
+     */
+    PROMPT,
+
+    /**
+     * The answer is constrained to a JSON schema of the verdict ({@code response_format} of type
+     * {@code json_schema}), so the model can only answer with a valid verdict. Needs an endpoint that supports
+     * structured outputs.
+     */
+    JSON_SCHEMA
+}
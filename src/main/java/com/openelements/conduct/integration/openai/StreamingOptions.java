@@ -0,0 +1,13 @@
+package com.openelements.conduct.integration.openai;
+
+/**
+ * Options for streamed completions of the {@link OpenAiBasedConductChecker}.
+ *
+ * @param enabled    {@code true} to request the completion as server-sent events
+ * @param stopOnNone {@code true} to stop reading the stream once a NONE verdict is known, the reason of the verdict is
+ *                   not read then
+ */
+public record StreamingOptions(boolean enabled, boolean stopOnNone) {
+
+    public final static StreamingOptions DISABLED = new StreamingOptions(false, false);
+}
@@ -0,0 +1,76 @@
+package com.openelements.conduct.integration.openai;
+
+import java.util.Map;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * Estimates the number of tokens of a text and knows the context window of a model. The estimate does not tokenize
+ * the text: it counts about 4 ASCII characters per token and one token per other character, which overestimates
+ * accented text a little but is close for the English texts and logs we check.
+ */
+public final class TokenEstimator {
+
+    private final static int ASCII_CHARS_PER_TOKEN = 4;
+
+    private final static int DEFAULT_CONTEXT_WINDOW = 8_192;
+
+    /**
+     * Context windows by model prefix. The longest matching prefix wins. Unknown (for example self-hosted) models get
+     * a conservative default.
+     */
+    private final static Map<String, Integer> CONTEXT_WINDOWS = Map.of(
+            "gpt-3.5-turbo", 16_385,
+            "gpt-3.5-turbo-instruct", 4_096,
+            "gpt-4", 8_192,
+            "gpt-4-32k", 32_768,
+            "gpt-4-turbo", 128_000,
+            "gpt-4o", 128_000,
+            "gpt-4.1", 1_047_576,
+            "o1", 128_000,
+            "o3", 200_000,
+            "o4", 200_000);
+
+    private final String model;
+
+    private final int contextWindow;
+
+    public TokenEstimator(@NonNull final String model) {
+        this.model = Objects.requireNonNull(model, "model must not be null");
+        this.contextWindow = CONTEXT_WINDOWS.entrySet().stream()
+                .filter(entry -> model.startsWith(entry.getKey()))
+                .max(Map.Entry.comparingByKey((a, b) -> Integer.compare(a.length(), b.length())))
+                .map(Map.Entry::getValue)
+                .orElse(DEFAULT_CONTEXT_WINDOW);
+    }
+
+    /**
+     * Returns the estimated number of tokens of the text.
+     */
+    public int estimate(@NonNull final CharSequence text) {
+        Objects.requireNonNull(text, "text must not be null");
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < 128) {
+                ascii++;
+            } else if (!Character.isLowSurrogate(c)) {
+                other++;
+            }
+        }
+        return (ascii + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN + other;
+    }
+
+    /**
+     * Returns the number of tokens that fit in a single request (prompt and completion) for the model.
+     */
+    public int getContextWindow() {
+        return contextWindow;
+    }
+
+    @NonNull
+    public String getModel() {
+        return model;
+    }
+}
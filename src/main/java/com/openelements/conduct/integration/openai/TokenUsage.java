@@ -0,0 +1,27 @@
+package com.openelements.conduct.integration.openai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The token counts of the {@code usage} block of a chat completion response.
+ *
+ * @param promptTokens     the number of input tokens
+ * @param cachedTokens     the number of input tokens that have been served from the provider's prompt cache
+ * @param completionTokens the number of output tokens
+ */
+public record TokenUsage(int promptTokens, int cachedTokens, int completionTokens) {
+
+    public static final TokenUsage EMPTY = new TokenUsage(0, 0, 0);
+
+    @NonNull
+    static TokenUsage of(@Nullable final JsonNode usageNode) {
+        if (usageNode == null || !usageNode.isObject()) {
+            return EMPTY;
+        }
+        return new TokenUsage(usageNode.path("prompt_tokens").asInt(),
+                usageNode.path("prompt_tokens_details").path("cached_tokens").asInt(),
+                usageNode.path("completion_tokens").asInt());
+    }
+}
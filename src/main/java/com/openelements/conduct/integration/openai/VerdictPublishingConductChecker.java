@@ -0,0 +1,76 @@
+package com.openelements.conduct.integration.openai;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.EarlyVerdictListener;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The outermost stage of the OpenAI checkers that publishes the verdict of a message to the
+ * {@link EarlyVerdictListener}s. The verdict is passed up from the stage that decided it: the reader of a streamed
+ * answer publishes it as soon as it is read, while the cascade, the hedged calls and the chunks only pass on the
+ * verdict that reduces to the final one. Every message is published once, a check whose stages pass no verdict is
+ * published when it completes.
+ */
+public class VerdictPublishingConductChecker implements ConductChecker, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(VerdictPublishingConductChecker.class);
+
+    private final ConductChecker delegate;
+
+    private final List<EarlyVerdictListener> listeners;
+
+    public VerdictPublishingConductChecker(@NonNull final ConductChecker delegate,
+            @NonNull final List<EarlyVerdictListener> listeners) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.listeners = List.copyOf(Objects.requireNonNull(listeners, "listeners must not be null"));
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final AtomicBoolean published = new AtomicBoolean();
+        final Consumer<ViolationState> publisher = state -> {
+            if (published.compareAndSet(false, true)) {
+                publish(message, state);
+            }
+        };
+        final CompletableFuture<CheckResult> result = delegate.checkAsync(message, publisher);
+        return Futures.propagateCancellation(result.thenApply(checkResult -> {
+            publisher.accept(checkResult.state());
+            return checkResult;
+        }), result);
+    }
+
+    private void publish(@NonNull final Message message, @NonNull final ViolationState state) {
+        for (EarlyVerdictListener listener : listeners) {
+            try {
+                listener.onEarlyVerdict(message, state);
+            } catch (Exception e) {
+                log.warn("Error in early verdict listener {}", listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.openelements.conduct.integration.openai;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An incremental scanner for the JSON verdict of the LLM. The content is fed in the fragments it is streamed in and the
+ * top level fields are available as soon as their value is complete, so the {@code result} is known before the
+ * {@code reason} has been streamed. Text before the first {@code {}, like a {@code ```json} fence, is ignored.
+ * <p>
+ * Only flat objects with string, number, boolean and null values are supported, which is what the prompt asks for.
+ */
+class VerdictScanner {
+
+    private final Map<String, String> fields = new HashMap<>();
+
+    private final StringBuilder token = new StringBuilder();
+
+    private int depth;
+
+    private boolean inString;
+
+    private boolean escape;
+
+    private int unicodeDigits = -1;
+
+    private boolean inLiteral;
+
+    private @Nullable String key;
+
+    private boolean afterColon;
+
+    private boolean done;
+
+    /**
+     * Feeds the next fragment of the content.
+     */
+    void feed(@NonNull final CharSequence fragment) {
+        for (int i = 0; i < fragment.length() && !done; i++) {
+            next(fragment.charAt(i));
+        }
+    }
+
+    private void next(final char c) {
+        if (inString) {
+            string(c);
+            return;
+        }
+        if (inLiteral) {
+            if (c == ',' || c == '}' || Character.isWhitespace(c)) {
+                value(token.toString());
+                inLiteral = false;
+            } else {
+                token.append(c);
+                return;
+            }
+        }
+        switch (c) {
+            case '{' -> {
+                if (depth == 1) {
+                    // nested objects are not supported, the field is skipped
+                    key = null;
+                    afterColon = false;
+                }
+                depth++;
+            }
+            case '}' -> {
+                depth--;
+                done = depth == 0;
+            }
+            case '"' -> {
+                if (depth > 0) {
+                    inString = true;
+                    token.setLength(0);
+                }
+            }
+            case ':' -> afterColon = depth == 1 && key != null;
+            default -> {
+                if (depth == 1 && afterColon && !Character.isWhitespace(c) && c != ',') {
+                    inLiteral = true;
+                    token.setLength(0);
+                    token.append(c);
+                }
+            }
+        }
+    }
+
+    private void string(final char c) {
+        if (unicodeDigits >= 0) {
+            token.append(c);
+            if (++unicodeDigits == 4) {
+                final int codeStart = token.length() - 4;
+                final char decoded = (char) Integer.parseInt(token.substring(codeStart), 16);
+                token.setLength(codeStart);
+                token.append(decoded);
+                unicodeDigits = -1;
+            }
+        } else if (escape) {
+            escape = false;
+            switch (c) {
+                case 'n' -> token.append('\n');
+                case 't' -> token.append('\t');
+                case 'r' -> token.append('\r');
+                case 'b' -> token.append('\b');
+                case 'f' -> token.append('\f');
+                case 'u' -> unicodeDigits = 0;
+                default -> token.append(c);
+            }
+        } else if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            inString = false;
+            if (depth == 1 && afterColon) {
+                value(token.toString());
+            } else if (depth == 1) {
+                key = token.toString();
+            }
+        } else {
+            token.append(c);
+        }
+    }
+
+    private void value(@NonNull final String value) {
+        if (key != null) {
+            fields.put(key, value);
+        }
+        key = null;
+        afterColon = false;
+    }
+
+    /**
+     * Returns the complete value of the top level field or {@code null} if it has not been scanned yet.
+     */
+    @Nullable
+    String get(@NonNull final String field) {
+        return fields.get(field);
+    }
+
+    /**
+     * Returns the part of the string value that is currently scanned if it belongs to the given field, otherwise
+     * the complete value or {@code null}.
+     */
+    @Nullable
+    String getPartial(@NonNull final String field) {
+        if (inString && afterColon && field.equals(key)) {
+            return token.toString();
+        }
+        return get(field);
+    }
+
+    /**
+     * Returns {@code true} once the top level object has been closed.
+     */
+    boolean isDone() {
+        return done;
+    }
+}
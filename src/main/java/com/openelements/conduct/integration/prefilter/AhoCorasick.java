@@ -0,0 +1,173 @@
+package com.openelements.conduct.integration.prefilter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeSet;
+import org.jspecify.annotations.NonNull;
+
+/**
+ * A case-insensitive Aho-Corasick automaton that finds all given terms in a text in a single pass. The automaton is
+ * compiled to a dense transition table, so matching does not allocate and takes time linear to the length of the
+ * text.
+ */
+public final class AhoCorasick {
+
+    private final char[] alphabet;
+
+    private final int[] transitions;
+
+    private final int[] termLength;
+
+    private final int[] outputLink;
+
+    private final boolean empty;
+
+    public AhoCorasick(@NonNull final Collection<String> terms) {
+        Objects.requireNonNull(terms, "terms must not be null");
+        final List<String> normalizedTerms = terms.stream()
+                .map(AhoCorasick::normalize)
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .toList();
+        this.empty = normalizedTerms.isEmpty();
+
+        final TreeSet<Character> characters = new TreeSet<>();
+        normalizedTerms.forEach(term -> term.chars().forEach(c -> characters.add((char) c)));
+        this.alphabet = new char[characters.size()];
+        int index = 0;
+        for (char c : characters) {
+            alphabet[index++] = c;
+        }
+
+        // build the trie
+        final List<Map<Character, Integer>> trie = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+        trie.add(new HashMap<>());
+        lengths.add(0);
+        for (String term : normalizedTerms) {
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                final char c = term.charAt(i);
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    lengths.add(0);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            lengths.set(state, term.length());
+        }
+
+        // compute failure and output links and the complete transition function (breadth first)
+        final int stateCount = trie.size();
+        final int width = Math.max(1, alphabet.length);
+        this.transitions = new int[stateCount * width];
+        this.termLength = new int[stateCount];
+        this.outputLink = new int[stateCount];
+        final int[] failure = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+        for (int i = 0; i < stateCount; i++) {
+            termLength[i] = lengths.get(i);
+        }
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (int column = 0; column < alphabet.length; column++) {
+            final Integer next = trie.get(0).get(alphabet[column]);
+            if (next != null) {
+                transitions[column] = next;
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            final int fallback = failure[state];
+            outputLink[state] = termLength[fallback] > 0 ? fallback : outputLink[fallback];
+            for (int column = 0; column < alphabet.length; column++) {
+                final Integer next = trie.get(state).get(alphabet[column]);
+                if (next != null) {
+                    failure[next] = transitions[fallback * width + column];
+                    transitions[state * width + column] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * width + column] = transitions[fallback * width + column];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the text contains at least one of the terms.
+     */
+    public boolean containsAny(@NonNull final CharSequence text) {
+        Objects.requireNonNull(text, "text must not be null");
+        if (empty) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            if (termLength[state] > 0 || outputLink[state] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a bit mask of all positions of the text that are covered by a term that starts and ends at a word
+     * boundary. Only supported for texts with up to 64 characters.
+     */
+    public long wordCoverage(@NonNull final CharSequence text) {
+        Objects.requireNonNull(text, "text must not be null");
+        if (text.length() > Long.SIZE) {
+            throw new IllegalArgumentException("text must not be longer than " + Long.SIZE + " characters");
+        }
+        long coverage = 0;
+        if (empty) {
+            return coverage;
+        }
+        int state = 0;
+        for (int end = 0; end < text.length(); end++) {
+            state = next(state, text.charAt(end));
+            for (int match = termLength[state] > 0 ? state : outputLink[state]; match >= 0;
+                    match = outputLink[match]) {
+                final int start = end - termLength[match] + 1;
+                if (isBoundary(text, start - 1) && isBoundary(text, end + 1)) {
+                    final long bits = termLength[match] == Long.SIZE ? -1L : (1L << termLength[match]) - 1;
+                    coverage |= bits << start;
+                }
+            }
+        }
+        return coverage;
+    }
+
+    private int next(final int state, final char c) {
+        final int column = Arrays.binarySearch(alphabet, Character.toLowerCase(c));
+        if (column < 0) {
+            return 0;
+        }
+        return transitions[state * alphabet.length + column];
+    }
+
+    private static boolean isBoundary(@NonNull final CharSequence text, final int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private static String normalize(final String term) {
+        if (term == null) {
+            return "";
+        }
+        final StringBuilder builder = new StringBuilder(term.length());
+        term.strip().chars().forEach(c -> builder.append(Character.toLowerCase((char) c)));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.openelements.conduct.integration.prefilter;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local first tier in front of the (expensive) {@link ConductChecker}. Messages that are clearly harmless are
+ * answered directly:
+ * <ul>
+ *     <li>messages without any letter or digit (like pure emoji or punctuation)</li>
+ *     <li>short acknowledgements that only consist of allowed terms (like "+1", "thanks!" or "LGTM")</li>
+ *     <li>replies that only contain quoted ({@code >}) lines</li>
+ * </ul>
+ * A message that contains any of the denied terms is never answered by this tier. All other messages are escalated to
+ * the delegate.
+ */
+public class PreFilterConductChecker implements ConductChecker {
+
+    private final static Logger log = LoggerFactory.getLogger(PreFilterConductChecker.class);
+
+    private final ConductChecker delegate;
+
+    private final AhoCorasick allowTerms;
+
+    private final AhoCorasick denyTerms;
+
+    private final int maxAcknowledgementLength;
+
+    private final Counter decided;
+
+    private final Counter escalated;
+
+    public PreFilterConductChecker(@NonNull final ConductChecker delegate, @NonNull final AhoCorasick allowTerms,
+            @NonNull final AhoCorasick denyTerms, final int maxAcknowledgementLength,
+            @NonNull final MeterRegistry meterRegistry) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.allowTerms = Objects.requireNonNull(allowTerms, "allowTerms must not be null");
+        this.denyTerms = Objects.requireNonNull(denyTerms, "denyTerms must not be null");
+        this.maxAcknowledgementLength = Math.min(Long.SIZE, maxAcknowledgementLength);
+        Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.decided = Counter.builder("guardian.prefilter.messages").tag("outcome", "decided")
+                .register(meterRegistry);
+        this.escalated = Counter.builder("guardian.prefilter.messages").tag("outcome", "escalated")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final String reason = getHarmlessReason(message);
+        if (reason == null) {
+            return delegate.check(message);
+        }
+        return new CheckResult(message, ViolationState.NONE, reason, null, "prefilter");
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final String reason = getHarmlessReason(message);
+        if (reason == null) {
+            return delegate.checkAsync(message);
+        }
+        return CompletableFuture.completedFuture(new CheckResult(message, ViolationState.NONE, reason, null,
+                "prefilter"));
+    }
+
+    private @Nullable String getHarmlessReason(@NonNull final Message message) {
+        final String titleReason = message.title() == null ? "" : getHarmlessReason(message.title());
+        final String textReason = titleReason == null ? null : getHarmlessReason(message.message());
+        if (textReason == null) {
+            escalated.increment();
+            return null;
+        }
+        decided.increment();
+        log.debug("Pre-filter decided {} for {}: {}", ViolationState.NONE, message.link(), textReason);
+        return textReason;
+    }
+
+    /**
+     * Returns the reason why the text is harmless or {@code null} if the text must be checked.
+     */
+    private @Nullable String getHarmlessReason(@NonNull final CharSequence text) {
+        if (denyTerms.containsAny(text)) {
+            return null;
+        }
+        if (!containsLetterOrDigit(text)) {
+            return "Message contains no words (only emoji, punctuation or whitespace).";
+        }
+        if (isQuoteOnly(text)) {
+            return "Message only quotes previous messages.";
+        }
+        if (isAcknowledgement(text)) {
+            return "Message is a short acknowledgement.";
+        }
+        return null;
+    }
+
+    private static boolean containsLetterOrDigit(@NonNull final CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isQuoteOnly(@NonNull final CharSequence text) {
+        boolean lineStart = true;
+        boolean quotedLine = false;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '\n') {
+                lineStart = true;
+                quotedLine = false;
+            } else if (lineStart && !Character.isWhitespace(c)) {
+                if (c != '>') {
+                    return false;
+                }
+                lineStart = false;
+                quotedLine = true;
+            } else if (!lineStart && !quotedLine) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isAcknowledgement(@NonNull final CharSequence text) {
+        if (text.length() > maxAcknowledgementLength) {
+            return false;
+        }
+        final long coverage = allowTerms.wordCoverage(text);
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i)) && (coverage & (1L << i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package com.openelements.conduct.integration.prefilter;
+
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@ConditionalOnProperty(
+        name = "guardian.check.prefilter.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class PreFilterConfig {
+
+    @Value("${guardian.check.prefilter.allow-terms:+1,lgtm,thanks,thank you,thx,ty,done,ack,merged,approved,looks good,nice,great}")
+    private List<String> allowTerms;
+
+    @Value("${guardian.check.prefilter.deny-terms:idiot,stupid,moron,dumb,shut up,hate,kill,trash,garbage,🖕}")
+    private List<String> denyTerms;
+
+    @Value("${guardian.check.prefilter.max-acknowledgement-length:32}")
+    private int maxAcknowledgementLength;
+
+    @Bean
+    @Order(300)
+    ConductCheckerDecorator preFilterConductCheckerDecorator(MeterRegistry meterRegistry) {
+        final AhoCorasick allow = new AhoCorasick(allowTerms);
+        final AhoCorasick deny = new AhoCorasick(denyTerms);
+        return delegate -> new PreFilterConductChecker(delegate, allow, deny, maxAcknowledgementLength,
+                meterRegistry);
+    }
+}
@@ -0,0 +1,86 @@
+package com.openelements.conduct.integration.singleflight;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.integration.cache.MessageKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} stage that coalesces concurrent checks of the same content. The first check of a content
+ * (by {@link MessageKey}) is passed to the delegate, all checks of the same content that arrive before it is done
+ * share its result. Each caller gets a result bound to its own message.
+ * <p>
+ * This covers the gap of the verdict cache: cross-posted texts or bots that comment on many pull requests at once
+ * arrive before the first verdict is cached.
+ */
+public class SingleFlightConductChecker implements ConductChecker {
+
+    private final static Logger log = LoggerFactory.getLogger(SingleFlightConductChecker.class);
+
+    private final ConductChecker delegate;
+
+    private final Map<String, CompletableFuture<CheckResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+
+    private final Counter shared;
+
+    public SingleFlightConductChecker(@NonNull final ConductChecker delegate,
+            @NonNull final MeterRegistry meterRegistry) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.leaders = Counter.builder("guardian.single-flight.messages").tag("outcome", "leader")
+                .register(meterRegistry);
+        this.shared = Counter.builder("guardian.single-flight.messages").tag("outcome", "shared")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        // repositories can have different Codes of Conduct, so only checks in the same repository are shared
+        final String key = MessageKey.of(message) + ':' + Objects.toString(message.repository(), "");
+        final CompletableFuture<CheckResult> flight = new CompletableFuture<>();
+        final CompletableFuture<CheckResult> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            log.debug("Sharing in-flight check for {}", message.link());
+            return existing.thenApply(result -> result.withMessage(message));
+        }
+        leaders.increment();
+        final CompletableFuture<CheckResult> result;
+        try {
+            result = delegate.checkAsync(message);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        result.whenComplete((checkResult, throwable) -> {
+            // removed before completion, so later checks of the content find the cached verdict instead
+            inFlight.remove(key, flight);
+            if (throwable != null) {
+                flight.completeExceptionally(Futures.getCause(throwable));
+            } else {
+                flight.complete(checkResult);
+            }
+        });
+        // a copy, so a caller that cancels its check does not cancel the check of the others
+        return flight.copy();
+    }
+}
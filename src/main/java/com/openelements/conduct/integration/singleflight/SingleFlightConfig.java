@@ -0,0 +1,23 @@
+package com.openelements.conduct.integration.singleflight;
+
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@ConditionalOnProperty(
+        name = "guardian.check.single-flight.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class SingleFlightConfig {
+
+    @Bean
+    @Order(400)
+    ConductCheckerDecorator singleFlightConductCheckerDecorator(MeterRegistry meterRegistry) {
+        return delegate -> new SingleFlightConductChecker(delegate, meterRegistry);
+    }
+}
@@ -1,14 +1,17 @@
 package com.openelements.conduct.integration.slack;
 
 import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.Futures;
 import com.openelements.conduct.data.ResultHandler;
 import com.openelements.conduct.data.ViolationState;
 import com.slack.api.Slack;
+import com.slack.api.methods.AsyncMethodsClient;
 import com.slack.api.methods.MethodsClient;
 import com.slack.api.methods.request.chat.ChatPostMessageRequest;
 import com.slack.api.methods.response.chat.ChatPostMessageResponse;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +21,7 @@ public class SlackIntegration implements ResultHandler {
     private final static Logger log = LoggerFactory.getLogger(SlackIntegration.class);
 
     private final MethodsClient slackClient;
+    private final AsyncMethodsClient asyncSlackClient;
     private final String channelId;
 
     public SlackIntegration(@NonNull final String slackToken, @NonNull final String channelId) {
@@ -30,6 +34,7 @@ public class SlackIntegration implements ResultHandler {
         try {
             final Slack slack = Slack.getInstance();
             this.slackClient = slack.methods(slackToken);
+            this.asyncSlackClient = slack.methodsAsync(slackToken);
             sendInitializationMessage();
             log.info("Slack integration initialized successfully");
         } catch (Exception e) {
@@ -59,15 +64,22 @@ public class SlackIntegration implements ResultHandler {
 
     @Override
     public void handle(@NonNull CheckResult result) {
+        try {
+            Futures.join(handleAsync(result));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to send message to Slack channel", e);
+        }
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Void> handleAsync(@NonNull CheckResult result) {
         Objects.requireNonNull(result, "result must not be null");
 
         if (result.state() == ViolationState.NONE) {
             log.debug("No violation found, not sending message to Slack");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        final CompletableFuture<Void> future = new CompletableFuture<>();
-
         String emoji = "⚠️";
         if (result.state() == ViolationState.VIOLATION) {
             emoji = "🚫";
@@ -79,26 +91,18 @@ public class SlackIntegration implements ResultHandler {
                         "Reason: %s",
                 emoji, result.message().link(), result.state(), result.reason());
 
-        try {
-            final ChatPostMessageRequest request = ChatPostMessageRequest.builder()
-                    .channel(channelId)
-                    .text(message)
-                    .build();
-
-            final ChatPostMessageResponse response = slackClient.chatPostMessage(request);
+        final ChatPostMessageRequest request = ChatPostMessageRequest.builder()
+                .channel(channelId)
+                .text(message)
+                .build();
+        return asyncSlackClient.chatPostMessage(request).thenAccept(response -> {
             if (!response.isOk()) {
-                future.completeExceptionally(new RuntimeException("Slack API Error: " + response.getError()));
-            } else {
-                future.complete(null);
+                throw new RuntimeException("Slack API Error: " + response.getError());
             }
-        } catch (Exception e) {
-            log.error("Error sending message to Slack", e);
-            future.completeExceptionally(e);
-        }
-        try {
-            future.get(10, java.util.concurrent.TimeUnit.SECONDS);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to send message to Slack channel", e);
-        }
+        }).orTimeout(10, TimeUnit.SECONDS).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                log.error("Error sending message to Slack", throwable);
+            }
+        });
     }
 }
@@ -0,0 +1,57 @@
+package com.openelements.conduct.integration.trust;
+
+import com.openelements.conduct.data.ConductCheckerDecorator;
+import com.openelements.conduct.endpoint.GitHubClient;
+import com.openelements.conduct.integration.trust.TrustedAuthorConductChecker.Mode;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@ConditionalOnProperty(
+        name = "guardian.check.trust.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class TrustConfig {
+
+    @Value("${guardian.check.trust.mode:SHADOW}")
+    private Mode mode;
+
+    @Value("${guardian.check.trust.sample-rate:0.1}")
+    private double sampleRate;
+
+    @Value("${guardian.check.trust.organizations:OpenElements}")
+    private List<String> organizations;
+
+    @Value("${guardian.check.trust.members-refresh-interval:1h}")
+    private Duration membersRefreshInterval;
+
+    @Value("${guardian.check.trust.min-contributions:10}")
+    private int minContributions;
+
+    @Value("${guardian.check.trust.contributions-ttl:24h}")
+    private Duration contributionsTimeToLive;
+
+    @Value("${guardian.check.trust.contributions-max-entries:10000}")
+    private long contributionsMaxEntries;
+
+    @Bean
+    TrustedAuthors trustedAuthors(GitHubClient gitHubClient) {
+        return new TrustedAuthors(gitHubClient, organizations, membersRefreshInterval, minContributions,
+                contributionsTimeToLive, contributionsMaxEntries);
+    }
+
+    @Bean
+    @Order(100)
+    ConductCheckerDecorator trustedAuthorConductCheckerDecorator(TrustedAuthors trustedAuthors,
+            MeterRegistry meterRegistry) {
+        return delegate -> new TrustedAuthorConductChecker(delegate, trustedAuthors, mode, sampleRate,
+                meterRegistry);
+    }
+}
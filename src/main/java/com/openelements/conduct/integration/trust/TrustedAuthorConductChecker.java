@@ -0,0 +1,107 @@
+package com.openelements.conduct.integration.trust;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Futures;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConductChecker} stage that spares the checks of messages by {@link TrustedAuthors trusted authors}, most
+ * messages are written by maintainers.
+ * <p>
+ * In {@link Mode#SHADOW} every message is still checked and only the verdicts of trusted authors are counted, so the
+ * share of violations by trusted authors can be reviewed before the policy is enforced. In {@link Mode#ACTIVE} only a
+ * share of {@code sampleRate} of the messages by trusted authors is checked, all others are answered as harmless.
+ */
+public class TrustedAuthorConductChecker implements ConductChecker {
+
+    private final static Logger log = LoggerFactory.getLogger(TrustedAuthorConductChecker.class);
+
+    public enum Mode {
+        SHADOW, ACTIVE
+    }
+
+    private final ConductChecker delegate;
+
+    private final TrustedAuthors trustedAuthors;
+
+    private final Mode mode;
+
+    private final double sampleRate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter decided;
+
+    private final Counter sampled;
+
+    private final Counter untrusted;
+
+    public TrustedAuthorConductChecker(@NonNull final ConductChecker delegate,
+            @NonNull final TrustedAuthors trustedAuthors, @NonNull final Mode mode, final double sampleRate,
+            @NonNull final MeterRegistry meterRegistry) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.trustedAuthors = Objects.requireNonNull(trustedAuthors, "trustedAuthors must not be null");
+        this.mode = Objects.requireNonNull(mode, "mode must not be null");
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+        }
+        this.sampleRate = sampleRate;
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry must not be null");
+        this.decided = Counter.builder("guardian.trust.messages").tag("outcome", "decided")
+                .register(meterRegistry);
+        this.sampled = Counter.builder("guardian.trust.messages").tag("outcome", "sampled")
+                .register(meterRegistry);
+        this.untrusted = Counter.builder("guardian.trust.messages").tag("outcome", "untrusted")
+                .register(meterRegistry);
+        log.info("Trusted author policy runs in {} mode", mode);
+    }
+
+    @Override
+    public @NonNull CheckResult check(@NonNull final Message message) {
+        return Futures.join(checkAsync(message));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final String reason = trustedAuthors.getTrustReason(message.repository(), message.author());
+        if (reason == null) {
+            untrusted.increment();
+            return delegate.checkAsync(message);
+        }
+        if (mode == Mode.ACTIVE && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            decided.increment();
+            log.debug("Not checking {}: {}", message.link(), reason);
+            return CompletableFuture.completedFuture(new CheckResult(message, ViolationState.NONE, reason, null,
+                    "trust"));
+        }
+        sampled.increment();
+        final CompletableFuture<CheckResult> checked = delegate.checkAsync(message);
+        return Futures.propagateCancellation(checked.thenApply(result -> {
+            recordVerdict(result.state());
+            if (result.state() != ViolationState.NONE) {
+                log.info("Trusted author {} got {} for {}", message.author(), result.state(), message.link());
+            }
+            return result;
+        }), checked);
+    }
+
+    private void recordVerdict(@NonNull final ViolationState state) {
+        Counter.builder("guardian.trust.verdicts")
+                .description("Verdicts of checked messages by trusted authors")
+                .tag("state", state.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .increment();
+    }
+}
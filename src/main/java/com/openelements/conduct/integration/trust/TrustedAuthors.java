@@ -0,0 +1,194 @@
+package com.openelements.conduct.integration.trust;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.openelements.conduct.endpoint.GitHubClient;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides if the author of a message is trusted. An author is trusted if they are a member of the configured organization
+ * that owns the repository of the message or have at least {@code minContributions} commits in that repository.
+ * Membership of an organization never makes an author trusted in the repositories of other owners.
+ * <p>
+ * The members of the organizations are fetched page by page and refreshed periodically in the background. Contribution
+ * counts are fetched from the search API on the first message of an author in a repository and cached for the given
+ * time. Until a count is known the author is not trusted, so a check never waits for the search API. A failed search
+ * is cached for {@link #FAILURE_TIME_TO_LIVE}, so the search API is not queried again for every message.
+ */
+public class TrustedAuthors implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(TrustedAuthors.class);
+
+    private final static Duration FAILURE_TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    /**
+     * The contribution count of a failed search.
+     */
+    private final static int UNKNOWN_CONTRIBUTIONS = -1;
+
+    private final GitHubClient gitHubClient;
+
+    private final List<String> organizations;
+
+    private final int minContributions;
+
+    /**
+     * The members (lower case logins) by organization.
+     */
+    private final Map<String, Set<String>> members = new ConcurrentHashMap<>();
+
+    private final AsyncLoadingCache<ContributionKey, Integer> contributions;
+
+    private final ScheduledExecutorService refresher;
+
+    public TrustedAuthors(@NonNull final GitHubClient gitHubClient, @NonNull final List<String> organizations,
+            @NonNull final Duration membersRefreshInterval, final int minContributions,
+            @NonNull final Duration contributionsTimeToLive, final long contributionsMaxEntries) {
+        this.gitHubClient = Objects.requireNonNull(gitHubClient, "gitHubClient must not be null");
+        this.organizations = Objects.requireNonNull(organizations, "organizations must not be null").stream()
+                .map(String::trim)
+                .filter(organization -> !organization.isEmpty())
+                .toList();
+        Objects.requireNonNull(membersRefreshInterval, "membersRefreshInterval must not be null");
+        Objects.requireNonNull(contributionsTimeToLive, "contributionsTimeToLive must not be null");
+        if (!membersRefreshInterval.isPositive()) {
+            throw new IllegalArgumentException("membersRefreshInterval must be positive");
+        }
+        this.minContributions = minContributions;
+        this.contributions = Caffeine.newBuilder()
+                .maximumSize(contributionsMaxEntries)
+                .expireAfter(new ContributionExpiry(contributionsTimeToLive))
+                .buildAsync((key, executor) -> gitHubClient.getContributionCountAsync(key.repository(),
+                        key.author()).exceptionally(e -> {
+                            log.debug("Can not fetch contributions of {} in {}", key.author(), key.repository(), e);
+                            return UNKNOWN_CONTRIBUTIONS;
+                        }));
+        this.refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("trusted-authors-refresher")
+                .daemon(true)
+                .factory());
+        if (!this.organizations.isEmpty()) {
+            refresher.scheduleWithFixedDelay(this::refreshMembers, 0, membersRefreshInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+        log.info("Trusting members of {} and authors with at least {} contributions", this.organizations,
+                minContributions);
+    }
+
+    private void refreshMembers() {
+        for (String organization : organizations) {
+            try {
+                final Set<String> fetched = new HashSet<>();
+                gitHubClient.getAllUsersForOrg(organization)
+                        .forEach(login -> fetched.add(login.toLowerCase(Locale.ROOT)));
+                final Set<String> previous = members.put(organization, Set.copyOf(fetched));
+                if (previous == null || !previous.equals(fetched)) {
+                    log.info("Organization {} has {} members", organization, fetched.size());
+                }
+            } catch (Exception e) {
+                // the members of the last refresh stay trusted
+                log.warn("Can not refresh members of organization {}", organization, e);
+            }
+        }
+    }
+
+    /**
+     * Returns why the author is trusted or {@code null} if the author is not trusted (yet).
+     *
+     * @param repository the full name ({@code owner/name}) of the repository of the message, can be null
+     * @param author     the login of the author, can be null
+     * @return the reason or {@code null}
+     */
+    public @Nullable String getTrustReason(@Nullable final String repository, @Nullable final String author) {
+        if (author == null || author.isBlank()) {
+            return null;
+        }
+        if (repository == null || repository.isBlank()) {
+            return null;
+        }
+        final String login = author.toLowerCase(Locale.ROOT);
+        final String organization = ownerOf(repository);
+        if (organization != null && members.getOrDefault(organization, Set.of()).contains(login)) {
+            return "Author " + author + " is a member of " + organization + ".";
+        }
+        if (minContributions <= 0) {
+            return null;
+        }
+        final CompletableFuture<Integer> count = contributions.get(
+                new ContributionKey(repository.toLowerCase(Locale.ROOT), login));
+        if (!count.isDone()) {
+            return null;
+        }
+        final int value = count.join();
+        if (value < minContributions) {
+            return null;
+        }
+        return "Author " + author + " has " + value + " contributions to " + repository + ".";
+    }
+
+    /**
+     * Returns the configured organization that owns the repository or {@code null} if the owner is not configured.
+     */
+    private @Nullable String ownerOf(@NonNull final String repository) {
+        final int separator = repository.indexOf('/');
+        if (separator <= 0) {
+            return null;
+        }
+        final String owner = repository.substring(0, separator);
+        return organizations.stream()
+                .filter(owner::equalsIgnoreCase)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private record ContributionKey(@NonNull String repository, @NonNull String author) {
+    }
+
+    /**
+     * Expires the counts after the configured time and failed searches after {@link #FAILURE_TIME_TO_LIVE}.
+     */
+    private static final class ContributionExpiry implements Expiry<ContributionKey, Integer> {
+
+        private final long timeToLiveNanos;
+
+        private ContributionExpiry(@NonNull final Duration timeToLive) {
+            this.timeToLiveNanos = timeToLive.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(ContributionKey key, Integer count, long currentTime) {
+            return count == UNKNOWN_CONTRIBUTIONS ? FAILURE_TIME_TO_LIVE.toNanos() : timeToLiveNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(ContributionKey key, Integer count, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, count, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ContributionKey key, Integer count, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
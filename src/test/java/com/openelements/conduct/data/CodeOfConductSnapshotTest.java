@@ -0,0 +1,47 @@
+package com.openelements.conduct.data;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CodeOfConductSnapshotTest {
+
+    @Test
+    void versionsTheContent() {
+        final CodeOfConductSnapshot snapshot = CodeOfConductSnapshot.of(Map.of(TextfileType.MARKDOWN, "Be nice.",
+                TextfileType.PLAIN, "Be kind."));
+
+        assertThat(snapshot.getVersion(TextfileType.MARKDOWN)).isEqualTo(CodeOfConductSnapshot.hash("Be nice."))
+                .hasSize(16);
+        assertThat(snapshot.getVersion(TextfileType.PLAIN)).isEqualTo(CodeOfConductSnapshot.hash("Be kind."));
+    }
+
+    @Test
+    void comparesTheContent() {
+        final CodeOfConductSnapshot snapshot = CodeOfConductSnapshot.ofAllTypes("Be nice.");
+
+        assertThat(snapshot.hasSameContent(CodeOfConductSnapshot.ofAllTypes("Be nice."))).isTrue();
+        assertThat(snapshot.hasSameContent(CodeOfConductSnapshot.ofAllTypes("Be kind."))).isFalse();
+        assertThat(snapshot.hasSameContent(CodeOfConductSnapshot.of(Map.of(TextfileType.MARKDOWN, "Be nice."))))
+                .isFalse();
+    }
+
+    @Test
+    void rejectsUnsupportedTypes() {
+        final CodeOfConductSnapshot snapshot = CodeOfConductSnapshot.of(Map.of(TextfileType.MARKDOWN, "Be nice."));
+
+        assertThat(snapshot.supports(TextfileType.HTML)).isFalse();
+        assertThatThrownBy(() -> snapshot.getCodeOfConduct(TextfileType.HTML))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> snapshot.getVersion(TextfileType.HTML)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void isProviderOfAllRepositories() {
+        final CodeOfConductSnapshot snapshot = CodeOfConductSnapshot.ofAllTypes("Be nice.");
+
+        assertThat(snapshot.forRepository("OpenElements/hiero")).isSameAs(snapshot);
+    }
+}
@@ -0,0 +1,78 @@
+package com.openelements.conduct.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ExpiringBloomFilterTest {
+
+    @Test
+    void remembersAddedKeys() {
+        final ExpiringBloomFilter filter = new ExpiringBloomFilter(1_000, 0.001, Duration.ofHours(1));
+
+        filter.put("delivery-1");
+
+        assertThat(filter.mightContain("delivery-1")).isTrue();
+        assertThat(filter.mightContain("delivery-2")).isFalse();
+    }
+
+    @Test
+    void keepsTheFalsePositiveRate() {
+        final ExpiringBloomFilter filter = new ExpiringBloomFilter(10_000, 0.01, Duration.ofHours(1));
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("added-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("added-" + i)).isTrue();
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    void forgetsKeysAfterTwoGenerations() {
+        final ExpiringBloomFilter filter = new ExpiringBloomFilter(10, 0.001, Duration.ofHours(1));
+        filter.put("first");
+
+        // a full generation of 10 insertions is replaced by a new one
+        for (int i = 0; i < 10; i++) {
+            filter.put("key-" + i);
+        }
+        assertThat(filter.mightContain("first")).isTrue();
+        for (int i = 10; i < 20; i++) {
+            filter.put("key-" + i);
+        }
+
+        assertThat(filter.mightContain("first")).isFalse();
+        assertThat(filter.mightContain("key-19")).isTrue();
+    }
+
+    @Test
+    void forgetsKeysAfterTheLifetime() throws InterruptedException {
+        final ExpiringBloomFilter filter = new ExpiringBloomFilter(1_000, 0.001, Duration.ofMillis(20));
+        filter.put("delivery-1");
+
+        Thread.sleep(30);
+        assertThat(filter.mightContain("delivery-1")).isTrue();
+        Thread.sleep(30);
+
+        assertThat(filter.mightContain("delivery-1")).isFalse();
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThatThrownBy(() -> new ExpiringBloomFilter(0, 0.01, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ExpiringBloomFilter(10, 1, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ExpiringBloomFilter(10, 0.01, null))
+                .isInstanceOf(NullPointerException.class);
+    }
+}
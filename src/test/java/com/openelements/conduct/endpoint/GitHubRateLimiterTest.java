@@ -0,0 +1,142 @@
+package com.openelements.conduct.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import javax.net.ssl.SSLSession;
+import org.junit.jupiter.api.Test;
+
+class GitHubRateLimiterTest {
+
+    private final static URI CORE_URI = URI.create("https://api.github.com/repos/OpenElements/hiero/issues");
+
+    private final static URI SEARCH_URI = URI.create("https://api.github.com/search/commits?q=author:alice");
+
+    private final GitHubRateLimiter rateLimiter = new GitHubRateLimiter(Duration.ofMinutes(5));
+
+    @Test
+    void mapsUrisToResources() {
+        assertThat(GitHubRateLimiter.resourceOf(CORE_URI)).isEqualTo("core");
+        assertThat(GitHubRateLimiter.resourceOf(SEARCH_URI)).isEqualTo("search");
+        assertThat(GitHubRateLimiter.resourceOf(URI.create("https://api.github.com/graphql"))).isEqualTo("graphql");
+        assertThat(GitHubRateLimiter.resourceOf(URI.create("https://api.github.com"))).isEqualTo("core");
+    }
+
+    @Test
+    void sendsRequestsWithoutAKnownBudget() {
+        assertThat(rateLimiter.acquire(CORE_URI)).isCompleted();
+    }
+
+    @Test
+    void sendsRequestsWithinTheBudget() {
+        rateLimiter.update(response(CORE_URI, 200, budget(5000, 4000, Duration.ofMinutes(30))));
+
+        assertThat(rateLimiter.acquire(CORE_URI)).isCompleted();
+        assertThat(rateLimiter.acquire(CORE_URI)).isCompleted();
+    }
+
+    @Test
+    void pacesRequestsWhenTheBudgetIsLow() {
+        rateLimiter.update(response(CORE_URI, 200, budget(5000, 10, Duration.ofMinutes(1))));
+
+        assertThat(rateLimiter.acquire(CORE_URI)).isCompleted();
+        final CompletableFuture<Void> paced = rateLimiter.acquire(CORE_URI);
+
+        assertThat(paced).isNotDone();
+        paced.cancel(true);
+    }
+
+    @Test
+    void keepsTheBudgetsOfResourcesApart() {
+        rateLimiter.update(response(SEARCH_URI, 200, budget(30, 0, Duration.ofMinutes(1))));
+
+        assertThat(rateLimiter.acquire(SEARCH_URI)).isNotDone();
+        assertThat(rateLimiter.acquire(CORE_URI)).isCompleted();
+    }
+
+    @Test
+    void failsRequestsThatWouldWaitLongerThanTheMaximum() {
+        rateLimiter.update(response(CORE_URI, 200, budget(5000, 0, Duration.ofMinutes(30))));
+
+        assertThat(rateLimiter.acquire(CORE_URI)).failsWithin(Duration.ofSeconds(1))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void keepsTheLowestBudgetOfAWindow() {
+        final Map<String, String> headers = budget(5000, 0, Duration.ofMinutes(30));
+        rateLimiter.update(response(CORE_URI, 200, headers));
+        headers.put("X-RateLimit-Remaining", "100");
+        rateLimiter.update(response(CORE_URI, 200, headers));
+
+        assertThat(rateLimiter.acquire(CORE_URI)).isCompletedExceptionally();
+    }
+
+    @Test
+    void returnsTheRetryDelayOfRateLimitRejections() {
+        assertThat(rateLimiter.getRetryDelay(response(CORE_URI, 429, Map.of("Retry-After", "30"))))
+                .isEqualTo(30_000);
+        assertThat(rateLimiter.getRetryDelay(response(CORE_URI, 403, budget(5000, 0, Duration.ofMinutes(2)))))
+                .isBetween(60_000L, 120_000L);
+        assertThat(rateLimiter.getRetryDelay(response(CORE_URI, 403, budget(5000, 0, Duration.ofMinutes(30)))))
+                .isEqualTo(-1);
+        assertThat(rateLimiter.getRetryDelay(response(CORE_URI, 403, Map.of()))).isEqualTo(-1);
+        assertThat(rateLimiter.getRetryDelay(response(CORE_URI, 404, Map.of("Retry-After", "30")))).isEqualTo(-1);
+    }
+
+    private static Map<String, String> budget(final long limit, final long remaining, final Duration reset) {
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Limit", Long.toString(limit));
+        headers.put("X-RateLimit-Remaining", Long.toString(remaining));
+        headers.put("X-RateLimit-Reset", Long.toString(Instant.now().plus(reset).getEpochSecond()));
+        return headers;
+    }
+
+    private static HttpResponse<String> response(final URI uri, final int statusCode,
+            final Map<String, String> headers) {
+        final Map<String, List<String>> values = new HashMap<>();
+        headers.forEach((name, value) -> values.put(name, List.of(value)));
+        return new TestResponse(uri, statusCode, HttpHeaders.of(values, (a, b) -> true));
+    }
+
+    private record TestResponse(URI uri, int statusCode, HttpHeaders headers) implements HttpResponse<String> {
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(uri).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public String body() {
+            return "";
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_2;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.openelements.conduct.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openelements.conduct.MessageDispatcher;
+import com.openelements.conduct.WorkflowHandler;
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+class GitHubWebhookEndpointTest {
+
+    private final static String COMMENT = """
+            {
+              "action": "created",
+              "comment": {
+                "html_url": "https://github.com/OpenElements/hiero/issues/1#issuecomment-9",
+                "body": "Same here",
+                "user": {"login": "dave"}
+              },
+              "repository": {"full_name": "OpenElements/hiero"}
+            }
+            """;
+
+    private final static Message MESSAGE = new Message(null, "Same here",
+            URI.create("https://github.com/OpenElements/hiero/issues/1#issuecomment-9"), "OpenElements/hiero", "dave");
+
+    private final StubMessageDispatcher messageDispatcher = new StubMessageDispatcher();
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new GitHubWebhookEndpoint(messageDispatcher,
+            new WebhookDeduplicator(100, Duration.ofHours(1), null), new ObjectMapper())).build();
+
+    @AfterEach
+    void close() {
+        messageDispatcher.close();
+    }
+
+    @Test
+    void acceptsJsonPayloads() throws Exception {
+        mockMvc.perform(post("/github/webhook")
+                        .header(GitHubWebhookEndpoint.HUB_EVENT, "issue_comment")
+                        .header(GitHubWebhookEndpoint.HUB_DELIVERY, "delivery-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(COMMENT))
+                .andExpect(status().isAccepted());
+
+        assertThat(messageDispatcher.messages).containsExactly(MESSAGE);
+    }
+
+    @Test
+    void acceptsFormEncodedPayloads() throws Exception {
+        mockMvc.perform(post("/github/webhook")
+                        .header(GitHubWebhookEndpoint.HUB_EVENT, "issue_comment")
+                        .header(GitHubWebhookEndpoint.HUB_DELIVERY, "delivery-1")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("payload", COMMENT))
+                .andExpect(status().isAccepted());
+
+        assertThat(messageDispatcher.messages).containsExactly(MESSAGE);
+    }
+
+    @Test
+    void dropsRedeliveries() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/github/webhook")
+                    .header(GitHubWebhookEndpoint.HUB_EVENT, "issue_comment")
+                    .header(GitHubWebhookEndpoint.HUB_DELIVERY, "delivery-1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(COMMENT));
+        }
+
+        assertThat(messageDispatcher.messages).hasSize(1);
+    }
+
+    @Test
+    void ignoresUnknownEvents() throws Exception {
+        mockMvc.perform(post("/github/webhook")
+                        .header(GitHubWebhookEndpoint.HUB_EVENT, "star")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("not even JSON"))
+                .andExpect(status().isOk());
+
+        assertThat(messageDispatcher.messages).isEmpty();
+    }
+
+    @Test
+    void ignoresUnsupportedActions() throws Exception {
+        mockMvc.perform(post("/github/webhook")
+                        .header(GitHubWebhookEndpoint.HUB_EVENT, "issue_comment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(COMMENT.replace("created", "deleted")))
+                .andExpect(status().isOk());
+
+        assertThat(messageDispatcher.messages).isEmpty();
+    }
+
+    private static final class StubMessageDispatcher extends MessageDispatcher {
+
+        private final List<Message> messages = new CopyOnWriteArrayList<>();
+
+        private StubMessageDispatcher() {
+            super(new WorkflowHandler(message -> new CheckResult(message, ViolationState.NONE, "OK"), List.of()),
+                    1, 1, 1);
+        }
+
+        @Override
+        public boolean dispatch(final Message message) {
+            messages.add(message);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.openelements.conduct.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class GitHubWebhookJsonParserTest {
+
+    private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Test
+    void parsesIssues() throws IOException {
+        final GitHubWebhookPayload payload = parse("""
+                {
+                  "action": "opened",
+                  "issue": {
+                    "html_url": "https://github.com/OpenElements/hiero/issues/1",
+                    "number": 1,
+                    "title": "Login fails",
+                    "user": {"login": "alice", "id": 1},
+                    "labels": [{"name": "bug"}],
+                    "body": "The login fails."
+                  },
+                  "repository": {"id": 7, "full_name": "OpenElements/hiero", "owner": {"login": "OpenElements"}},
+                  "sender": {"login": "alice"}
+                }
+                """, "issue");
+
+        assertThat(payload).isEqualTo(new GitHubWebhookPayload("opened", "Login fails", "The login fails.",
+                "https://github.com/OpenElements/hiero/issues/1", "alice", "OpenElements/hiero"));
+    }
+
+    @Test
+    void parsesPullRequests() throws IOException {
+        final GitHubWebhookPayload payload = parse("""
+                {
+                  "action": "opened",
+                  "number": 2,
+                  "pull_request": {
+                    "html_url": "https://github.com/OpenElements/hiero/pull/2",
+                    "title": "Fix login",
+                    "body": null,
+                    "user": {"login": "bob"},
+                    "head": {"repo": {"full_name": "bob/hiero"}, "user": {"login": "bob"}}
+                  },
+                  "repository": {"full_name": "OpenElements/hiero"}
+                }
+                """, "pull_request");
+
+        assertThat(payload.title()).isEqualTo("Fix login");
+        assertThat(payload.body()).isNull();
+        assertThat(payload.getText()).isEmpty();
+        assertThat(payload.author()).isEqualTo("bob");
+        assertThat(payload.repository()).isEqualTo("OpenElements/hiero");
+    }
+
+    @Test
+    void parsesDiscussions() throws IOException {
+        final GitHubWebhookPayload payload = parse("""
+                {
+                  "action": "created",
+                  "discussion": {
+                    "html_url": "https://github.com/OpenElements/hiero/discussions/3",
+                    "category": {"name": "Ideas", "description": "Share ideas"},
+                    "title": "Roadmap",
+                    "body": "What comes next?",
+                    "user": {"login": "carol"}
+                  },
+                  "repository": {"full_name": "OpenElements/hiero"}
+                }
+                """, "discussion");
+
+        assertThat(payload).isEqualTo(new GitHubWebhookPayload("created", "Roadmap", "What comes next?",
+                "https://github.com/OpenElements/hiero/discussions/3", "carol", "OpenElements/hiero"));
+    }
+
+    @Test
+    void parsesComments() throws IOException {
+        final GitHubWebhookPayload payload = parse("""
+                {
+                  "action": "created",
+                  "issue": {
+                    "html_url": "https://github.com/OpenElements/hiero/issues/1",
+                    "title": "Login fails",
+                    "body": "The login fails.",
+                    "user": {"login": "alice"}
+                  },
+                  "comment": {
+                    "html_url": "https://github.com/OpenElements/hiero/issues/1#issuecomment-9",
+                    "body": "Same here",
+                    "user": {"login": "dave"}
+                  },
+                  "repository": {"full_name": "OpenElements/hiero"}
+                }
+                """, "comment");
+
+        assertThat(payload).isEqualTo(new GitHubWebhookPayload("created", null, "Same here",
+                "https://github.com/OpenElements/hiero/issues/1#issuecomment-9", "dave", "OpenElements/hiero"));
+    }
+
+    @Test
+    void parsesFieldsInAnyOrder() throws IOException {
+        final GitHubWebhookPayload payload = parse("""
+                {
+                  "repository": {"owner": {"login": "OpenElements"}, "full_name": "OpenElements/hiero"},
+                  "comment": {
+                    "user": {"id": 4, "login": "dave"},
+                    "body": "Same here",
+                    "html_url": "https://github.com/OpenElements/hiero/issues/1#issuecomment-9"
+                  },
+                  "action": "created"
+                }
+                """, "comment");
+
+        assertThat(payload).isEqualTo(new GitHubWebhookPayload("created", null, "Same here",
+                "https://github.com/OpenElements/hiero/issues/1#issuecomment-9", "dave", "OpenElements/hiero"));
+    }
+
+    @Test
+    void ignoresFieldsOfNestedObjects() throws IOException {
+        final GitHubWebhookPayload payload = parse("""
+                {
+                  "action": "created",
+                  "changes": {"action": "edited", "comment": {"body": "Old text"}},
+                  "comment": {
+                    "reactions": {"body": "reaction", "html_url": "https://example.com/reactions"},
+                    "user": {"login": "dave", "html_url": "https://github.com/dave", "user": {"login": "mallory"}},
+                    "performed_via_github_app": {"title": "App", "owner": {"login": "app"}},
+                    "body": "Same here",
+                    "html_url": "https://github.com/OpenElements/hiero/issues/1#issuecomment-9"
+                  },
+                  "organization": {"full_name": "OpenElements"},
+                  "repository": {"owner": {"full_name": "Owner"}, "full_name": "OpenElements/hiero"}
+                }
+                """, "comment");
+
+        assertThat(payload).isEqualTo(new GitHubWebhookPayload("created", null, "Same here",
+                "https://github.com/OpenElements/hiero/issues/1#issuecomment-9", "dave", "OpenElements/hiero"));
+    }
+
+    @Test
+    void leavesMissingFieldsEmpty() throws IOException {
+        final GitHubWebhookPayload payload = parse("""
+                {"action": "deleted", "comment": "not an object", "repository": null}
+                """, "comment");
+
+        assertThat(payload).isEqualTo(new GitHubWebhookPayload("deleted", null, null, null, null, null));
+        assertThatThrownBy(payload::getUrl).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsPayloadsThatAreNoObjects() {
+        assertThatThrownBy(() -> parse("[]", "issue")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static GitHubWebhookPayload parse(final String json, final String payloadField) throws IOException {
+        return GitHubWebhookJsonParser.parse(JSON_FACTORY,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), payloadField);
+    }
+}
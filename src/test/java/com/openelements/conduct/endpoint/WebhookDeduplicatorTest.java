@@ -0,0 +1,81 @@
+package com.openelements.conduct.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class WebhookDeduplicatorTest {
+
+    private final static URI LINK = URI.create("https://github.com/OpenElements/hiero/issues/1");
+
+    @Test
+    void dropsRedeliveries() {
+        final WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofHours(1), null);
+
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isFalse();
+        deduplicator.confirm("delivery-1", LINK);
+
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isTrue();
+    }
+
+    @Test
+    void dropsOtherDeliveriesOfTheSameMessage() {
+        final WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofHours(1), null);
+        deduplicator.isDuplicate("delivery-1", LINK);
+        deduplicator.confirm("delivery-1", LINK);
+
+        assertThat(deduplicator.isDuplicate("delivery-2", LINK)).isTrue();
+        assertThat(deduplicator.isDuplicate(null, LINK)).isTrue();
+        assertThat(deduplicator.isDuplicate("delivery-3", URI.create("https://github.com/OpenElements/hiero/issues/2")))
+                .isFalse();
+    }
+
+    @Test
+    void handlesRedeliveriesOfReleasedDeliveries() {
+        final WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofHours(1), null);
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isFalse();
+
+        deduplicator.release("delivery-1", LINK);
+
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isFalse();
+        deduplicator.confirm("delivery-1", LINK);
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isTrue();
+    }
+
+    @Test
+    void handlesMessagesAgainOnceTheyExpired() throws InterruptedException {
+        final WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMillis(1), null);
+        deduplicator.isDuplicate("delivery-1", LINK);
+        deduplicator.confirm("delivery-1", LINK);
+
+        Thread.sleep(20);
+
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isFalse();
+    }
+
+    @Test
+    void remembersConfirmedDeliveriesInTheBloomFilter() throws InterruptedException {
+        final ExpiringBloomFilter bloomFilter = new ExpiringBloomFilter(1_000, 0.001, Duration.ofHours(1));
+        final WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMillis(1), bloomFilter);
+        deduplicator.isDuplicate("delivery-1", LINK);
+        deduplicator.confirm("delivery-1", LINK);
+
+        Thread.sleep(20);
+
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isTrue();
+        assertThat(deduplicator.isDuplicate("delivery-2", LINK)).isTrue();
+    }
+
+    @Test
+    void doesNotRememberReleasedDeliveriesInTheBloomFilter() {
+        final ExpiringBloomFilter bloomFilter = new ExpiringBloomFilter(1_000, 0.001, Duration.ofHours(1));
+        final WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofHours(1), bloomFilter);
+        deduplicator.isDuplicate("delivery-1", LINK);
+
+        deduplicator.release("delivery-1", LINK);
+
+        assertThat(deduplicator.isDuplicate("delivery-1", LINK)).isFalse();
+    }
+}
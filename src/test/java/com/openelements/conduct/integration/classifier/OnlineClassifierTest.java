@@ -0,0 +1,118 @@
+package com.openelements.conduct.integration.classifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.openelements.conduct.data.Message;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OnlineClassifierTest {
+
+    private final static int DIMENSIONS = 1 << 12;
+
+    private final static List<String> HARMFUL = List.of(
+            "You are an idiot and your code is garbage",
+            "Shut up, nobody asked for your stupid opinion",
+            "What an idiot, go away and never come back",
+            "This is garbage written by a stupid moron");
+
+    private final static List<String> HARMLESS = List.of(
+            "Thanks for the review, I have updated the pull request",
+            "Could you add a test for the parser please?",
+            "The build is green again after the rebase",
+            "Great work, this fixes the login issue for me");
+
+    @Test
+    void predictsOneHalfWithoutTraining() {
+        final OnlineClassifier classifier = new OnlineClassifier(DIMENSIONS);
+
+        assertThat(classifier.predict(features("Hello world"))).isEqualTo(0.5);
+        assertThat(classifier.getExamples()).isZero();
+    }
+
+    @Test
+    void learnsToSeparateHarmfulFromHarmlessMessages() {
+        final OnlineClassifier classifier = trained();
+
+        assertThat(classifier.getExamples()).isEqualTo(20L * (HARMFUL.size() + HARMLESS.size()));
+        assertThat(classifier.predict(features("You stupid idiot"))).isGreaterThan(0.5);
+        assertThat(classifier.predict(features("Thanks, the build is green"))).isLessThan(0.5);
+    }
+
+    @Test
+    void keepsTheModelInAFile(@TempDir final Path directory) throws Exception {
+        final OnlineClassifier classifier = trained();
+        final Path file = directory.resolve("models").resolve("classifier.bin");
+
+        classifier.save(file);
+        final OnlineClassifier loaded = new OnlineClassifier(DIMENSIONS);
+
+        assertThat(loaded.load(file)).isTrue();
+        assertThat(loaded.getExamples()).isEqualTo(classifier.getExamples());
+        assertThat(loaded.predict(features("You stupid idiot")))
+                .isEqualTo(classifier.predict(features("You stupid idiot")));
+        assertThat(Files.exists(file.resolveSibling("classifier.bin.tmp"))).isFalse();
+    }
+
+    @Test
+    void ignoresModelsOfOtherDimensions(@TempDir final Path directory) throws Exception {
+        final Path file = directory.resolve("classifier.bin");
+        trained().save(file);
+
+        assertThat(new OnlineClassifier(DIMENSIONS * 2).load(file)).isFalse();
+        assertThat(new OnlineClassifier(DIMENSIONS).load(directory.resolve("missing.bin"))).isFalse();
+    }
+
+    @Test
+    void rejectsOtherFiles(@TempDir final Path directory) throws Exception {
+        final Path file = directory.resolve("classifier.bin");
+        Files.writeString(file, "not a model file");
+
+        assertThatThrownBy(() -> new OnlineClassifier(DIMENSIONS).load(file))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsFeaturesOfMoreDimensions() {
+        final OnlineClassifier classifier = new OnlineClassifier(16);
+        final HashedFeatures features = new HashedFeatures(new int[]{3, 40}, 0.5f);
+
+        assertThatThrownBy(() -> classifier.predict(features)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OnlineClassifier(100)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void hashesMessagesToNormalizedFeatures() {
+        final HashedFeatures features = features("Hello World");
+
+        assertThat(features.isEmpty()).isFalse();
+        assertThat(features.indices()).isSorted().doesNotHaveDuplicates();
+        assertThat(features.indices()[0]).isNotNegative();
+        assertThat(features.indices()[features.indices().length - 1]).isLessThan(DIMENSIONS);
+        assertThat(features.value() * features.value() * features.indices().length).isCloseTo(1f, Offset.offset(1e-5f));
+        assertThat(features("HELLO world").indices()).isEqualTo(features.indices());
+        assertThat(features("").isEmpty()).isTrue();
+    }
+
+    private static OnlineClassifier trained() {
+        final OnlineClassifier classifier = new OnlineClassifier(DIMENSIONS);
+        for (int epoch = 0; epoch < 20; epoch++) {
+            for (int i = 0; i < HARMFUL.size(); i++) {
+                classifier.train(features(HARMFUL.get(i)), true);
+                classifier.train(features(HARMLESS.get(i)), false);
+            }
+        }
+        return classifier;
+    }
+
+    private static HashedFeatures features(final String text) {
+        return HashedFeatures.of(new Message(text, URI.create("https://example.com/1")), DIMENSIONS);
+    }
+}
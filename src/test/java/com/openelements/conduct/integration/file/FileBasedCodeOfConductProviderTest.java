@@ -0,0 +1,96 @@
+package com.openelements.conduct.integration.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openelements.conduct.data.TextfileType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileBasedCodeOfConductProviderTest {
+
+    @TempDir
+    private Path directory;
+
+    private FileBasedCodeOfConductProvider provider;
+
+    @AfterEach
+    void close() throws IOException {
+        if (provider != null) {
+            provider.close();
+        }
+    }
+
+    @Test
+    void loadsTheFilesOfTheClasspath() throws IOException {
+        provider = new FileBasedCodeOfConductProvider();
+
+        assertThat(provider.supports(TextfileType.MARKDOWN)).isTrue();
+        assertThat(provider.supports(TextfileType.HTML)).isFalse();
+    }
+
+    @Test
+    void loadsTheFilesOfTheDirectory() throws IOException {
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.MD"), "Be nice.");
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.txt"), "   ");
+
+        provider = new FileBasedCodeOfConductProvider(directory);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+        assertThat(provider.supports(TextfileType.PLAIN)).isFalse();
+    }
+
+    @Test
+    void reloadsChangedFiles() throws Exception {
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.MD"), "Be nice.");
+        provider = new FileBasedCodeOfConductProvider(directory);
+        final String version = provider.getVersion(TextfileType.MARKDOWN);
+
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.MD"), "Be kind.");
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.html"), "<p>Be kind.</p>");
+        awaitChange(version);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be kind.");
+        assertThat(provider.getVersion(TextfileType.MARKDOWN)).isNotEqualTo(version);
+    }
+
+    @Test
+    void keepsTheCodeOfConductIfAFileVanishes() throws Exception {
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.MD"), "Be nice.");
+        provider = new FileBasedCodeOfConductProvider(directory);
+        final String version = provider.getVersion(TextfileType.MARKDOWN);
+
+        Files.delete(directory.resolve("CODE_OF_CONDUCT.MD"));
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.txt"), "Be kind.");
+        Thread.sleep(500);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+        assertThat(provider.supports(TextfileType.PLAIN)).isFalse();
+
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.MD"), "Be kind.");
+        awaitChange(version);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be kind.");
+        assertThat(provider.getCodeOfConduct(TextfileType.PLAIN)).isEqualTo("Be kind.");
+    }
+
+    @Test
+    void keepsTheCodeOfConductIfAFileIsTruncated() throws Exception {
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.MD"), "Be nice.");
+        provider = new FileBasedCodeOfConductProvider(directory);
+
+        Files.writeString(directory.resolve("CODE_OF_CONDUCT.MD"), "");
+        Thread.sleep(500);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+    }
+
+    private void awaitChange(final String version) throws InterruptedException {
+        for (int i = 0; i < 500 && provider.getVersion(TextfileType.MARKDOWN).equals(version); i++) {
+            Thread.sleep(10);
+        }
+    }
+}
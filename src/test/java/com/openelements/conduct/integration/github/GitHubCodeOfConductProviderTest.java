@@ -0,0 +1,231 @@
+package com.openelements.conduct.integration.github;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.endpoint.GitHubClient;
+import com.openelements.conduct.endpoint.GitHubResponse;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitHubCodeOfConductProviderTest {
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final static String REPOSITORY_URL = "https://api.github.com/repos/OpenElements/hiero";
+
+    private final static String FILE_URL = REPOSITORY_URL + "/contents/CODE_OF_CONDUCT.md";
+
+    private final StubGitHubClient gitHubClient = new StubGitHubClient();
+
+    @TempDir
+    private Path directory;
+
+    private GitHubCodeOfConductProvider provider;
+
+    @AfterEach
+    void close() {
+        if (provider != null) {
+            provider.close();
+        }
+    }
+
+    @Test
+    void discoversTheFileByTheCommunityProfile() {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero");
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+        assertThat(gitHubClient.requests).containsExactly(REPOSITORY_URL + "/community/profile", FILE_URL);
+    }
+
+    @Test
+    void fallsBackToTheDefaultsOfTheOrganization() {
+        final String orgFileUrl = "https://api.github.com/repos/OpenElements/.github/contents/CODE_OF_CONDUCT.md";
+        gitHubClient.put(REPOSITORY_URL + "/git/trees/HEAD", tree("README.md"));
+        gitHubClient.put("https://api.github.com/repos/OpenElements/.github/git/trees/HEAD",
+                tree("CODE_OF_CONDUCT.md"));
+        gitHubClient.put(orgFileUrl, file(orgFileUrl, "Be kind.", "v1"));
+
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero");
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be kind.");
+    }
+
+    @Test
+    void failsWithoutCodeOfConduct() {
+        assertThatThrownBy(() -> new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("No code of conduct found");
+    }
+
+    @Test
+    void storesTheResolvedFile() {
+        final Path stateFile = directory.resolve("coc.json");
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero", stateFile, Duration.ZERO);
+
+        assertThat(stateFile).exists().content().contains("\"etag\":\"v1\"", FILE_URL);
+    }
+
+    @Test
+    void revalidatesTheStoredFile() {
+        final Path stateFile = storeState("OpenElements", "hiero");
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero", stateFile, Duration.ZERO);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+        assertThat(gitHubClient.requests).containsExactly(FILE_URL + " (v1)");
+    }
+
+    @Test
+    void replacesTheStoredFileOnceItChanged() throws Exception {
+        final Path stateFile = storeState("OpenElements", "hiero");
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be kind.", "v2"));
+
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero", stateFile, Duration.ZERO);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be kind.");
+        assertThat(Files.readString(stateFile)).contains("\"etag\":\"v2\"");
+    }
+
+    @Test
+    void usesTheStoredFileIfGitHubIsNotReachable() {
+        final Path stateFile = storeState("OpenElements", "hiero");
+        gitHubClient.reachable = false;
+
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero", stateFile, Duration.ZERO);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+    }
+
+    @Test
+    void ignoresTheStoredFileOfAnotherRepository() {
+        final Path stateFile = storeState("OpenElements", "other");
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be kind.", "v2"));
+
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero", stateFile, Duration.ZERO);
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be kind.");
+        assertThat(gitHubClient.requests).first().isEqualTo(REPOSITORY_URL + "/community/profile");
+    }
+
+    @Test
+    void pollsTheFileForChanges() throws InterruptedException {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero", null,
+                Duration.ofMillis(10));
+        final String version = provider.getVersion(TextfileType.MARKDOWN);
+
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be kind.", "v2"));
+        for (int i = 0; i < 100 && provider.getVersion(TextfileType.MARKDOWN).equals(version); i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be kind.");
+        assertThat(gitHubClient.requests).contains(FILE_URL + " (v1)");
+    }
+
+    @Test
+    void keepsTheCodeOfConductIfTheFileVanishes() throws InterruptedException {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+        provider = new GitHubCodeOfConductProvider(gitHubClient, "OpenElements", "hiero", null,
+                Duration.ofMillis(10));
+
+        gitHubClient.responses.clear();
+        final int requests = gitHubClient.requests.size();
+        for (int i = 0; i < 100 && gitHubClient.requests.size() < requests + 100; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(gitHubClient.requests.size()).isGreaterThan(requests);
+        assertThat(provider.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+    }
+
+    private Path storeState(final String owner, final String repo) {
+        final Path stateFile = directory.resolve("coc.json");
+        try {
+            OBJECT_MAPPER.writeValue(stateFile.toFile(), new GitHubCodeOfConductProvider.DiscoveryState(owner, repo,
+                    FILE_URL, "v1", "Be nice."));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return stateFile;
+    }
+
+    static GitHubResponse profile(final String fileUrl) {
+        final ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        body.putObject("files").putObject("code_of_conduct_file").put("url", fileUrl);
+        return new GitHubResponse(200, null, body);
+    }
+
+    static GitHubResponse tree(final String... files) {
+        final ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        for (String file : files) {
+            body.withArray("tree").addObject().put("path", file).put("type", "blob");
+        }
+        return new GitHubResponse(200, null, body);
+    }
+
+    static GitHubResponse file(final String url, final String content, final String etag) {
+        final ObjectNode body = OBJECT_MAPPER.createObjectNode()
+                .put("url", url)
+                .put("content", Base64.getEncoder().encodeToString(content.getBytes(StandardCharsets.UTF_8)));
+        return new GitHubResponse(200, etag, body);
+    }
+
+    /**
+     * Answers requests with the stored responses and honors the ETags of conditional requests.
+     */
+    static final class StubGitHubClient extends GitHubClient {
+
+        final Map<String, GitHubResponse> responses = new ConcurrentHashMap<>();
+
+        final List<String> requests = new CopyOnWriteArrayList<>();
+
+        volatile boolean reachable = true;
+
+        void put(final String uri, final GitHubResponse response) {
+            responses.put(uri, response);
+        }
+
+        @Override
+        public CompletableFuture<GitHubResponse> getAsync(final URI uri, final String etag) {
+            requests.add(etag == null ? uri.toString() : uri + " (" + etag + ")");
+            if (!reachable) {
+                return CompletableFuture.failedFuture(new IllegalStateException("GitHub not reachable"));
+            }
+            final GitHubResponse response = responses.get(uri.toString());
+            if (response == null) {
+                return CompletableFuture.completedFuture(new GitHubResponse(404, null, null));
+            }
+            if (etag != null && etag.equals(response.etag())) {
+                return CompletableFuture.completedFuture(new GitHubResponse(304, etag, null));
+            }
+            return CompletableFuture.completedFuture(response);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.openelements.conduct.integration.github;
+
+import static com.openelements.conduct.integration.github.GitHubCodeOfConductProviderTest.file;
+import static com.openelements.conduct.integration.github.GitHubCodeOfConductProviderTest.profile;
+import static com.openelements.conduct.integration.github.GitHubCodeOfConductProviderTest.tree;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openelements.conduct.data.CodeOfConductProvider;
+import com.openelements.conduct.data.CodeOfConductSnapshot;
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.endpoint.GitHubResponse;
+import com.openelements.conduct.integration.github.GitHubCodeOfConductProviderTest.StubGitHubClient;
+import com.openelements.conduct.integration.github.RepositoryCodeOfConductProvider.Resolution;
+import com.openelements.conduct.integration.github.RepositoryCodeOfConductProvider.ResolutionExpiry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class RepositoryCodeOfConductProviderTest {
+
+    // repositories are looked up by their lower case name
+    private final static String REPOSITORY_URL = "https://api.github.com/repos/openelements/hiero";
+
+    private final static String ORG_URL = "https://api.github.com/repos/openelements/.github";
+
+    private final static String FILE_URL = REPOSITORY_URL + "/contents/CODE_OF_CONDUCT.md";
+
+    private final static String ORG_FILE_URL = ORG_URL + "/contents/CODE_OF_CONDUCT.md";
+
+    private final static CodeOfConductSnapshot DEFAULT = CodeOfConductSnapshot.ofAllTypes("Default");
+
+    private final StubGitHubClient gitHubClient = new StubGitHubClient();
+
+    @Test
+    void usesTheCodeOfConductOfTheRepository() {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+
+        final CodeOfConductProvider resolved = provider(Duration.ofHours(1)).forRepository("OpenElements/hiero");
+
+        assertThat(resolved.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+    }
+
+    @Test
+    void fallsBackToTheDefaultsOfTheOrganization() {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", new GitHubResponse(200, null,
+                new ObjectMapper().createObjectNode()));
+        gitHubClient.put(ORG_URL + "/community/profile", profile(ORG_FILE_URL));
+        gitHubClient.put(ORG_FILE_URL, file(ORG_FILE_URL, "Be kind.", "v1"));
+
+        final CodeOfConductProvider resolved = provider(Duration.ofHours(1)).forRepository("OpenElements/hiero");
+
+        assertThat(resolved.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be kind.");
+    }
+
+    @Test
+    void fallsBackToTheDefaultProvider() {
+        final RepositoryCodeOfConductProvider provider = provider(Duration.ofHours(1));
+
+        assertThat(provider.forRepository("OpenElements/hiero")).isSameAs(DEFAULT);
+        assertThat(provider.forRepository("OpenElements/.github")).isSameAs(DEFAULT);
+        assertThat(provider.forRepository(null)).isSameAs(DEFAULT);
+        assertThat(provider.forRepository("hiero")).isSameAs(DEFAULT);
+        assertThat(provider.forRepository("OpenElements/")).isSameAs(DEFAULT);
+    }
+
+    @Test
+    void searchesTheRootOfRepositoriesWithoutCommunityProfile() {
+        gitHubClient.put(REPOSITORY_URL + "/git/trees/HEAD", tree("README.md", "CODE_OF_CONDUCT.md"));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+
+        final CodeOfConductProvider resolved = provider(Duration.ofHours(1)).forRepository("OpenElements/hiero");
+
+        assertThat(resolved.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+    }
+
+    @Test
+    void cachesResolutions() {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+        final RepositoryCodeOfConductProvider provider = provider(Duration.ofHours(1));
+        provider.forRepository("OpenElements/hiero");
+        final int requests = gitHubClient.requests.size();
+
+        final CodeOfConductProvider resolved = provider.forRepository("openelements/HIERO");
+
+        assertThat(resolved.getCodeOfConduct(TextfileType.MARKDOWN)).isEqualTo("Be nice.");
+        assertThat(gitHubClient.requests).hasSize(requests);
+    }
+
+    @Test
+    void cachesRepositoriesWithoutCodeOfConduct() {
+        final RepositoryCodeOfConductProvider provider = provider(Duration.ofHours(1));
+        provider.forRepository("OpenElements/hiero");
+        final int requests = gitHubClient.requests.size();
+
+        assertThat(provider.forRepository("OpenElements/hiero")).isSameAs(DEFAULT);
+        assertThat(gitHubClient.requests).hasSize(requests);
+    }
+
+    @Test
+    void cachesFailedResolutions() {
+        gitHubClient.reachable = false;
+        final RepositoryCodeOfConductProvider provider = provider(Duration.ofHours(1));
+
+        assertThat(provider.forRepository("OpenElements/hiero")).isSameAs(DEFAULT);
+        final int requests = gitHubClient.requests.size();
+        gitHubClient.reachable = true;
+
+        assertThat(provider.forRepository("OpenElements/hiero")).isSameAs(DEFAULT);
+        assertThat(gitHubClient.requests).hasSize(requests);
+        assertThat(provider.getCache().getIfPresent("openelements/hiero")).isSameAs(Resolution.FAILED);
+    }
+
+    @Test
+    void expiresOnlyFailedResolutions() {
+        final ResolutionExpiry expiry = new ResolutionExpiry();
+
+        assertThat(expiry.expireAfterCreate("openelements/hiero", Resolution.FAILED, 0))
+                .isEqualTo(Duration.ofMinutes(1).toNanos());
+        assertThat(expiry.expireAfterCreate("openelements/hiero", Resolution.NOT_FOUND, 0))
+                .isEqualTo(Long.MAX_VALUE);
+        // FAILED and NOT_FOUND are equal records, failures are detected by identity
+        assertThat(Resolution.NOT_FOUND).isEqualTo(Resolution.FAILED);
+        assertThat(expiry.expireAfterCreate("openelements/hiero", new Resolution(null, null, null), 0))
+                .isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void revalidatesResolutionsWithTheirETag() throws InterruptedException {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+        final RepositoryCodeOfConductProvider provider = provider(Duration.ofMillis(10));
+        final CodeOfConductProvider first = provider.forRepository("OpenElements/hiero");
+        Thread.sleep(20);
+
+        provider.forRepository("OpenElements/hiero");
+        awaitRequest(FILE_URL + " (v1)");
+
+        assertThat(provider.forRepository("OpenElements/hiero")).isSameAs(first);
+    }
+
+    @Test
+    void replacesChangedResolutions() throws InterruptedException {
+        gitHubClient.put(REPOSITORY_URL + "/community/profile", profile(FILE_URL));
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be nice.", "v1"));
+        final RepositoryCodeOfConductProvider provider = provider(Duration.ofMillis(10));
+        provider.forRepository("OpenElements/hiero");
+        gitHubClient.put(FILE_URL, file(FILE_URL, "Be kind.", "v2"));
+        Thread.sleep(20);
+
+        provider.forRepository("OpenElements/hiero");
+        awaitRequest(FILE_URL + " (v1)");
+
+        assertThat(provider.forRepository("OpenElements/hiero").getCodeOfConduct(TextfileType.MARKDOWN))
+                .isEqualTo("Be kind.");
+    }
+
+    private RepositoryCodeOfConductProvider provider(final Duration refreshInterval) {
+        return new RepositoryCodeOfConductProvider(gitHubClient, DEFAULT, 100, refreshInterval);
+    }
+
+    private void awaitRequest(final String request) throws InterruptedException {
+        for (int i = 0; i < 100 && !gitHubClient.requests.contains(request); i++) {
+            Thread.sleep(10);
+        }
+        // the reloaded resolution is stored after the request completed
+        Thread.sleep(20);
+    }
+}
@@ -0,0 +1,99 @@
+package com.openelements.conduct.integration.neardup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class NearDuplicateIndexTest {
+
+    private final static CheckResult SPAM = new CheckResult(new Message("spam", URI.create("https://example.com/1")),
+            ViolationState.VIOLATION, "Spam");
+
+    private final static CheckResult HARMLESS = new CheckResult(
+            new Message("thanks", URI.create("https://example.com/2")), ViolationState.NONE, "Harmless");
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void findsFingerprintsWithinTheDistance() {
+        final NearDuplicateIndex index = new NearDuplicateIndex(3, 100, Duration.ofHours(1), clock);
+        index.add(0b1111L, "v1", SPAM);
+
+        assertThat(index.find(0b1111L, "v1")).isSameAs(SPAM);
+        assertThat(index.find(0b1000L, "v1")).isSameAs(SPAM);
+        assertThat(index.find(0b0000L, "v1")).isNull();
+    }
+
+    @Test
+    void findsTheNearestFingerprint() {
+        final NearDuplicateIndex index = new NearDuplicateIndex(3, 100, Duration.ofHours(1), clock);
+        index.add(0b0111L, "v1", SPAM);
+        index.add(0b1111L, "v1", HARMLESS);
+
+        assertThat(index.find(0b1110L, "v1")).isSameAs(HARMLESS);
+    }
+
+    @Test
+    void findsOnlyVerdictsOfTheSameVersion() {
+        final NearDuplicateIndex index = new NearDuplicateIndex(3, 100, Duration.ofHours(1), clock);
+        index.add(42L, "v1", SPAM);
+
+        assertThat(index.find(42L, "v2")).isNull();
+    }
+
+    @Test
+    void evictsTheOldestEntries() {
+        final NearDuplicateIndex index = new NearDuplicateIndex(0, 2, Duration.ofHours(1), clock);
+        index.add(1L, "v1", SPAM);
+        index.add(2L, "v1", SPAM);
+        index.add(3L, "v1", SPAM);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.find(1L, "v1")).isNull();
+        assertThat(index.find(3L, "v1")).isSameAs(SPAM);
+    }
+
+    @Test
+    void evictsExpiredEntries() {
+        final NearDuplicateIndex index = new NearDuplicateIndex(0, 100, Duration.ofMinutes(10), clock);
+        index.add(1L, "v1", SPAM);
+
+        clock.advance(Duration.ofMinutes(11));
+
+        assertThat(index.find(1L, "v1")).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.openelements.conduct.integration.neardup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SimHashTest {
+
+    private final static String SPAM = "Congratulations! You have been selected for our exclusive crypto airdrop. "
+            + "Claim your free tokens today before the offer ends, only a few spots are left for early supporters "
+            + "of the project. Connect your wallet and verify your account to receive the reward";
+
+    @Test
+    void splitsTextInLowerCaseWords() {
+        assertThat(SimHash.words("Hello, World!  Thanks\tfor 42 PRs")).containsExactly("hello", "world", "thanks",
+                "for", "prs");
+    }
+
+    @Test
+    void skipsMentionsAndLinks() {
+        assertThat(SimHash.words("ping @alice see https://example.com/x and http://a.b"))
+                .containsExactly("ping", "see", "and");
+    }
+
+    @Test
+    void returnsNoWordsForNull() {
+        assertThat(SimHash.words(null)).isEmpty();
+    }
+
+    @Test
+    void ignoresChangedMentionsAndLinks() {
+        final long first = SimHash.fingerprint(SimHash.words("@alice " + SPAM + " https://scam.example/a"));
+        final long second = SimHash.fingerprint(SimHash.words("@bob " + SPAM + " https://scam.example/b"));
+
+        assertThat(SimHash.distance(first, second)).isZero();
+    }
+
+    @Test
+    void keepsNearDuplicatesClose() {
+        final long first = SimHash.fingerprint(SimHash.words(SPAM));
+        final long second = SimHash.fingerprint(SimHash.words(SPAM.replace("today", "now")));
+
+        assertThat(SimHash.distance(first, second)).isLessThanOrEqualTo(6);
+    }
+
+    @Test
+    void keepsDifferentTextsApart() {
+        final long first = SimHash.fingerprint(SimHash.words(SPAM));
+        final long second = SimHash.fingerprint(SimHash.words("Thanks for the review, I have updated the pull "
+                + "request and added the missing tests for the parser. Could you have another look when you find "
+                + "the time? The build is green again after the rebase on the main branch"));
+
+        assertThat(SimHash.distance(first, second)).isGreaterThan(6);
+    }
+
+    @Test
+    void fingerprintsNoWordsAsZero() {
+        assertThat(SimHash.fingerprint(List.of())).isZero();
+    }
+}
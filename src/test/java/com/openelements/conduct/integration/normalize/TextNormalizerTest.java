@@ -0,0 +1,109 @@
+package com.openelements.conduct.integration.normalize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openelements.conduct.data.TextfileType;
+import com.openelements.conduct.integration.normalize.TextNormalizer.NormalizedText;
+import org.junit.jupiter.api.Test;
+
+class TextNormalizerTest {
+
+    @Test
+    void removesTemplateComments() {
+        final String text = """
+                <!-- Please describe your change -->
+                This fixes the login.
+                """;
+
+        final NormalizedText normalized = TextNormalizer.normalize(text, TextfileType.MARKDOWN);
+
+        assertThat(normalized.text()).isEqualTo("This fixes the login.");
+        assertThat(normalized.removedCharacters()).isEqualTo(text.length() - normalized.text().length());
+    }
+
+    @Test
+    void keepsTheTextOfCheckboxItems() {
+        final String text = """
+                - [x] I have read the contributing guide
+                - [ ] you are all idiots
+                * [X]
+                """;
+
+        assertThat(TextNormalizer.normalize(text, TextfileType.MARKDOWN).text())
+                .isEqualTo("I have read the contributing guide\nyou are all idiots");
+    }
+
+    @Test
+    void removesMultiLineComments() {
+        final String text = "Hello\n<!--\nhidden\n-->\nworld";
+
+        assertThat(TextNormalizer.normalize(text, TextfileType.MARKDOWN).text()).isEqualTo("Hello\n\nworld");
+    }
+
+    @Test
+    void keepsCodeQuotesAndStackTraces() {
+        final String text = """
+                > you are an idiot
+
+                ```java
+                // you are an idiot
+                throw new IllegalStateException();
+                ```
+
+                java.lang.IllegalStateException: boom
+                    at com.example.Foo.bar(Foo.java:12)
+                """;
+
+        final String normalized = TextNormalizer.normalize(text, TextfileType.MARKDOWN).text();
+
+        assertThat(normalized).contains("you are an idiot");
+        assertThat(normalized).contains("// you are an idiot");
+        assertThat(normalized).contains("throw new IllegalStateException();");
+        assertThat(normalized).contains("at com.example.Foo.bar(Foo.java:12)");
+        assertThat(normalized).doesNotContain("```").doesNotContain("> ");
+    }
+
+    @Test
+    void keepsTextOfLinksAndDropsUrlsAndImages() {
+        final String text = "See [the docs](https://example.com/docs) ![logo](logo.png) or https://example.com";
+
+        final String normalized = TextNormalizer.normalize(text, TextfileType.MARKDOWN).text();
+
+        assertThat(normalized).contains("the docs");
+        assertThat(normalized).doesNotContain("https://").doesNotContain("logo.png");
+    }
+
+    @Test
+    void removesHtmlTagsScriptsAndStyles() {
+        final String text = "<p>Hello <b>world</b></p><script>alert('x')</script><style>p { color: red; }</style>";
+
+        final String normalized = TextNormalizer.normalize(text, TextfileType.HTML).text();
+
+        assertThat(normalized).contains("Hello").contains("world");
+        assertThat(normalized).doesNotContain("<").doesNotContain("alert").doesNotContain("color");
+    }
+
+    @Test
+    void keepsMarkdownSyntaxOfPlainText() {
+        final String text = "  <!-- not a comment -->  \n\n\n# not a heading  ";
+
+        final String normalized = TextNormalizer.normalize(text, TextfileType.PLAIN).text();
+
+        assertThat(normalized).isEqualTo("<!-- not a comment -->\n\n# not a heading");
+    }
+
+    @Test
+    void collapsesBlankLines() {
+        final String text = "first\r\n\r\n\r\n\r\nsecond   \n";
+
+        assertThat(TextNormalizer.normalize(text, TextfileType.MARKDOWN).text()).isEqualTo("first\n\nsecond");
+    }
+
+    @Test
+    void normalizesEmptyText() {
+        final NormalizedText normalized = TextNormalizer.normalize("", TextfileType.MARKDOWN);
+
+        assertThat(normalized.text()).isEmpty();
+        assertThat(normalized.removedCharacters()).isZero();
+    }
+}
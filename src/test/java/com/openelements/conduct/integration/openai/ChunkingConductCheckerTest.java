@@ -0,0 +1,157 @@
+package com.openelements.conduct.integration.openai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.CodeOfConductSnapshot;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ChunkingConductCheckerTest {
+
+    private final static int MAX_CHUNK_TOKENS = 256;
+
+    private final static int OVERLAP_TOKENS = 64;
+
+    private final TokenEstimator tokenEstimator = new TokenEstimator("gpt-4");
+
+    private final List<Message> checked = new CopyOnWriteArrayList<>();
+
+    private final ConductChecker delegate = message -> {
+        checked.add(message);
+        return message.message().contains("idiot")
+                ? new CheckResult(message, ViolationState.VIOLATION, "Insult", 0.8, "test")
+                : new CheckResult(message, ViolationState.NONE, "Harmless", 0.9, "test");
+    };
+
+    private final ChunkingConductChecker checker = new ChunkingConductChecker(delegate,
+            CodeOfConductSnapshot.ofAllTypes("Be nice."), tokenEstimator, MAX_CHUNK_TOKENS, OVERLAP_TOKENS);
+
+    @Test
+    void splitsAtParagraphsWithinTheLimit() {
+        final String text = paragraphs(20);
+
+        final List<String> chunks = checker.split(text, MAX_CHUNK_TOKENS);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(tokenEstimator.estimate(chunk)).isLessThanOrEqualTo(MAX_CHUNK_TOKENS);
+            assertThat(chunk).startsWith("Paragraph ");
+        });
+        IntStream.range(0, 20).forEach(i -> assertThat(chunks).anySatisfy(chunk -> assertThat(chunk)
+                .contains("Paragraph " + i + " ")));
+    }
+
+    @Test
+    void repeatsTheEndOfAChunkInTheNextChunk() {
+        final List<String> chunks = checker.split(paragraphs(20), MAX_CHUNK_TOKENS);
+
+        for (int i = 1; i < chunks.size(); i++) {
+            final String previous = chunks.get(i - 1);
+            final String lastParagraph = previous.substring(previous.lastIndexOf("Paragraph "));
+            assertThat(chunks.get(i)).startsWith(lastParagraph);
+        }
+    }
+
+    @Test
+    void keepsCodeBlocksTogether() {
+        final String code = "```java\n" + "int value = 42;\n".repeat(20) + "```\n";
+        final String text = paragraphs(6) + code + paragraphs(6);
+
+        final List<String> chunks = checker.split(text, MAX_CHUNK_TOKENS);
+
+        assertThat(chunks).anySatisfy(chunk -> assertThat(chunk).contains(code));
+    }
+
+    @Test
+    void cutsLongLinesAtWhitespace() {
+        final String text = IntStream.range(0, 400).mapToObj(i -> "word" + i).collect(Collectors.joining(" "));
+        final ChunkingConductChecker withoutOverlap = new ChunkingConductChecker(delegate,
+                CodeOfConductSnapshot.ofAllTypes("Be nice."), tokenEstimator, MAX_CHUNK_TOKENS, 0);
+
+        final List<String> chunks = withoutOverlap.split(text, MAX_CHUNK_TOKENS);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(String.join("", chunks)).isEqualTo(text);
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(tokenEstimator.estimate(chunk)).isLessThanOrEqualTo(MAX_CHUNK_TOKENS);
+            assertThat(chunk).startsWith("word");
+        });
+    }
+
+    @Test
+    void checksSmallMessagesAsTheyAre() {
+        final Message message = new Message("Title", "Thanks for the fix!", URI.create("https://example.com/1"));
+
+        final CheckResult result = checker.check(message);
+
+        assertThat(checked).containsExactly(message);
+        assertThat(result.state()).isEqualTo(ViolationState.NONE);
+    }
+
+    @Test
+    void reducesTheChunksToTheWorstVerdict() {
+        final String text = paragraphs(10) + "You are an idiot.\n\n" + paragraphs(10);
+        final Message message = new Message("Title", text, URI.create("https://example.com/1"));
+
+        final CheckResult result = checker.check(message);
+
+        assertThat(checked).hasSizeGreaterThan(1);
+        assertThat(result.message()).isEqualTo(message);
+        assertThat(result.state()).isEqualTo(ViolationState.VIOLATION);
+        assertThat(result.reason()).startsWith("Part ").contains("Insult").doesNotContain("Harmless");
+        assertThat(result.confidence()).isEqualTo(0.8);
+        assertThat(result.decidedBy()).isEqualTo("test");
+    }
+
+    @Test
+    void passesTheViolationOfAChunkBeforeTheOtherChunksDecided() {
+        final List<ViolationState> earlyVerdicts = new CopyOnWriteArrayList<>();
+        final ConductChecker pending = new ConductChecker() {
+            @Override
+            public CheckResult check(final Message message) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<CheckResult> checkAsync(final Message message) {
+                return message.message().contains("idiot")
+                        ? delegate.checkAsync(message) : new CompletableFuture<>();
+            }
+        };
+        final ChunkingConductChecker chunking = new ChunkingConductChecker(pending,
+                CodeOfConductSnapshot.ofAllTypes("Be nice."), tokenEstimator, MAX_CHUNK_TOKENS, OVERLAP_TOKENS);
+        final Message message = new Message("Title", paragraphs(10) + "You are an idiot.\n\n" + paragraphs(10),
+                URI.create("https://example.com/1"));
+
+        final CompletableFuture<CheckResult> result = chunking.checkAsync(message, earlyVerdicts::add);
+
+        assertThat(earlyVerdicts).containsExactly(ViolationState.VIOLATION);
+        assertThat(result).isNotDone();
+    }
+
+    @Test
+    void passesTheWorstVerdictOnceAllChunksDecided() {
+        final List<ViolationState> earlyVerdicts = new CopyOnWriteArrayList<>();
+        final Message message = new Message("Title", paragraphs(20), URI.create("https://example.com/1"));
+
+        checker.checkAsync(message, earlyVerdicts::add).join();
+
+        assertThat(checked).hasSizeGreaterThan(1);
+        assertThat(earlyVerdicts).containsExactly(ViolationState.NONE);
+    }
+
+    private static String paragraphs(final int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> "Paragraph " + i + " " + "lorem ipsum dolor sit amet ".repeat(8) + "\n\n")
+                .collect(Collectors.joining());
+    }
+}
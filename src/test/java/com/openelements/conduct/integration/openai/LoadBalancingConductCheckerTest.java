@@ -0,0 +1,150 @@
+package com.openelements.conduct.integration.openai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import org.jspecify.annotations.NonNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class LoadBalancingConductCheckerTest {
+
+    private final static Message MESSAGE = new Message("Please fix this", URI.create("https://example.com/1"));
+
+    private LoadBalancingConductChecker checker;
+
+    @AfterEach
+    void close() {
+        if (checker != null) {
+            checker.close();
+        }
+    }
+
+    @Test
+    void spreadsChecksOverTheEndpoints() {
+        final StubChecker first = new StubChecker(Mode.ANSWER);
+        final StubChecker second = new StubChecker(Mode.ANSWER);
+        checker = new LoadBalancingConductChecker(List.of(first, second), false, 0.95, Duration.ofMillis(10));
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(checker.check(MESSAGE).state()).isEqualTo(ViolationState.NONE);
+        }
+
+        assertThat(first.calls).isNotEmpty();
+        assertThat(second.calls).isNotEmpty();
+        assertThat(first.calls.size() + second.calls.size()).isEqualTo(50);
+    }
+
+    @Test
+    void failsOverToAnotherEndpoint() {
+        final StubChecker broken = new StubChecker(Mode.FAIL);
+        final StubChecker working = new StubChecker(Mode.ANSWER);
+        checker = new LoadBalancingConductChecker(List.of(broken, working), false, 0.95, Duration.ofMillis(10));
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(checker.check(MESSAGE).state()).isEqualTo(ViolationState.NONE);
+        }
+
+        assertThat(working.calls).hasSize(20);
+    }
+
+    @Test
+    void failsIfAllEndpointsFail() {
+        checker = new LoadBalancingConductChecker(List.of(new StubChecker(Mode.FAIL), new StubChecker(Mode.FAIL)),
+                false, 0.95, Duration.ofMillis(10));
+
+        assertThat(checker.checkAsync(MESSAGE)).failsWithin(Duration.ofSeconds(1))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void doesNotHedgeBeforeLatenciesAreKnown() throws InterruptedException {
+        final StubChecker first = new StubChecker(Mode.HANG);
+        final StubChecker second = new StubChecker(Mode.HANG);
+        checker = new LoadBalancingConductChecker(List.of(first, second), true, 0.5, Duration.ofMillis(1));
+
+        checker.checkAsync(MESSAGE);
+        Thread.sleep(50);
+
+        assertThat(first.calls.size() + second.calls.size()).isEqualTo(1);
+    }
+
+    @Test
+    void hedgesSlowChecksAndCancelsTheSlowerRequest() throws InterruptedException {
+        final StubChecker first = new StubChecker(Mode.ANSWER);
+        final StubChecker second = new StubChecker(Mode.ANSWER);
+        checker = new LoadBalancingConductChecker(List.of(first, second), true, 0.5, Duration.ofMillis(10));
+        for (int i = 0; i < 32; i++) {
+            checker.check(MESSAGE);
+        }
+        first.mode = Mode.HANG;
+        second.mode = Mode.HANG;
+
+        final CompletableFuture<CheckResult> result = checker.checkAsync(MESSAGE);
+        for (int i = 0; i < 100 && first.pending.size() + second.pending.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(first.pending).hasSize(1);
+        assertThat(second.pending).hasSize(1);
+        second.pending.getFirst().complete(new CheckResult(MESSAGE, ViolationState.NONE, "Harmless"));
+
+        assertThat(result.join().reason()).isEqualTo("Harmless");
+        assertThat(first.pending.getFirst()).isCancelled();
+    }
+
+    @Test
+    void cancelsTheRequestWhenTheCheckIsCancelled() {
+        final StubChecker backend = new StubChecker(Mode.HANG);
+        checker = new LoadBalancingConductChecker(List.of(backend), true, 0.95, Duration.ofMillis(10));
+
+        checker.checkAsync(MESSAGE).cancel(true);
+
+        assertThat(backend.pending).singleElement().matches(CompletableFuture::isCancelled);
+    }
+
+    private enum Mode {
+        ANSWER, FAIL, HANG
+    }
+
+    private static final class StubChecker implements ConductChecker {
+
+        private final List<CompletableFuture<CheckResult>> calls = new CopyOnWriteArrayList<>();
+
+        private final List<CompletableFuture<CheckResult>> pending = new CopyOnWriteArrayList<>();
+
+        private volatile Mode mode;
+
+        private StubChecker(final Mode mode) {
+            this.mode = mode;
+        }
+
+        @Override
+        public @NonNull CheckResult check(@NonNull final Message message) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+            final CompletableFuture<CheckResult> call = switch (mode) {
+                case ANSWER -> CompletableFuture.completedFuture(new CheckResult(message, ViolationState.NONE, "OK"));
+                case FAIL -> CompletableFuture.failedFuture(new IllegalStateException("Endpoint not reachable"));
+                case HANG -> new CompletableFuture<>();
+            };
+            if (!call.isDone()) {
+                pending.add(call);
+            }
+            calls.add(call);
+            return call;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.openelements.conduct.integration.openai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.CodeOfConductSnapshot;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OpenAiBasedConductCheckerTest {
+
+    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final static Message MESSAGE = new Message("Review", "You are an idiot",
+            URI.create("https://example.com/1"));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RateLimitGovernor governor = new RateLimitGovernor("test", 4, 1, 4, 0, 0, Duration.ofSeconds(10),
+            meterRegistry);
+
+    private HttpServer server;
+
+    private volatile JsonNode request;
+
+    private volatile ObjectNode answer;
+
+    private final CountDownLatch streamReleased = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            request = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+            if (request.path("stream").asBoolean()) {
+                stream(exchange);
+                return;
+            }
+            final byte[] body = OBJECT_MAPPER.writeValueAsBytes(answer);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        streamReleased.countDown();
+        server.stop(0);
+        governor.close();
+    }
+
+    @Test
+    void requestsVerdictsConstrainedToTheSchema() {
+        answer = completion("{\"result\": \"VIOLATION\", \"reason\": \"Insult\", \"confidence\": 0.92}");
+
+        final CheckResult result = checker(new CompletionOptions(ResponseFormat.JSON_SCHEMA, 200)).check(MESSAGE);
+
+        assertThat(result.state()).isEqualTo(ViolationState.VIOLATION);
+        assertThat(result.reason()).isEqualTo("Insult");
+        assertThat(result.confidence()).isEqualTo(0.92);
+        assertThat(result.decidedBy()).isEqualTo("openai/gpt-4o-mini");
+        final JsonNode responseFormat = request.get("response_format");
+        assertThat(responseFormat.get("type").asText()).isEqualTo("json_schema");
+        assertThat(responseFormat.at("/json_schema/strict").asBoolean()).isTrue();
+        assertThat(responseFormat.at("/json_schema/schema/properties/result/enum").toString())
+                .isEqualTo("[\"NONE\",\"POSSIBLE_VIOLATION\",\"VIOLATION\"]");
+        assertThat(responseFormat.at("/json_schema/schema/required").toString())
+                .isEqualTo("[\"result\",\"reason\",\"confidence\"]");
+        assertThat(request.get("max_tokens").asInt()).isEqualTo(200);
+        assertThat(verdicts("json_schema", "parsed")).isEqualTo(1);
+    }
+
+    @Test
+    void parsesVerdictsWrappedInText() {
+        answer = completion("Here is the verdict:\n```json\n{\"result\": \"NONE\", \"reason\": \"Feedback\"}\n```");
+
+        final CheckResult result = checker(CompletionOptions.DEFAULT).check(MESSAGE);
+
+        assertThat(result.state()).isEqualTo(ViolationState.NONE);
+        assertThat(result.reason()).isEqualTo("Feedback");
+        assertThat(result.confidence()).isNull();
+        assertThat(request.has("response_format")).isFalse();
+        assertThat(request.has("max_tokens")).isFalse();
+        assertThat(verdicts("prompt", "parsed")).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresConfidencesOutOfRange() {
+        answer = completion("{\"result\": \"NONE\", \"reason\": \"Feedback\", \"confidence\": 42}");
+
+        assertThat(checker(CompletionOptions.DEFAULT).check(MESSAGE).confidence()).isNull();
+    }
+
+    @Test
+    void failsOnInvalidVerdicts() {
+        answer = completion("I can not decide.");
+
+        assertThat(checker(CompletionOptions.DEFAULT).checkAsync(MESSAGE)).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+        assertThat(verdicts("prompt", "failed")).isEqualTo(1);
+    }
+
+    @Test
+    void failsOnRefusals() {
+        answer = completion(null);
+        ((ObjectNode) answer.at("/choices/0/message")).put("refusal", "I can not help with that.");
+
+        assertThat(checker(new CompletionOptions(ResponseFormat.JSON_SCHEMA, 0)).checkAsync(MESSAGE))
+                .failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .havingRootCause()
+                .withMessageContaining("refused");
+        assertThat(verdicts("json_schema", "failed")).isEqualTo(1);
+    }
+
+    @Test
+    void checksBatchesWithSchema() {
+        answer = completion("{\"results\": [{\"id\": 1, \"result\": \"NONE\", \"reason\": \"Thanks\", "
+                + "\"confidence\": 0.99}, {\"id\": 0, \"result\": \"VIOLATION\", \"reason\": \"Insult\", "
+                + "\"confidence\": 0.9}, {\"id\": 7, \"result\": \"NONE\", \"reason\": \"Unknown\", "
+                + "\"confidence\": 0.5}]}");
+        final Message second = new Message("Review", "Thanks!", URI.create("https://example.com/2"));
+        final Message third = new Message("Review", "Fixed", URI.create("https://example.com/3"));
+
+        final Map<Integer, CheckResult> results = checker(new CompletionOptions(ResponseFormat.JSON_SCHEMA, 100))
+                .checkBatchAsync(List.of(MESSAGE, second, third)).join();
+
+        assertThat(results).containsOnlyKeys(0, 1);
+        assertThat(results.get(0).message()).isEqualTo(MESSAGE);
+        assertThat(results.get(0).state()).isEqualTo(ViolationState.VIOLATION);
+        assertThat(results.get(1).message()).isEqualTo(second);
+        assertThat(request.at("/response_format/json_schema/schema/properties/results/type").asText())
+                .isEqualTo("array");
+        assertThat(request.get("max_tokens").asInt()).isEqualTo(300);
+        assertThat(verdicts("json_schema", "parsed")).isEqualTo(2);
+        assertThat(verdicts("json_schema", "failed")).isEqualTo(1);
+    }
+
+    @Test
+    void passesTheVerdictOfAStreamBeforeItEnds() throws InterruptedException {
+        final List<ViolationState> earlyVerdicts = new CopyOnWriteArrayList<>();
+
+        final CompletableFuture<CheckResult> result = checker(CompletionOptions.DEFAULT,
+                new StreamingOptions(true, false)).checkAsync(MESSAGE, earlyVerdicts::add);
+        for (int i = 0; i < 500 && earlyVerdicts.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(earlyVerdicts).containsExactly(ViolationState.VIOLATION);
+        assertThat(result).isNotDone();
+        streamReleased.countDown();
+        assertThat(result.join().reason()).isEqualTo("Insult");
+        assertThat(earlyVerdicts).hasSize(1);
+        assertThat(governor.getInFlight()).isZero();
+    }
+
+    private OpenAiBasedConductChecker checker(final CompletionOptions completion) {
+        return checker(completion, StreamingOptions.DISABLED);
+    }
+
+    private OpenAiBasedConductChecker checker(final CompletionOptions completion, final StreamingOptions streaming) {
+        return new OpenAiBasedConductChecker("http://localhost:" + server.getAddress().getPort()
+                + "/v1/chat/completions", "test-key", "gpt-4o-mini", CodeOfConductSnapshot.ofAllTypes("Be nice."),
+                new OpenAiMetrics(meterRegistry), governor, completion, streaming);
+    }
+
+    /**
+     * Streams a verdict and holds back the end of the answer until the test releases it.
+     */
+    private void stream(final HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(chunk("{\"result\": \"VIOLATION\", "));
+            out.flush();
+            streamReleased.await(5, TimeUnit.SECONDS);
+            out.write(chunk("\"reason\": \"Insult\"}"));
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] chunk(final String content) throws IOException {
+        final ObjectNode chunk = OBJECT_MAPPER.createObjectNode();
+        chunk.putArray("choices").addObject().putObject("delta").put("content", content);
+        return ("data: " + OBJECT_MAPPER.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private double verdicts(final String format, final String outcome) {
+        return meterRegistry.get("guardian.openai.verdicts").tag("format", format).tag("outcome", outcome)
+                .counter().count();
+    }
+
+    private static ObjectNode completion(final String content) {
+        final ObjectNode completion = OBJECT_MAPPER.createObjectNode();
+        final ObjectNode message = completion.putArray("choices").addObject()
+                .put("finish_reason", "stop")
+                .putObject("message")
+                .put("role", "assistant");
+        if (content != null) {
+            message.put("content", content);
+        } else {
+            message.putNull("content");
+        }
+        completion.putObject("usage").put("prompt_tokens", 100).put("completion_tokens", 20);
+        return completion;
+    }
+}
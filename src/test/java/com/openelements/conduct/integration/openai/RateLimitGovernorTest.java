@@ -0,0 +1,228 @@
+package com.openelements.conduct.integration.openai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.net.ssl.SSLSession;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RateLimitGovernorTest {
+
+    private RateLimitGovernor governor;
+
+    @AfterEach
+    void close() {
+        if (governor != null) {
+            governor.close();
+        }
+    }
+
+    @Test
+    void parsesResetDurations() {
+        assertThat(RateLimitGovernor.parseResetDuration("20ms")).isEqualTo(20L);
+        assertThat(RateLimitGovernor.parseResetDuration("1s")).isEqualTo(1_000L);
+        assertThat(RateLimitGovernor.parseResetDuration("1.5s")).isEqualTo(1_500L);
+        assertThat(RateLimitGovernor.parseResetDuration("6m0s")).isEqualTo(360_000L);
+        assertThat(RateLimitGovernor.parseResetDuration(" 1h2m3s ")).isEqualTo(3_723_000L);
+        assertThat(RateLimitGovernor.parseResetDuration("soon")).isNull();
+    }
+
+    @Test
+    void increasesTheLimitOnSuccess() {
+        governor = governor(8, 0, 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(governor.execute(100, () -> respond(200)).join().statusCode()).isEqualTo(200);
+        }
+
+        assertThat(governor.getLimit()).isEqualTo(9);
+        assertThat(governor.getInFlight()).isZero();
+    }
+
+    @Test
+    void halvesTheLimitWhenRateLimited() {
+        governor = governor(8, 0, 0);
+
+        final HttpResponse<String> response = governor.execute(100, () -> respond(429)).join();
+
+        assertThat(response.statusCode()).isEqualTo(429);
+        assertThat(governor.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void retriesServerErrors() {
+        governor = governor(8, 0, 2);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final HttpResponse<String> response = governor.execute(100,
+                () -> respond(calls.incrementAndGet() == 1 ? 503 : 200)).join();
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void keepsTheLimitWhenACallIsCancelled() {
+        governor = governor(8, 0, 0);
+        final CompletableFuture<HttpResponse<String>> call = new CompletableFuture<>();
+
+        final CompletableFuture<HttpResponse<String>> result = governor.execute(100, () -> call);
+        assertThat(governor.getInFlight()).isEqualTo(1);
+        result.cancel(true);
+
+        assertThat(call).isCancelled();
+        assertThat(governor.getInFlight()).isZero();
+        assertThat(governor.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void rejectsCallsThatCanNotStartBeforeTheDeadline() {
+        governor = new RateLimitGovernor("test", 1, 1, 1, 0, 0, Duration.ofMillis(200), new SimpleMeterRegistry());
+        governor.execute(100, CompletableFuture::new);
+
+        final CompletableFuture<HttpResponse<String>> waiting = governor.execute(100, () -> respond(200));
+
+        assertThat(waiting).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failsWaitingCallsOnceClosed() {
+        governor = new RateLimitGovernor("test", 1, 1, 1, 0, 0, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        governor.execute(100, CompletableFuture::new);
+        governor.close();
+
+        final CompletableFuture<HttpResponse<String>> waiting = governor.execute(100, () -> respond(200));
+
+        assertThat(waiting).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void startsWaitingCallsOnceAPermitIsReleased() {
+        governor = new RateLimitGovernor("test", 1, 1, 1, 0, 0, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        final CompletableFuture<HttpResponse<String>> call = new CompletableFuture<>();
+        final CompletableFuture<HttpResponse<String>> first = governor.execute(100, () -> call);
+        final CompletableFuture<HttpResponse<String>> second = governor.execute(100, () -> respond(200));
+        final CompletableFuture<HttpResponse<String>> third = governor.execute(100, () -> respond(200));
+
+        assertThat(second).isNotDone();
+        call.complete(respond(200).join());
+
+        assertThat(first).isCompleted();
+        assertThat(second).isCompleted();
+        assertThat(third).isCompleted();
+        assertThat(governor.getInFlight()).isZero();
+    }
+
+    @Test
+    void startsWaitingCallsOnceTheTokensAreRefilled() {
+        governor = governor(8, 60_000, 0);
+        governor.execute(60_000, () -> respond(200)).join();
+
+        final CompletableFuture<HttpResponse<String>> waiting = governor.execute(100, () -> respond(200));
+
+        assertThat(waiting).succeedsWithin(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void holdsThePermitUntilAStreamedBodyIsClosed() {
+        governor = new RateLimitGovernor("test", 1, 1, 1, 0, 0, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        final HttpResponse<Stream<String>> streamed = governor.execute(100,
+                () -> CompletableFuture.completedFuture(new TestResponse<>(200, HttpHeaders.of(Map.of(),
+                        (a, b) -> true), Stream.of("data: [DONE]")))).join();
+        final CompletableFuture<HttpResponse<String>> waiting = governor.execute(100, () -> respond(200));
+
+        assertThat(governor.getInFlight()).isEqualTo(1);
+        assertThat(waiting).isNotDone();
+        streamed.body().close();
+        streamed.body().close();
+
+        assertThat(waiting).isCompleted();
+        assertThat(governor.getInFlight()).isZero();
+    }
+
+    @Test
+    void failsWaitingCallsWhenClosed() {
+        governor = new RateLimitGovernor("test", 1, 1, 1, 0, 0, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        governor.execute(100, CompletableFuture::new);
+        final CompletableFuture<HttpResponse<String>> waiting = governor.execute(100, () -> respond(200));
+
+        governor.close();
+
+        assertThat(waiting).isCompletedExceptionally();
+    }
+
+    @Test
+    void syncsTheTokenBucketWithTheHeaders() {
+        governor = governor(8, 0, 0);
+
+        governor.execute(100, () -> respond(200, Map.of("x-ratelimit-limit-tokens", "60000",
+                "x-ratelimit-remaining-tokens", "500"))).join();
+
+        assertThat(governor.getAvailableTokens()).isCloseTo(500, Offset.offset(100d));
+    }
+
+    private static RateLimitGovernor governor(final int limit, final int tokensPerMinute, final int maxRetries) {
+        return new RateLimitGovernor("test", limit, 1, 64, tokensPerMinute, maxRetries, Duration.ofMinutes(1),
+                new SimpleMeterRegistry());
+    }
+
+    private static CompletableFuture<HttpResponse<String>> respond(final int statusCode) {
+        return respond(statusCode, Map.of());
+    }
+
+    private static CompletableFuture<HttpResponse<String>> respond(final int statusCode,
+            final Map<String, String> headers) {
+        final Map<String, List<String>> values = new HashMap<>();
+        headers.forEach((name, value) -> values.put(name, List.of(value)));
+        return CompletableFuture.completedFuture(new TestResponse<>(statusCode, HttpHeaders.of(values, (a, b) -> true),
+                ""));
+    }
+
+    private record TestResponse<T>(int statusCode, HttpHeaders headers, T body) implements HttpResponse<T> {
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(URI.create("https://api.openai.com/v1/chat/completions")).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request().uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_2;
+        }
+    }
+}
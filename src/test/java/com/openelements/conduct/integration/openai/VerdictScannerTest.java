@@ -0,0 +1,95 @@
+package com.openelements.conduct.integration.openai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class VerdictScannerTest {
+
+    @Test
+    void scansFieldsOfACompleteObject() {
+        final VerdictScanner scanner = new VerdictScanner();
+
+        scanner.feed("{\"result\": \"VIOLATION\", \"reason\": \"Insult\", \"confidence\": 0.9, \"final\": true}");
+
+        assertThat(scanner.isDone()).isTrue();
+        assertThat(scanner.get("result")).isEqualTo("VIOLATION");
+        assertThat(scanner.get("reason")).isEqualTo("Insult");
+        assertThat(scanner.get("confidence")).isEqualTo("0.9");
+        assertThat(scanner.get("final")).isEqualTo("true");
+    }
+
+    @Test
+    void scansFieldsBeforeTheObjectIsComplete() {
+        final VerdictScanner scanner = new VerdictScanner();
+        final String content = "{\"result\":\"NONE\",\"reason\":\"Friendly feedback\"}";
+
+        // the content is streamed in fragments of a few characters
+        for (int i = 0; i < content.indexOf("Friendly"); i += 3) {
+            scanner.feed(content.substring(i, Math.min(i + 3, content.indexOf("Friendly"))));
+        }
+
+        assertThat(scanner.get("result")).isEqualTo("NONE");
+        assertThat(scanner.get("reason")).isNull();
+        assertThat(scanner.isDone()).isFalse();
+
+        scanner.feed("Friendly fee");
+        assertThat(scanner.getPartial("reason")).isEqualTo("Friendly fee");
+        assertThat(scanner.getPartial("result")).isEqualTo("NONE");
+
+        scanner.feed("dback\"}");
+        assertThat(scanner.get("reason")).isEqualTo("Friendly feedback");
+        assertThat(scanner.isDone()).isTrue();
+    }
+
+    @Test
+    void ignoresTextBeforeTheObject() {
+        final VerdictScanner scanner = new VerdictScanner();
+
+        scanner.feed("```json\n{\"result\": \"NONE\"}\n```");
+
+        assertThat(scanner.get("result")).isEqualTo("NONE");
+        assertThat(scanner.isDone()).isTrue();
+    }
+
+    @Test
+    void decodesEscapes() {
+        final VerdictScanner scanner = new VerdictScanner();
+
+        scanner.feed("{\"reason\": \"said \\\"go away\\\"\\n\\u00e4\\\\\"}");
+
+        assertThat(scanner.get("reason")).isEqualTo("said \"go away\"\nä\\");
+    }
+
+    @Test
+    void decodesEscapesSplitOverFragments() {
+        final VerdictScanner scanner = new VerdictScanner();
+
+        scanner.feed("{\"reason\": \"a\\");
+        scanner.feed("u00");
+        scanner.feed("e4\"}");
+
+        assertThat(scanner.get("reason")).isEqualTo("aä");
+    }
+
+    @Test
+    void skipsNestedObjects() {
+        final VerdictScanner scanner = new VerdictScanner();
+
+        scanner.feed("{\"details\": {\"result\": \"VIOLATION\"}, \"result\": \"NONE\", \"reason\": null}");
+
+        assertThat(scanner.get("details")).isNull();
+        assertThat(scanner.get("result")).isEqualTo("NONE");
+        assertThat(scanner.get("reason")).isEqualTo("null");
+        assertThat(scanner.isDone()).isTrue();
+    }
+
+    @Test
+    void stopsAtTheEndOfTheObject() {
+        final VerdictScanner scanner = new VerdictScanner();
+
+        scanner.feed("{\"result\": \"NONE\"} {\"result\": \"VIOLATION\"}");
+
+        assertThat(scanner.get("result")).isEqualTo("NONE");
+    }
+}
@@ -0,0 +1,62 @@
+package com.openelements.conduct.integration.prefilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AhoCorasickTest {
+
+    @Test
+    void findsTermsCaseInsensitive() {
+        final AhoCorasick automaton = new AhoCorasick(List.of("idiot", "Stupid"));
+
+        assertThat(automaton.containsAny("You are an IDIOT")).isTrue();
+        assertThat(automaton.containsAny("that is stupid")).isTrue();
+        assertThat(automaton.containsAny("Thanks for the review")).isFalse();
+    }
+
+    @Test
+    void findsTermsThatOverlapOtherTerms() {
+        // "she" is only reachable through the failure link of the "hers" branch
+        final AhoCorasick automaton = new AhoCorasick(List.of("hers", "she", "his"));
+
+        assertThat(automaton.containsAny("ushe")).isTrue();
+        assertThat(automaton.containsAny("hhis")).isTrue();
+        assertThat(automaton.containsAny("her")).isFalse();
+    }
+
+    @Test
+    void ignoresBlankAndNullTerms() {
+        final AhoCorasick automaton = new AhoCorasick(Arrays.asList(" ", null, ""));
+
+        assertThat(automaton.containsAny("anything")).isFalse();
+        assertThat(automaton.wordCoverage("anything")).isZero();
+    }
+
+    @Test
+    void coversOnlyWholeWords() {
+        final AhoCorasick automaton = new AhoCorasick(List.of("thanks", "lgtm"));
+
+        assertThat(automaton.wordCoverage("thanks")).isEqualTo(0b111111L);
+        assertThat(automaton.wordCoverage("LGTM thanks")).isEqualTo(0b11111101111L);
+        assertThat(automaton.wordCoverage("thanksgiving")).isZero();
+    }
+
+    @Test
+    void coversOverlappingTerms() {
+        final AhoCorasick automaton = new AhoCorasick(List.of("thank you", "you"));
+
+        assertThat(automaton.wordCoverage("thank you")).isEqualTo(0b111111111L);
+    }
+
+    @Test
+    void rejectsLongTextsForCoverage() {
+        final AhoCorasick automaton = new AhoCorasick(List.of("thanks"));
+
+        assertThatThrownBy(() -> automaton.wordCoverage("x".repeat(Long.SIZE + 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,109 @@
+package com.openelements.conduct.integration.singleflight;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import org.jspecify.annotations.NonNull;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightConductCheckerTest {
+
+    private final List<CompletableFuture<CheckResult>> calls = new CopyOnWriteArrayList<>();
+
+    private final ConductChecker delegate = new ConductChecker() {
+        @Override
+        public @NonNull CheckResult check(@NonNull final Message message) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public @NonNull CompletableFuture<CheckResult> checkAsync(@NonNull final Message message) {
+            final CompletableFuture<CheckResult> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+    };
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlightConductChecker checker = new SingleFlightConductChecker(delegate, meterRegistry);
+
+    @Test
+    void sharesConcurrentChecksOfTheSameContent() {
+        final Message first = message("https://example.com/1", "OpenElements/hiero");
+        final Message second = message("https://example.com/2", "OpenElements/hiero");
+
+        final CompletableFuture<CheckResult> firstResult = checker.checkAsync(first);
+        final CompletableFuture<CheckResult> secondResult = checker.checkAsync(second);
+        calls.getFirst().complete(new CheckResult(first, ViolationState.VIOLATION, "Spam"));
+
+        assertThat(calls).hasSize(1);
+        assertThat(firstResult.join().message()).isEqualTo(first);
+        assertThat(secondResult.join().message()).isEqualTo(second);
+        assertThat(secondResult.join().state()).isEqualTo(ViolationState.VIOLATION);
+        assertThat(meterRegistry.get("guardian.single-flight.messages").tag("outcome", "shared").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void checksTheContentAgainOnceTheCheckIsDone() {
+        final Message message = message("https://example.com/1", "OpenElements/hiero");
+        checker.checkAsync(message);
+        calls.getFirst().complete(new CheckResult(message, ViolationState.NONE, "Harmless"));
+
+        checker.checkAsync(message);
+
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    void doesNotShareChecksOfOtherRepositories() {
+        checker.checkAsync(message("https://example.com/1", "OpenElements/hiero"));
+        checker.checkAsync(message("https://example.com/2", "OpenElements/other"));
+
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    void sharesFailures() {
+        final CompletableFuture<CheckResult> firstResult = checker.checkAsync(message("https://example.com/1", null));
+        final CompletableFuture<CheckResult> secondResult = checker.checkAsync(message("https://example.com/2", null));
+
+        calls.getFirst().completeExceptionally(new IllegalStateException("OpenAI API not reachable"));
+
+        assertThat(firstResult).failsWithin(Duration.ofSeconds(1))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+        assertThat(secondResult).failsWithin(Duration.ofSeconds(1))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void keepsTheCheckWhenOneCallerCancels() {
+        final Message first = message("https://example.com/1", null);
+        final Message second = message("https://example.com/2", null);
+        final CompletableFuture<CheckResult> firstResult = checker.checkAsync(first);
+        final CompletableFuture<CheckResult> secondResult = checker.checkAsync(second);
+
+        firstResult.cancel(true);
+        calls.getFirst().complete(new CheckResult(first, ViolationState.NONE, "Harmless"));
+
+        assertThat(calls.getFirst()).isNotCancelled();
+        assertThat(secondResult.join().message()).isEqualTo(second);
+    }
+
+    private static Message message(final String link, final String repository) {
+        return new Message("Offer", "Claim your free tokens now", URI.create(link), repository);
+    }
+}
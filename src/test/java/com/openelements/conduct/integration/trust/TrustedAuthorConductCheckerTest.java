@@ -0,0 +1,108 @@
+package com.openelements.conduct.integration.trust;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.openelements.conduct.data.CheckResult;
+import com.openelements.conduct.data.ConductChecker;
+import com.openelements.conduct.data.Message;
+import com.openelements.conduct.data.ViolationState;
+import com.openelements.conduct.endpoint.GitHubClient;
+import com.openelements.conduct.integration.trust.TrustedAuthorConductChecker.Mode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TrustedAuthorConductCheckerTest {
+
+    private final static String REPOSITORY = "OpenElements/hiero";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger checks = new AtomicInteger();
+
+    private final ConductChecker delegate = message -> {
+        checks.incrementAndGet();
+        return new CheckResult(message, ViolationState.POSSIBLE_VIOLATION, "Rude", 0.7, "test");
+    };
+
+    private final TrustedAuthors trustedAuthors = new TrustedAuthors(new GitHubClient() {
+        @Override
+        public CompletableFuture<Integer> getContributionCountAsync(final String repository, final String author) {
+            return CompletableFuture.completedFuture(author.equals("maintainer") ? 100 : 0);
+        }
+    }, List.of(), Duration.ofHours(1), 10, Duration.ofHours(1), 100);
+
+    @AfterEach
+    void close() {
+        trustedAuthors.close();
+    }
+
+    @Test
+    void checksTrustedAuthorsInShadowMode() {
+        final ConductChecker checker = checker(Mode.SHADOW, 0);
+
+        final CheckResult result = checker.check(message("maintainer"));
+
+        assertThat(checks).hasValue(1);
+        assertThat(result.state()).isEqualTo(ViolationState.POSSIBLE_VIOLATION);
+        assertThat(count("guardian.trust.messages", "outcome", "sampled")).isEqualTo(1);
+        assertThat(count("guardian.trust.verdicts", "state", "possible_violation")).isEqualTo(1);
+    }
+
+    @Test
+    void sparesChecksOfTrustedAuthorsInActiveMode() {
+        final ConductChecker checker = checker(Mode.ACTIVE, 0);
+
+        final CheckResult result = checker.check(message("maintainer"));
+
+        assertThat(checks).hasValue(0);
+        assertThat(result.state()).isEqualTo(ViolationState.NONE);
+        assertThat(result.reason()).isEqualTo("Author maintainer has 100 contributions to " + REPOSITORY + ".");
+        assertThat(result.decidedBy()).isEqualTo("trust");
+        assertThat(count("guardian.trust.messages", "outcome", "decided")).isEqualTo(1);
+    }
+
+    @Test
+    void samplesChecksOfTrustedAuthorsInActiveMode() {
+        final ConductChecker checker = checker(Mode.ACTIVE, 1);
+
+        checker.check(message("maintainer"));
+
+        assertThat(checks).hasValue(1);
+        assertThat(count("guardian.trust.messages", "outcome", "sampled")).isEqualTo(1);
+    }
+
+    @Test
+    void checksUntrustedAuthors() {
+        final ConductChecker checker = checker(Mode.ACTIVE, 0);
+
+        final CheckResult result = checker.check(message("newcomer"));
+
+        assertThat(checks).hasValue(1);
+        assertThat(result.state()).isEqualTo(ViolationState.POSSIBLE_VIOLATION);
+        assertThat(count("guardian.trust.messages", "outcome", "untrusted")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsInvalidSampleRates() {
+        assertThatThrownBy(() -> checker(Mode.ACTIVE, 1.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ConductChecker checker(final Mode mode, final double sampleRate) {
+        return new TrustedAuthorConductChecker(delegate, trustedAuthors, mode, sampleRate, meterRegistry);
+    }
+
+    private double count(final String name, final String tag, final String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+
+    private static Message message(final String author) {
+        return new Message("Title", "Please fix this", URI.create("https://example.com/1"), REPOSITORY, author);
+    }
+}
@@ -0,0 +1,126 @@
+package com.openelements.conduct.integration.trust;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openelements.conduct.endpoint.GitHubClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TrustedAuthorsTest {
+
+    private final StubGitHubClient gitHubClient = new StubGitHubClient();
+
+    private TrustedAuthors trustedAuthors;
+
+    @AfterEach
+    void close() {
+        if (trustedAuthors != null) {
+            trustedAuthors.close();
+        }
+    }
+
+    @Test
+    void trustsMembersOfTheOrganizations() throws InterruptedException {
+        gitHubClient.members = Map.of("OpenElements", Set.of("Alice"), "hiero-ledger", Set.of("bob"));
+        trustedAuthors = trustedAuthors(List.of("OpenElements", "hiero-ledger"));
+
+        awaitMembers("openelements/hiero", "alice");
+
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "ALICE"))
+                .isEqualTo("Author ALICE is a member of OpenElements.");
+        assertThat(trustedAuthors.getTrustReason("hiero-ledger/hiero-sdk", "bob"))
+                .isEqualTo("Author bob is a member of hiero-ledger.");
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "mallory")).isNull();
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", null)).isNull();
+        assertThat(trustedAuthors.getTrustReason(null, "alice")).isNull();
+    }
+
+    @Test
+    void trustsMembersOnlyInRepositoriesOfTheirOrganization() throws InterruptedException {
+        gitHubClient.members = Map.of("OpenElements", Set.of("alice"), "hiero-ledger", Set.of("bob"));
+        trustedAuthors = trustedAuthors(List.of("OpenElements", "hiero-ledger"));
+
+        awaitMembers("OpenElements/hiero", "alice");
+
+        assertThat(trustedAuthors.getTrustReason("hiero-ledger/hiero-sdk", "alice")).isNull();
+        assertThat(trustedAuthors.getTrustReason("other/hiero", "alice")).isNull();
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "bob")).isNull();
+    }
+
+    @Test
+    void trustsFrequentContributors() {
+        gitHubClient.contributions = CompletableFuture.completedFuture(12);
+        trustedAuthors = trustedAuthors(List.of());
+
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "carol"))
+                .isEqualTo("Author carol has 12 contributions to OpenElements/hiero.");
+        assertThat(trustedAuthors.getTrustReason(null, "carol")).isNull();
+        assertThat(gitHubClient.contributionRequests).hasValue(1);
+    }
+
+    @Test
+    void doesNotTrustOccasionalContributors() {
+        gitHubClient.contributions = CompletableFuture.completedFuture(3);
+        trustedAuthors = trustedAuthors(List.of());
+
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "carol")).isNull();
+    }
+
+    @Test
+    void doesNotWaitForTheContributions() {
+        trustedAuthors = trustedAuthors(List.of());
+
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "carol")).isNull();
+        gitHubClient.contributions.complete(12);
+
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "carol")).isNotNull();
+        assertThat(gitHubClient.contributionRequests).hasValue(1);
+    }
+
+    @Test
+    void cachesFailedContributionSearches() {
+        gitHubClient.contributions = CompletableFuture.failedFuture(new IllegalStateException("rate limited"));
+        trustedAuthors = trustedAuthors(List.of());
+
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "carol")).isNull();
+        assertThat(trustedAuthors.getTrustReason("OpenElements/hiero", "carol")).isNull();
+
+        assertThat(gitHubClient.contributionRequests).hasValue(1);
+    }
+
+    private TrustedAuthors trustedAuthors(final List<String> organizations) {
+        return new TrustedAuthors(gitHubClient, organizations, Duration.ofHours(1), 10, Duration.ofHours(1), 100);
+    }
+
+    private void awaitMembers(final String repository, final String login) throws InterruptedException {
+        for (int i = 0; i < 100 && trustedAuthors.getTrustReason(repository, login) == null; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private static final class StubGitHubClient extends GitHubClient {
+
+        private Map<String, Set<String>> members = Map.of();
+
+        private CompletableFuture<Integer> contributions = new CompletableFuture<>();
+
+        private final AtomicInteger contributionRequests = new AtomicInteger();
+
+        @Override
+        public Set<String> getAllUsersForOrg(final String orgName) {
+            return members.getOrDefault(orgName, Set.of());
+        }
+
+        @Override
+        public CompletableFuture<Integer> getContributionCountAsync(final String repository, final String author) {
+            contributionRequests.incrementAndGet();
+            return contributions;
+        }
+    }
+}